@@ -0,0 +1,68 @@
+package com.kvcrm.benchmark;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kvcrm.CrmApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Application context of the database benchmarks, without a web server, on the in-memory H2
+ * database of the test configuration.
+ */
+final class BenchmarkContext {
+
+  static final long FIRST_ID = 1_000_000;
+
+  private BenchmarkContext() {
+  }
+
+  static ConfigurableApplicationContext start(String... properties) {
+    return new SpringApplicationBuilder(CrmApplication.class)
+        .web(WebApplicationType.NONE)
+        .properties(
+            "spring.main.banner-mode=off",
+            "logging.level.root=warn",
+            "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+            "spring.jpa.properties.hibernate.jdbc.batch_size=25",
+            "spring.jpa.properties.hibernate.order_inserts=true",
+            "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration")
+        .properties(properties)
+        .run();
+  }
+
+  /**
+   * Inserts accounts named {@code account-<n>}, each with the given number of contacts, returning
+   * the contact ids. Ids start at {@link #FIRST_ID}, clear of the sequences used by the application.
+   */
+  static long[] seed(ConfigurableApplicationContext context, int accounts, int contactsPerAccount) {
+    JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+    TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+    long[] contactIds = new long[accounts * contactsPerAccount];
+    transactionTemplate.executeWithoutResult(status -> {
+      List<Object[]> accountRows = new ArrayList<>();
+      List<Object[]> contactRows = new ArrayList<>();
+      for (int account = 0; account < accounts; account++) {
+        accountRows.add(new Object[] {FIRST_ID + account, "account-" + account, now});
+        for (int contact = 0; contact < contactsPerAccount; contact++) {
+          int index = account * contactsPerAccount + contact;
+          contactIds[index] = FIRST_ID + index;
+          contactRows.add(new Object[] {contactIds[index], FIRST_ID + account, "Contact", "No. " + index,
+              "contact" + index + "@benchmark.test", now});
+        }
+      }
+      jdbcTemplate.batchUpdate("INSERT INTO accounts (id, name, created_at, version) VALUES (?, ?, ?, 0)", accountRows);
+      jdbcTemplate.batchUpdate("INSERT INTO contacts (id, account_id, is_deleted, first_name, last_name, email, created_at, version) "
+          + "VALUES (?, ?, false, ?, ?, ?, ?, 0)", contactRows);
+    });
+    return contactIds;
+  }
+}
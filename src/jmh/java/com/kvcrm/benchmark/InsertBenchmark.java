@@ -0,0 +1,96 @@
+package com.kvcrm.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import com.kvcrm.entity.Account;
+import com.kvcrm.entity.Contact;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Inserting contacts in one transaction, grouped into JDBC batches, against one transaction and
+ * one round trip per contact. Scores are per contact.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark {
+
+  private static final int CONTACTS = 100;
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  private ConfigurableApplicationContext context;
+
+  private ContactRepository contactRepository;
+
+  private TransactionTemplate transactionTemplate;
+
+  private JdbcTemplate jdbcTemplate;
+
+  private Account account;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContext.start();
+    contactRepository = context.getBean(ContactRepository.class);
+    transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    jdbcTemplate = context.getBean(JdbcTemplate.class);
+    account = context.getBean(AccountRepository.class).save(Account.builder().name("insert-benchmark").build());
+  }
+
+  @TearDown(Level.Iteration)
+  public void clear() {
+    transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("DELETE FROM contacts"));
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CONTACTS)
+  public List<Contact> batched() {
+    return transactionTemplate.execute(status -> contactRepository.saveAll(contacts()));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CONTACTS)
+  public List<Contact> single() {
+    return contacts().stream().map(contactRepository::save).toList();
+  }
+
+  private List<Contact> contacts() {
+    return IntStream.range(0, CONTACTS)
+        .mapToObj(i -> {
+          long n = sequence.incrementAndGet();
+          return Contact.builder().account(account).firstName("Contact").lastName("No. " + n)
+              .email("contact" + n + "@benchmark.test").build();
+        })
+        .toList();
+  }
+}
@@ -0,0 +1,82 @@
+package com.kvcrm.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.kvcrm.entity.Account;
+import com.kvcrm.entity.Contact;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Repository reads, each in its own read-only transaction as when called from a resource, with
+ * the second-level and query caches on and off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+  private static final int ACCOUNTS = 1_000;
+
+  private static final int CONTACTS_PER_ACCOUNT = 10;
+
+  @Param({"true", "false"})
+  public boolean cache;
+
+  private ConfigurableApplicationContext context;
+
+  private AccountRepository accountRepository;
+
+  private ContactRepository contactRepository;
+
+  private long[] contactIds;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContext.start(
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=" + cache,
+        "spring.jpa.properties.hibernate.cache.use_query_cache=" + cache);
+    accountRepository = context.getBean(AccountRepository.class);
+    contactRepository = context.getBean(ContactRepository.class);
+    contactIds = BenchmarkContext.seed(context, ACCOUNTS, CONTACTS_PER_ACCOUNT);
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public Optional<Contact> findById() {
+    return contactRepository.findById(contactIds[ThreadLocalRandom.current().nextInt(contactIds.length)]);
+  }
+
+  /**
+   * Matches the 111 accounts {@code account-7}, {@code account-70} to {@code account-79} and
+   * {@code account-700} to {@code account-799}.
+   */
+  @Benchmark
+  public List<Account> findByNameContaining() {
+    return accountRepository.findByNameContaining("account-7");
+  }
+}
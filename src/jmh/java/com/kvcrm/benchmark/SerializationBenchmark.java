@@ -0,0 +1,147 @@
+package com.kvcrm.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import com.kvcrm.repository.ContactRepository;
+import com.kvcrm.repository.OrganizationRepository;
+import com.kvcrm.web.BenchmarkPages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Serialization of contact and organization pages as written by the list endpoints: projections
+ * read through the repositories, in a {@code CursorPage} with a next cursor, written by the first
+ * of the application's message converters that writes the format, as content negotiation picks it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+  @Param({"50", "500"})
+  public int size;
+
+  @Param({"application/json", "application/x-jackson-smile", "application/cbor", "application/vnd.kvcrm.table+json"})
+  public String format;
+
+  private ConfigurableApplicationContext context;
+
+  private MediaType mediaType;
+
+  private HttpMessageConverter<Object> converter;
+
+  private final BufferedOutputMessage output = new BufferedOutputMessage();
+
+  private Object contacts;
+
+  private Object organizations;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContext.start();
+    // one more row than the page holds, so that the pages have a next cursor
+    BenchmarkContext.seed(context, 1, size + 1);
+    seedOrganizations(size + 1);
+    PageRequest page = PageRequest.of(0, size);
+    contacts = BenchmarkPages.contacts(context.getBean(ContactRepository.class)
+        .findViewsByAccountIdAndIdGreaterThan(BenchmarkContext.FIRST_ID, 0L, page));
+    organizations = BenchmarkPages.organizations(context.getBean(OrganizationRepository.class)
+        .findViewsByAccountIdAndIdGreaterThan(BenchmarkContext.FIRST_ID, 0L, page));
+    mediaType = MediaType.parseMediaType(format);
+    converter = converter(contacts.getClass(), mediaType);
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public int contacts() throws IOException {
+    return write(contacts);
+  }
+
+  @Benchmark
+  public int organizations() throws IOException {
+    return write(organizations);
+  }
+
+  private int write(Object page) throws IOException {
+    output.reset();
+    converter.write(page, mediaType, output);
+    return output.body.size();
+  }
+
+  @SuppressWarnings("unchecked")
+  private HttpMessageConverter<Object> converter(Class<?> type, MediaType mediaType) {
+    return (HttpMessageConverter<Object>) context.getBean(HttpMessageConverters.class).getConverters().stream()
+        .filter(candidate -> candidate.canWrite(type, mediaType))
+        .findFirst()
+        .orElseThrow(() -> new IllegalStateException("No converter writes " + type.getSimpleName() + " as " + mediaType));
+  }
+
+  private void seedOrganizations(int count) {
+    LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+    List<Object[]> rows = IntStream.range(0, count)
+        .mapToObj(i -> new Object[] {BenchmarkContext.FIRST_ID + i, BenchmarkContext.FIRST_ID, "Organization " + i, now})
+        .toList();
+    new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).executeWithoutResult(status ->
+        context.getBean(JdbcTemplate.class).batchUpdate("INSERT INTO organizations (id, account_id, is_deleted, name, created_at, version) "
+            + "VALUES (?, ?, false, ?, ?, 0)", rows));
+  }
+
+  /**
+   * Response kept in memory and reused across invocations, its headers set once by the first.
+   */
+  private static final class BufferedOutputMessage implements HttpOutputMessage {
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    private final HttpHeaders headers = new HttpHeaders();
+
+    void reset() {
+      body.reset();
+    }
+
+    @Override
+    public OutputStream getBody() {
+      return body;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+  }
+}
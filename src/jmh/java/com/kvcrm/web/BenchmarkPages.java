@@ -0,0 +1,23 @@
+package com.kvcrm.web;
+
+import com.kvcrm.repository.ContactView;
+import com.kvcrm.repository.OrganizationView;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Builds the package-private response bodies of the list endpoints for the benchmarks in
+ * {@code com.kvcrm.benchmark}.
+ */
+public final class BenchmarkPages {
+
+  private BenchmarkPages() {
+  }
+
+  public static Object contacts(Slice<ContactView> contacts) {
+    return CursorPage.of(contacts, ContactView::getId);
+  }
+
+  public static Object organizations(Slice<OrganizationView> organizations) {
+    return CursorPage.of(organizations, OrganizationView::getId);
+  }
+}
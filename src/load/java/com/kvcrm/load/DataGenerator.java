@@ -0,0 +1,202 @@
+package com.kvcrm.load;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.random.RandomGenerator;
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * Seeds accounts with their contacts, organizations and users in bulk.
+ *
+ * <p>Rows are generated as CSV and handed to the database in one go: streamed through
+ * {@code COPY ... FROM STDIN} on PostgreSQL, read back with {@code CSVREAD} from a temporary
+ * file on H2. Ids start at {@link #FIRST_ID}, clear of the sequences used by the application, so
+ * previously seeded rows can be told apart and removed before seeding again.
+ */
+final class DataGenerator {
+
+  static final long FIRST_ID = 1_000_000;
+
+  private static final int COPY_CHUNK = 64 * 1024;
+
+  private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+  private static final String[] TABLES = {"users", "organizations", "contacts", "accounts"};
+
+  private final DataSource dataSource;
+
+  private final String now = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS).format(TIMESTAMP);
+
+  DataGenerator(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  SeededData seed(LoadSettings settings) throws SQLException, IOException {
+    SeededData data = new SeededData(settings.accounts(), settings.contactsPerAccount(), settings.organizationsPerAccount(),
+        settings.usersPerAccount());
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      delete(connection);
+      load(connection, "accounts", "id,name,created_at,version", data.accounts(),
+          (row, line) -> line.append(FIRST_ID + row).append(",account-").append(row).append(',').append(now).append(",0"));
+      load(connection, "contacts", "id,account_id,is_deleted,first_name,last_name,email,created_at,version", data.contacts(),
+          (row, line) -> line.append(FIRST_ID + row).append(',').append(FIRST_ID + row / data.contactsPerAccount())
+              .append(",false,Contact,No. ").append(row).append(",contact").append(row).append("@load.test,")
+              .append(now).append(",0"));
+      load(connection, "organizations", "id,account_id,is_deleted,name,email,created_at,version", data.organizations(),
+          (row, line) -> line.append(FIRST_ID + row).append(',').append(FIRST_ID + row / data.organizationsPerAccount())
+              .append(",false,Organization ").append(row).append(",organization").append(row).append("@load.test,")
+              .append(now).append(",0"));
+      load(connection, "users", "id,account_id,is_deleted,first_name,last_name,email,password,owner,created_at,version", data.users(),
+          (row, line) -> line.append(FIRST_ID + row).append(',').append(FIRST_ID + row / data.usersPerAccount())
+              .append(",false,User,No. ").append(row).append(",user").append(row).append("@load.test,load-password-")
+              .append(row).append(',').append(row % data.usersPerAccount() == 0).append(',').append(now).append(",0"));
+      connection.commit();
+      analyze(connection);
+    }
+    return data;
+  }
+
+  boolean isPostgres() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      return connection.isWrapperFor(PGConnection.class);
+    }
+  }
+
+  /**
+   * Removes every seeded row, leaving the database as it was found.
+   */
+  void clean() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      delete(connection);
+      connection.commit();
+    }
+  }
+
+  private static void delete(Connection connection) throws SQLException {
+    for (String table : TABLES) {
+      try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + table + " WHERE id >= ?")) {
+        statement.setLong(1, FIRST_ID);
+        statement.executeUpdate();
+      }
+    }
+  }
+
+  private static void load(Connection connection, String table, String columns, long rows, RowWriter writer)
+      throws SQLException, IOException {
+    if (connection.isWrapperFor(PGConnection.class)) {
+      copy(connection.unwrap(PGConnection.class), table, columns, rows, writer);
+    } else {
+      csvRead(connection, table, columns, rows, writer);
+    }
+  }
+
+  private static void copy(PGConnection connection, String table, String columns, long rows, RowWriter writer) throws SQLException {
+    CopyIn copyIn = connection.getCopyAPI().copyIn("COPY " + table + " (" + columns + ") FROM STDIN (FORMAT csv)");
+    try {
+      StringBuilder chunk = new StringBuilder(COPY_CHUNK + 256);
+      for (long row = 0; row < rows; row++) {
+        writer.write(row, chunk);
+        chunk.append('\n');
+        if (chunk.length() >= COPY_CHUNK || row == rows - 1) {
+          byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+          copyIn.writeToCopy(bytes, 0, bytes.length);
+          chunk.setLength(0);
+        }
+      }
+      copyIn.endCopy();
+    } finally {
+      if (copyIn.isActive()) {
+        copyIn.cancelCopy();
+      }
+    }
+  }
+
+  private static void csvRead(Connection connection, String table, String columns, long rows, RowWriter writer)
+      throws SQLException, IOException {
+    Path file = Files.createTempFile(table, ".csv");
+    try {
+      try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+        StringBuilder line = new StringBuilder(256);
+        for (long row = 0; row < rows; row++) {
+          writer.write(row, line);
+          out.append(line).append('\n');
+          line.setLength(0);
+        }
+      }
+      // CSVREAD takes no parameters
+      try (Statement statement = connection.createStatement()) {
+        statement.executeUpdate("INSERT INTO " + table + " (" + columns + ") SELECT * FROM CSVREAD('"
+            + file.toString().replace("'", "''") + "', '" + columns + "', 'charset=UTF-8')");
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static void analyze(Connection connection) throws SQLException {
+    boolean postgres = connection.isWrapperFor(PGConnection.class);
+    connection.setAutoCommit(true);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(postgres ? "ANALYZE accounts, contacts, organizations, users" : "ANALYZE");
+    }
+  }
+
+  /**
+   * Appends the CSV fields of one generated row, without the line separator.
+   */
+  @FunctionalInterface
+  private interface RowWriter {
+
+    void write(long row, StringBuilder line);
+  }
+
+  /**
+   * Volumes of the seeded data, from which ids of existing rows are drawn.
+   */
+  record SeededData(int accounts, int contactsPerAccount, int organizationsPerAccount, int usersPerAccount) {
+
+    long contacts() {
+      return (long) accounts * contactsPerAccount;
+    }
+
+    long organizations() {
+      return (long) accounts * organizationsPerAccount;
+    }
+
+    long users() {
+      return (long) accounts * usersPerAccount;
+    }
+
+    long accountId(RandomGenerator random) {
+      return FIRST_ID + random.nextInt(accounts);
+    }
+
+    long contactRow(RandomGenerator random) {
+      return random.nextLong(contacts());
+    }
+
+    long organizationRow(RandomGenerator random) {
+      return random.nextLong(organizations());
+    }
+
+    long userRow(RandomGenerator random) {
+      return random.nextLong(users());
+    }
+  }
+}
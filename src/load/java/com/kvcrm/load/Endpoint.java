@@ -0,0 +1,94 @@
+package com.kvcrm.load;
+
+import static com.kvcrm.load.DataGenerator.FIRST_ID;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.kvcrm.load.DataGenerator.SeededData;
+
+/**
+ * An endpoint driven by the load test, with requests against randomly picked seeded rows.
+ */
+record Endpoint(String name, Supplier<HttpRequest> request) {
+
+  static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+  /**
+   * Searches ranked with {@code pg_trgm}, which H2 does not provide.
+   */
+  static final Set<String> TRIGRAM_SEARCHES = Set.of("accounts.search", "contacts.search", "organizations.search");
+
+  /**
+   * Suggestions, only served when the in-memory suggestion index is enabled.
+   */
+  static final Set<String> SUGGESTIONS = Set.of("search.suggest");
+
+  private static final String JSON = "application/json";
+
+  /**
+   * Every endpoint of the {@code /v1} API that reads or updates without removing seeded rows.
+   */
+  static Map<String, Endpoint> catalog(URI base, SeededData data) {
+    AtomicLong updates = new AtomicLong();
+    Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    for (Endpoint endpoint : List.of(
+        get(base, "accounts.get", () -> "/v1/accounts/" + data.accountId(random())),
+        get(base, "accounts.list", () -> "/v1/accounts?after=" + cursor(data.accountId(random()))),
+        get(base, "accounts.search", () -> "/v1/accounts/search?q=account-" + random().nextInt(data.accounts())),
+        get(base, "contacts.get", () -> "/v1/contacts/" + (FIRST_ID + data.contactRow(random()))),
+        get(base, "contacts.list", () -> "/v1/contacts?after=" + cursor(FIRST_ID + data.contactRow(random()))),
+        get(base, "contacts.search", () -> "/v1/contacts/search?q=contact" + data.contactRow(random())),
+        new Endpoint("contacts.update", () -> {
+          long row = data.contactRow(random());
+          String body = "{\"email\":\"contact" + row + "-" + updates.incrementAndGet() + "@load.test\"}";
+          return HttpRequest.newBuilder(base.resolve("/v1/contacts/" + (FIRST_ID + row)))
+              .timeout(TIMEOUT)
+              .header("Content-Type", JSON)
+              .header("Accept", JSON)
+              .PUT(HttpRequest.BodyPublishers.ofString(body))
+              .build();
+        }),
+        get(base, "organizations.get", () -> "/v1/organizations/" + (FIRST_ID + data.organizationRow(random()))),
+        get(base, "organizations.list", () -> "/v1/organizations?after=" + cursor(FIRST_ID + data.organizationRow(random()))),
+        get(base, "organizations.search", () -> "/v1/organizations/search?q=organization" + data.organizationRow(random())),
+        get(base, "users.get", () -> "/v1/users/" + (FIRST_ID + data.userRow(random()))),
+        get(base, "users.list", () -> "/v1/users?after=" + cursor(FIRST_ID + data.userRow(random()))),
+        get(base, "tenant.contacts", () -> "/v1/accounts/" + data.accountId(random()) + "/contacts"),
+        get(base, "tenant.organizations", () -> "/v1/accounts/" + data.accountId(random()) + "/organizations"),
+        get(base, "tenant.users", () -> "/v1/accounts/" + data.accountId(random()) + "/users"),
+        get(base, "search.suggest", () -> "/v1/search/suggest?q=contact" + data.contactRow(random())))) {
+      endpoints.put(endpoint.name(), endpoint);
+    }
+    return endpoints;
+  }
+
+  private static Endpoint get(URI base, String name, Supplier<String> path) {
+    return new Endpoint(name, () -> HttpRequest.newBuilder(base.resolve(path.get()))
+        .timeout(TIMEOUT)
+        .header("Accept", JSON)
+        .GET()
+        .build());
+  }
+
+  /**
+   * Keyset cursor resuming after the given id, in the format the API hands out as {@code next}.
+   */
+  private static String cursor(long id) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(("id:" + id).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static ThreadLocalRandom random() {
+    return ThreadLocalRandom.current();
+  }
+}
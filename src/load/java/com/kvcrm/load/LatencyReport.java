@@ -0,0 +1,87 @@
+package com.kvcrm.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency percentiles of every endpoint of a load test run, checked against their objectives.
+ */
+record LatencyReport(int rate, Duration duration, List<EndpointLatency> endpoints) {
+
+  /**
+   * Describes every objective missed by an endpoint, including its share of failed requests.
+   */
+  List<String> violations(double maxErrorRate) {
+    List<String> violations = new ArrayList<>();
+    for (EndpointLatency endpoint : endpoints) {
+      if (endpoint.count() == 0) {
+        continue;
+      }
+      check(violations, endpoint, "p50", endpoint.p50(), endpoint.slo().p50());
+      check(violations, endpoint, "p99", endpoint.p99(), endpoint.slo().p99());
+      check(violations, endpoint, "p999", endpoint.p999(), endpoint.slo().p999());
+      double errorRate = (double) endpoint.errors() / endpoint.count();
+      if (errorRate > maxErrorRate) {
+        violations.add("%s error rate %.4f exceeds %.4f".formatted(endpoint.name(), errorRate, maxErrorRate));
+      }
+    }
+    return violations;
+  }
+
+  void print(PrintStream out) {
+    out.printf("%n%d req/s for %ss%n", rate, duration.toSeconds());
+    out.printf("%-22s %8s %7s %10s %10s %10s %10s%n", "Endpoint", "Count", "Errors", "p50 (ms)", "p99 (ms)", "p999 (ms)",
+        "max (ms)");
+    for (EndpointLatency endpoint : endpoints) {
+      out.printf("%-22s %8d %7d %10.2f %10.2f %10.2f %10.2f%n", endpoint.name(), endpoint.count(), endpoint.errors(),
+          millis(endpoint.p50()), millis(endpoint.p99()), millis(endpoint.p999()), millis(endpoint.max()));
+    }
+  }
+
+  void write(Path file) throws IOException {
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    JsonMapper.builder()
+        .findAndAddModules()
+        .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .build()
+        .writeValue(file.toFile(), this);
+  }
+
+  private static void check(List<String> violations, EndpointLatency endpoint, String percentile, Duration actual, Duration limit) {
+    if (actual.compareTo(limit) > 0) {
+      violations.add("%s %s %.2fms exceeds %sms".formatted(endpoint.name(), percentile, millis(actual), limit.toMillis()));
+    }
+  }
+
+  private static double millis(Duration duration) {
+    return duration.toNanos() / 1_000_000.0;
+  }
+
+  /**
+   * Requests sent to one endpoint after the warmup, with their latency percentiles.
+   */
+  record EndpointLatency(String name, long count, long errors, Duration p50, Duration p99, Duration p999, Duration max,
+                         LoadSettings.Slo slo) {
+
+    static EndpointLatency of(String name, Histogram micros, long errors, LoadSettings.Slo slo) {
+      return new EndpointLatency(name, micros.getTotalCount(), errors,
+          Duration.ofNanos(micros.getValueAtPercentile(50.0) * 1000),
+          Duration.ofNanos(micros.getValueAtPercentile(99.0) * 1000),
+          Duration.ofNanos(micros.getValueAtPercentile(99.9) * 1000),
+          Duration.ofNanos(micros.getMaxValue() * 1000),
+          slo);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package com.kvcrm.load;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Sends requests to a weighted mix of endpoints at a fixed rate and records their latencies.
+ *
+ * <p>Requests are started on schedule whether or not earlier ones completed, each on its own
+ * virtual thread, and their latency is measured from the time they were due rather than sent. A
+ * stalled server therefore shows up in the percentiles instead of slowing the client down along
+ * with it. Requests due during the warmup are sent but not recorded.
+ */
+final class LoadDriver {
+
+  private final LoadSettings settings;
+
+  private final List<Endpoint> endpoints = new ArrayList<>();
+
+  private final int[] cumulativeWeights;
+
+  private final Map<String, Recording> recordings = new LinkedHashMap<>();
+
+  LoadDriver(LoadSettings settings, Map<String, Endpoint> catalog) {
+    this.settings = settings;
+    this.cumulativeWeights = new int[settings.mix().size()];
+    int total = 0;
+    for (Map.Entry<String, Integer> entry : settings.mix().entrySet()) {
+      Endpoint endpoint = catalog.get(entry.getKey());
+      if (endpoint == null) {
+        throw new IllegalArgumentException("Unknown endpoint " + entry.getKey() + ", expected one of " + catalog.keySet());
+      }
+      total += entry.getValue();
+      cumulativeWeights[endpoints.size()] = total;
+      endpoints.add(endpoint);
+      recordings.put(endpoint.name(), new Recording());
+    }
+  }
+
+  LatencyReport run() throws InterruptedException {
+    long interval = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+    long start = System.nanoTime();
+    long measureFrom = start + settings.warmup().toNanos();
+    long end = measureFrom + settings.duration().toNanos();
+    try (HttpClient client = HttpClient.newHttpClient();
+         ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (long due = start; due < end; due += interval) {
+        LockSupport.parkNanos(due - System.nanoTime());
+        Endpoint endpoint = pick();
+        Recording recording = due >= measureFrom ? recordings.get(endpoint.name()) : null;
+        long scheduled = due;
+        executor.execute(() -> send(client, endpoint, scheduled, recording));
+      }
+      executor.shutdown();
+      if (!executor.awaitTermination(Endpoint.TIMEOUT.toSeconds() + 1, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    }
+    List<LatencyReport.EndpointLatency> latencies = new ArrayList<>();
+    recordings.forEach((name, recording) -> latencies.add(LatencyReport.EndpointLatency.of(name, recording.histogram,
+        recording.errors.sum(), settings.slos().get(name))));
+    return new LatencyReport(settings.rate(), settings.duration(), latencies);
+  }
+
+  private Endpoint pick() {
+    int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    for (int i = 0; i < cumulativeWeights.length; i++) {
+      if (value < cumulativeWeights[i]) {
+        return endpoints.get(i);
+      }
+    }
+    throw new IllegalStateException("Weight out of range: " + value);
+  }
+
+  private static void send(HttpClient client, Endpoint endpoint, long scheduled, Recording recording) {
+    boolean failed;
+    try {
+      HttpResponse<Void> response = client.send(endpoint.request().get(), HttpResponse.BodyHandlers.discarding());
+      failed = response.statusCode() >= 400;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    } catch (Exception e) {
+      failed = true;
+    }
+    if (recording != null) {
+      recording.histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled));
+      if (failed) {
+        recording.errors.increment();
+      }
+    }
+  }
+
+  /**
+   * Latencies in microseconds and failed requests of one endpoint.
+   */
+  private static final class Recording {
+
+    private final Histogram histogram = new ConcurrentHistogram(3);
+
+    private final LongAdder errors = new LongAdder();
+  }
+}
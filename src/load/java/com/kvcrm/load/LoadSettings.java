@@ -0,0 +1,136 @@
+package com.kvcrm.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * Settings of a load test run, read from {@code load.*} system properties.
+ *
+ * <p>Latency objectives apply to every endpoint of the mix unless overridden for some of them,
+ * as in {@code -Dload.slo.overrides=contacts.search.p99=500ms,contacts.update.p50=100ms}. Blank
+ * properties take their default value.
+ *
+ * <p>{@code -Dload.suggest=false} runs without the in-memory suggestion index, which holds every
+ * contact and organization name and outgrows the heap of a local run past a million or so rows.
+ */
+record LoadSettings(int accounts,
+                    int contactsPerAccount,
+                    int organizationsPerAccount,
+                    int usersPerAccount,
+                    int rate,
+                    Duration warmup,
+                    Duration duration,
+                    Map<String, Integer> mix,
+                    Map<String, Slo> slos,
+                    double maxErrorRate,
+                    boolean suggest,
+                    Path result) {
+
+  static final String DEFAULT_MIX = "contacts.get=20,contacts.list=5,contacts.search=5,contacts.update=10,"
+      + "organizations.get=10,organizations.list=3,organizations.search=3,users.get=5,users.list=2,"
+      + "accounts.get=5,accounts.list=2,accounts.search=2,tenant.contacts=10,tenant.organizations=5,tenant.users=3,"
+      + "search.suggest=10";
+
+  private static final String PREFIX = "load.";
+
+  static LoadSettings fromSystemProperties() {
+    Slo defaultSlo = new Slo(duration("slo.p50", "50ms"), duration("slo.p99", "250ms"), duration("slo.p999", "1s"));
+    Map<String, Integer> mix = parseMix(property("mix", DEFAULT_MIX));
+    Map<String, String> overrides = parsePairs(property("slo.overrides", ""));
+    Map<String, Slo> slos = new LinkedHashMap<>();
+    mix.keySet().forEach(endpoint -> slos.put(endpoint, new Slo(
+        override(overrides, endpoint + ".p50", defaultSlo.p50()),
+        override(overrides, endpoint + ".p99", defaultSlo.p99()),
+        override(overrides, endpoint + ".p999", defaultSlo.p999()))));
+    return new LoadSettings(
+        positive("accounts", 1000),
+        positive("contacts-per-account", 50),
+        positive("organizations-per-account", 10),
+        positive("users-per-account", 5),
+        positive("rate", 200),
+        duration("warmup", "30s"),
+        duration("duration", "60s"),
+        mix,
+        slos,
+        Double.parseDouble(property("max-error-rate", "0.001")),
+        Boolean.parseBoolean(property("suggest", "true")),
+        Path.of(property("result", "target/load-test-result.json")));
+  }
+
+  /**
+   * Returns these settings with the given endpoints removed from the mix.
+   */
+  LoadSettings without(Set<String> endpoints) {
+    Map<String, Integer> remaining = new LinkedHashMap<>(mix);
+    remaining.keySet().removeAll(endpoints);
+    if (remaining.isEmpty()) {
+      throw new IllegalArgumentException("No endpoint left in the mix without " + endpoints);
+    }
+    return new LoadSettings(accounts, contactsPerAccount, organizationsPerAccount, usersPerAccount, rate, warmup, duration,
+        remaining, slos, maxErrorRate, suggest, result);
+  }
+
+  /**
+   * Parses weights of endpoints given as {@code name=weight} pairs separated by commas.
+   */
+  static Map<String, Integer> parseMix(String mix) {
+    Map<String, Integer> weights = new LinkedHashMap<>();
+    parsePairs(mix).forEach((endpoint, weight) -> {
+      if (Integer.parseInt(weight) > 0) {
+        weights.put(endpoint, Integer.parseInt(weight));
+      }
+    });
+    if (weights.isEmpty()) {
+      throw new IllegalArgumentException("Empty mix: " + mix);
+    }
+    return weights;
+  }
+
+  private static Map<String, String> parsePairs(String pairs) {
+    Map<String, String> values = new LinkedHashMap<>();
+    for (String entry : pairs.split(",")) {
+      if (entry.isBlank()) {
+        continue;
+      }
+      String[] pair = entry.strip().split("=");
+      if (pair.length != 2) {
+        throw new IllegalArgumentException("Malformed entry, expected name=value: " + entry);
+      }
+      values.put(pair[0].strip(), pair[1].strip());
+    }
+    return values;
+  }
+
+  private static String property(String name, String defaultValue) {
+    String value = System.getProperty(PREFIX + name);
+    return value == null || value.isBlank() ? defaultValue : value;
+  }
+
+  private static int positive(String name, int defaultValue) {
+    int value = Integer.parseInt(property(name, String.valueOf(defaultValue)));
+    if (value < 1) {
+      throw new IllegalArgumentException(PREFIX + name + " must be positive: " + value);
+    }
+    return value;
+  }
+
+  private static Duration duration(String name, String defaultValue) {
+    return DurationStyle.detectAndParse(property(name, defaultValue));
+  }
+
+  private static Duration override(Map<String, String> overrides, String name, Duration defaultValue) {
+    String value = overrides.get(name);
+    return value == null ? defaultValue : DurationStyle.detectAndParse(value);
+  }
+
+  /**
+   * Upper bounds of the latency percentiles of an endpoint.
+   */
+  record Slo(Duration p50, Duration p99, Duration p999) {
+  }
+}
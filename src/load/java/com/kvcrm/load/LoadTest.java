@@ -0,0 +1,79 @@
+package com.kvcrm.load;
+
+import java.net.URI;
+import java.util.List;
+import javax.sql.DataSource;
+
+import com.kvcrm.CrmApplication;
+import com.kvcrm.load.DataGenerator.SeededData;
+import com.kvcrm.search.SuggestionIndex;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Seeds the database, drives the {@code /v1} API of an embedded server with the configured mix
+ * of requests and fails when an endpoint misses its latency objectives.
+ *
+ * <p>The database is the one of the test configuration, an in-memory H2 unless
+ * {@code DATASOURCE_URL} and {@code DATASOURCE_DRIVER} point to a local PostgreSQL. Caches are
+ * enabled as in production, and requests over their SQL budget are logged instead of failed.
+ */
+public final class LoadTest {
+
+  private LoadTest() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadSettings settings = LoadSettings.fromSystemProperties();
+    List<String> violations;
+    if (!settings.suggest()) {
+      System.out.println("Skipping " + Endpoint.SUGGESTIONS + ", the suggestion index is disabled");
+      settings = settings.without(Endpoint.SUGGESTIONS);
+    }
+    try (ConfigurableApplicationContext context = start(settings)) {
+      DataGenerator generator = new DataGenerator(context.getBean(DataSource.class));
+      if (!generator.isPostgres()) {
+        System.out.println("Skipping " + Endpoint.TRIGRAM_SEARCHES + ", they need pg_trgm");
+        settings = settings.without(Endpoint.TRIGRAM_SEARCHES);
+      }
+      long seedStart = System.nanoTime();
+      SeededData data = generator.seed(settings);
+      System.out.printf("Seeded %d accounts, %d contacts, %d organizations and %d users in %d ms%n", data.accounts(),
+          data.contacts(), data.organizations(), data.users(), (System.nanoTime() - seedStart) / 1_000_000);
+      context.getBeanProvider(SuggestionIndex.class).ifAvailable(SuggestionIndex::rebuild);
+
+      URI base = URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort());
+      LatencyReport report = new LoadDriver(settings, Endpoint.catalog(base, data)).run();
+      report.print(System.out);
+      report.write(settings.result());
+      violations = report.violations(settings.maxErrorRate());
+      generator.clean();
+    }
+    if (!violations.isEmpty()) {
+      System.err.println("Latency objectives missed:");
+      violations.forEach(violation -> System.err.println("  " + violation));
+      System.exit(1);
+    }
+  }
+
+  private static ConfigurableApplicationContext start(LoadSettings settings) {
+    return new SpringApplicationBuilder(CrmApplication.class)
+        .properties(
+            "spring.main.banner-mode=off",
+            "logging.level.root=warn",
+            "server.port=0",
+            "management.server.port=",
+            "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+            "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+            "spring.jpa.properties.hibernate.jdbc.batch_size=25",
+            "spring.jpa.properties.hibernate.order_inserts=true",
+            "spring.jpa.properties.hibernate.order_updates=true",
+            "kvcrm.cache.tenant-pages.enabled=true",
+            "kvcrm.search.suggest.enabled=" + settings.suggest(),
+            // the test configuration fails requests over their SQL budget, a load run only logs them
+            "kvcrm.sql-budget.strict=false",
+            "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration")
+        .run();
+  }
+}
@@ -0,0 +1,30 @@
+package com.kvcrm.archive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Schedules the {@link SoftDeleteArchiver}, first one interval after startup.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(ArchiveProperties.class)
+@ConditionalOnProperty(prefix = "kvcrm.archive", name = "enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+class ArchiveConfig implements SchedulingConfigurer {
+
+  private final SoftDeleteArchiver archiver;
+
+  private final ArchiveProperties properties;
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar registrar) {
+    registrar.addFixedDelayTask(new FixedDelayTask(archiver::archive, properties.getInterval(), properties.getInterval()));
+  }
+}
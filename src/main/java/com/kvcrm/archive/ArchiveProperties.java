@@ -0,0 +1,39 @@
+package com.kvcrm.archive;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Moving soft-deleted contacts, organizations and users out of the live tables.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "kvcrm.archive")
+class ArchiveProperties {
+
+  private boolean enabled = true;
+
+  /**
+   * How long a soft-deleted row stays in its live table, counted from its last update.
+   */
+  private Duration retention = Duration.ofDays(30);
+
+  /**
+   * Delay between the end of one archival run and the start of the next.
+   */
+  private Duration interval = Duration.ofHours(1);
+
+  /**
+   * Rows moved per transaction, bounding how long row locks are held.
+   */
+  private int chunkSize = 500;
+
+  /**
+   * Chunks moved per table and run; the rest waits for the next run.
+   */
+  private int maxChunks = 100;
+
+}
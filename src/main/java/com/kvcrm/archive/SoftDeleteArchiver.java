@@ -0,0 +1,98 @@
+package com.kvcrm.archive;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves rows soft-deleted longer than the retention period into {@code <table>_archive}.
+ *
+ * <p>Runs every {@code kvcrm.archive.interval}, see {@link ArchiveConfig}. Each chunk is copied
+ * and deleted in its own transaction, so a run never holds more than {@code chunk-size} row locks
+ * at a time. Chunks are selected with {@code SKIP LOCKED}, which lets several instances run the
+ * job at once without waiting on, or moving, the same rows.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "kvcrm.archive", name = "enabled", havingValue = "true", matchIfMissing = true)
+class SoftDeleteArchiver {
+
+  private static final List<ArchivedTable> TABLES = List.of(
+      new ArchivedTable("contacts", "id, account_id, is_deleted, first_name, last_name, email, phone, address, city, "
+          + "region, country, postal_code, created_at, updated_at, version"),
+      new ArchivedTable("organizations", "id, account_id, is_deleted, name, email, phone, address, city, region, "
+          + "country, postal_code, created_at, updated_at, version"),
+      new ArchivedTable("users", "id, account_id, is_deleted, first_name, last_name, email, password, owner, "
+          + "photo_path, created_at, updated_at, version"));
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final ArchiveProperties properties;
+
+  SoftDeleteArchiver(NamedParameterJdbcTemplate jdbcTemplate,
+                     PlatformTransactionManager transactionManager,
+                     ArchiveProperties properties) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.properties = properties;
+  }
+
+  void archive() {
+    Instant cutoff = Instant.now().minus(properties.getRetention());
+    for (ArchivedTable table : TABLES) {
+      int archived = archive(table, cutoff);
+      if (archived > 0) {
+        log.info("Archived {} soft-deleted rows of {}", archived, table.name());
+      }
+    }
+  }
+
+  int archive(ArchivedTable table, Instant cutoff) {
+    int total = 0;
+    for (int chunk = 0; chunk < properties.getMaxChunks(); chunk++) {
+      Integer moved = transactionTemplate.execute(status -> moveChunk(table, cutoff));
+      total += moved;
+      if (moved < properties.getChunkSize()) {
+        break;
+      }
+    }
+    return total;
+  }
+
+  private int moveChunk(ArchivedTable table, Instant cutoff) {
+    List<Long> ids = jdbcTemplate.queryForList(
+        "SELECT id FROM " + table.name() + " WHERE is_deleted = true AND updated_at < :cutoff "
+            + "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+        Map.of("cutoff", utc(cutoff), "limit", properties.getChunkSize()), Long.class);
+    if (ids.isEmpty()) {
+      return 0;
+    }
+    jdbcTemplate.update(
+        "INSERT INTO " + table.name() + "_archive (" + table.columns() + ", archived_at) "
+            + "SELECT " + table.columns() + ", :now FROM " + table.name() + " WHERE id IN (:ids)",
+        Map.of("now", utc(Instant.now()), "ids", ids));
+    jdbcTemplate.update("DELETE FROM " + table.name() + " WHERE id IN (:ids)", Map.of("ids", ids));
+    return ids.size();
+  }
+
+  /**
+   * Timestamps are stored as UTC wall-clock time, see {@code hibernate.jdbc.time_zone}.
+   */
+  private static LocalDateTime utc(Instant instant) {
+    return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+  }
+
+  record ArchivedTable(String name, String columns) {
+  }
+}
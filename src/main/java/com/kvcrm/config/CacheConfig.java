@@ -1,44 +1,74 @@
 package com.kvcrm.config;
 
+import java.io.File;
+import java.net.URI;
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import com.kvcrm.entity.Account;
 import com.kvcrm.entity.Contact;
 import com.kvcrm.entity.Organization;
 import com.kvcrm.entity.User;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import com.kvcrm.repository.OrganizationRepository;
+import com.kvcrm.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
 import org.ehcache.config.builders.ExpiryPolicyBuilder;
 import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.core.internal.statistics.DefaultStatisticsService;
+import org.ehcache.core.spi.service.StatisticsService;
+import org.ehcache.core.statistics.CacheStatistics;
+import org.ehcache.core.statistics.TierStatistics;
+import org.ehcache.impl.config.persistence.DefaultPersistenceConfiguration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
 import org.ehcache.jsr107.Eh107Configuration;
 import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
 import org.iqkv.boot.cache.CacheProperties;
-import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(CacheRegionProperties.class)
 class CacheConfig {
 
-  private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+  private static final List<Class<?>> CACHED_ENTITIES = List.of(Account.class, Contact.class, Organization.class, User.class);
 
-  CacheConfig(CacheProperties cacheProperties) {
+  private static final Map<Class<?>, String> QUERY_REGIONS = Map.of(
+      Account.class, AccountRepository.QUERY_CACHE_REGION,
+      Contact.class, ContactRepository.QUERY_CACHE_REGION,
+      Organization.class, OrganizationRepository.QUERY_CACHE_REGION,
+      User.class, UserRepository.QUERY_CACHE_REGION);
+
+  private static final List<Class<?>> TENANT_SCOPED_ENTITIES = List.of(Contact.class, Organization.class, User.class);
+
+  private static final String TENANT_REGION_PREFIX = "tenant.";
+
+  private final long defaultMaxEntries;
+
+  private final long defaultTimeToLiveSeconds;
+
+  private final CacheRegionProperties cacheRegionProperties;
+
+  CacheConfig(CacheProperties cacheProperties, CacheRegionProperties cacheRegionProperties) {
     final var ehcacheProperties = cacheProperties.getEhcache();
-    jcacheConfiguration =
-        Eh107Configuration.fromEhcacheCacheConfiguration(
-            CacheConfigurationBuilder
-                .newCacheConfigurationBuilder(Object.class,
-                    Object.class,
-                    ResourcePoolsBuilder.heap(ehcacheProperties.getMaxEntries()))
-                .withExpiry(
-                    ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(
-                        ehcacheProperties.getTimeToLiveSeconds()
-                    ))
-                )
-                .build()
-        );
+    this.defaultMaxEntries = ehcacheProperties.getMaxEntries();
+    this.defaultTimeToLiveSeconds = ehcacheProperties.getTimeToLiveSeconds();
+    this.cacheRegionProperties = cacheRegionProperties;
+    cacheRegionProperties.validate();
   }
 
   @Bean
@@ -46,22 +76,124 @@ class CacheConfig {
     return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
   }
 
+  /**
+   * The disk tier needs a persistence service registered when the cache manager is created, which the
+   * JSR-107 provider only accepts through an Ehcache {@link org.ehcache.config.Configuration}, so the
+   * manager is built here instead of through a {@code JCacheManagerCustomizer}. The provider hands
+   * out one manager per URI and ignores the configuration of a manager it already holds, so every
+   * context gets a URI of its own. The statistics service goes into the same configuration, so the
+   * manager reports its regions to it as it creates them.
+   */
+  @Bean(destroyMethod = "close")
+  javax.cache.CacheManager jCacheCacheManager(StatisticsService cacheStatisticsService) {
+    EhcacheCachingProvider cachingProvider =
+        (EhcacheCachingProvider) javax.cache.Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+    ClassLoader classLoader = cachingProvider.getDefaultClassLoader();
+    CacheStatisticsServiceFactory.Configuration statistics = new CacheStatisticsServiceFactory.Configuration(cacheStatisticsService);
+    DefaultConfiguration configuration = cacheRegionProperties.usesDisk()
+        ? new DefaultConfiguration(classLoader, statistics,
+            new DefaultPersistenceConfiguration(new File(cacheRegionProperties.getPersistenceDirectory())))
+        : new DefaultConfiguration(classLoader, statistics);
+
+    javax.cache.CacheManager cm = cachingProvider.getCacheManager(
+        URI.create(cachingProvider.getDefaultURI() + ":" + UUID.randomUUID()), configuration);
+    regions().forEach((cacheName, region) -> createCache(cm, cacheName, region));
+    return cm;
+  }
+
+  /**
+   * The statistics service of the cache manager, handed to it through
+   * {@link CacheStatisticsServiceFactory} as the JSR-107 provider keeps the services of the managers
+   * it builds to itself.
+   */
+  @Bean
+  StatisticsService cacheStatisticsService() {
+    return new DefaultStatisticsService();
+  }
+
+  /**
+   * Exposes hit, miss and mapping counts for every tier of every region as {@code cache.tier.gets}
+   * and {@code cache.tier.size}; the hit ratio of a region is its hits over all its gets. Ehcache
+   * only counts tier outcomes when a region has more than one tier, so a region kept on heap alone
+   * reports the hits and misses of the whole cache for its single tier.
+   */
   @Bean
-  JCacheManagerCustomizer cacheManagerCustomizer() {
-    return cm -> {
-      createCache(cm, Account.class.getName());
-      createCache(cm, Contact.class.getName());
-      createCache(cm, Organization.class.getName());
-      createCache(cm, User.class.getName());
-    };
+  MeterBinder cacheTierMetrics(StatisticsService cacheStatisticsService) {
+    return registry -> regions().keySet().forEach(cacheName -> {
+      CacheStatistics cacheStatistics = cacheStatisticsService.getCacheStatistics(cacheName);
+      Map<String, TierStatistics> tiers = cacheStatistics.getTierStatistics();
+      boolean tiered = tiers.size() > 1;
+      tiers.forEach((tier, statistics) -> {
+        FunctionCounter.builder("cache.tier.gets", statistics, s -> tiered ? s.getHits() : cacheStatistics.getCacheHits())
+            .tags("cache", cacheName, "tier", tier, "result", "hit")
+            .description("The number of times cache lookup methods found a value in this tier")
+            .register(registry);
+        FunctionCounter.builder("cache.tier.gets", statistics, s -> tiered ? s.getMisses() : cacheStatistics.getCacheMisses())
+            .tags("cache", cacheName, "tier", tier, "result", "miss")
+            .description("The number of times cache lookup methods did not find a value in this tier")
+            .register(registry);
+        Gauge.builder("cache.tier.size", statistics, TierStatistics::getMappings)
+            .tags("cache", cacheName, "tier", tier)
+            .description("The number of entries held in this tier")
+            .register(registry);
+      });
+    });
   }
 
-  private void createCache(javax.cache.CacheManager cm, String cacheName) {
+  /**
+   * Regions by cache name: the entity regions, the query result regions named by the repositories,
+   * the account-scoped page regions, and the regions Hibernate uses for queries cached without a
+   * region and for the table modification times that invalidate cached query results.
+   *
+   * <p>Query result and page regions take their size and time to live from the region of their
+   * entity, but are kept on heap as their values are not serializable. Modification times must
+   * outlive every cached result, so that region never expires and holds one entry per table.
+   */
+  private Map<String, CacheRegionProperties.Region> regions() {
+    Map<String, CacheRegionProperties.Region> regions = new LinkedHashMap<>();
+    CACHED_ENTITIES.forEach(entityClass -> regions.put(entityClass.getName(), cacheRegionProperties.region(entityClass)));
+    CACHED_ENTITIES.forEach(entityClass -> regions.put(QUERY_REGIONS.get(entityClass), cacheRegionProperties.region(entityClass).onHeap()));
+    TENANT_SCOPED_ENTITIES.forEach(entityClass -> regions.put(TENANT_REGION_PREFIX + entityClass.getSimpleName().toLowerCase(),
+        cacheRegionProperties.region(entityClass).onHeap()));
+    regions.put(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, new CacheRegionProperties.Region());
+    CacheRegionProperties.Region timestamps = new CacheRegionProperties.Region();
+    timestamps.setMaxEntries((long) CACHED_ENTITIES.size() * 16);
+    timestamps.setTimeToLiveSeconds(0L);
+    regions.put(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, timestamps);
+    return regions;
+  }
+
+  private void createCache(javax.cache.CacheManager cm, String cacheName, CacheRegionProperties.Region region) {
     javax.cache.Cache<Object, Object> cache = cm.getCache(cacheName);
     if (cache != null) {
       cache.clear();
     } else {
-      cm.createCache(cacheName, jcacheConfiguration);
+      cm.createCache(cacheName, jcacheConfiguration(region));
+    }
+  }
+
+  private javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration(CacheRegionProperties.Region region) {
+    long maxEntries = region.getMaxEntries() != null ? region.getMaxEntries() : defaultMaxEntries;
+    long timeToLiveSeconds = region.getTimeToLiveSeconds() != null ? region.getTimeToLiveSeconds() : defaultTimeToLiveSeconds;
+
+    ResourcePoolsBuilder resourcePools = ResourcePoolsBuilder.heap(maxEntries);
+    if (region.getOffHeapMb() > 0) {
+      resourcePools = resourcePools.offheap(region.getOffHeapMb(), MemoryUnit.MB);
     }
+    if (region.getDiskMb() > 0) {
+      resourcePools = resourcePools.disk(region.getDiskMb(), MemoryUnit.MB, region.isDiskPersistent());
+    }
+
+    return Eh107Configuration.fromEhcacheCacheConfiguration(
+        CacheConfigurationBuilder
+            .newCacheConfigurationBuilder(Object.class,
+                Object.class,
+                resourcePools)
+            .withExpiry(timeToLiveSeconds > 0
+                ? ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(timeToLiveSeconds))
+                : ExpiryPolicyBuilder.noExpiration()
+            )
+            .build()
+    );
   }
 }
@@ -0,0 +1,86 @@
+package com.kvcrm.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Per region sizing of the Hibernate second-level cache, keyed by lower-case entity name.
+ * Unset values fall back to the shared {@code iqkv.cache.ehcache} defaults.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "kvcrm.cache")
+class CacheRegionProperties {
+
+  /**
+   * Root directory of the disk tier, required by any region with {@code disk-mb} set.
+   */
+  private String persistenceDirectory = System.getProperty("java.io.tmpdir") + "/kvcrm-cache";
+
+  private Map<String, Region> regions = new HashMap<>();
+
+  Region region(Class<?> entityClass) {
+    return regions.getOrDefault(entityClass.getSimpleName().toLowerCase(), new Region());
+  }
+
+  /**
+   * Fails startup for a region whose disk tier would not be larger than its off-heap tier, which
+   * Ehcache otherwise only reports once the region is first created.
+   */
+  void validate() {
+    regions.forEach((name, region) -> {
+      if (region.getDiskMb() > 0 && region.getDiskMb() <= region.getOffHeapMb()) {
+        throw new IllegalStateException("kvcrm.cache.regions." + name + ".disk-mb (" + region.getDiskMb()
+            + ") must exceed off-heap-mb (" + region.getOffHeapMb() + ")");
+      }
+    });
+  }
+
+  boolean usesDisk() {
+    return regions.values().stream().anyMatch(region -> region.getDiskMb() > 0);
+  }
+
+  @Getter
+  @Setter
+  static class Region {
+
+    /**
+     * Entries kept on the JVM heap.
+     */
+    private Long maxEntries;
+
+    /**
+     * Time to live of a cached entry, never expiring when zero.
+     */
+    private Long timeToLiveSeconds;
+
+    /**
+     * Size of the off-heap tier in megabytes, disabled when zero.
+     */
+    private long offHeapMb;
+
+    /**
+     * Size of the disk tier in megabytes, disabled when zero. Must exceed {@code off-heap-mb}.
+     */
+    private long diskMb;
+
+    /**
+     * Keep the disk tier across restarts so the region starts warm.
+     */
+    private boolean diskPersistent;
+
+    /**
+     * Same entry count and time to live, without the off-heap and disk tiers.
+     */
+    Region onHeap() {
+      Region region = new Region();
+      region.setMaxEntries(maxEntries);
+      region.setTimeToLiveSeconds(timeToLiveSeconds);
+      return region;
+    }
+  }
+}
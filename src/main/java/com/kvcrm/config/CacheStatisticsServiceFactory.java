@@ -0,0 +1,47 @@
+package com.kvcrm.config;
+
+import org.ehcache.core.internal.statistics.DefaultStatisticsService;
+import org.ehcache.core.spi.service.ServiceFactory;
+import org.ehcache.core.spi.service.StatisticsService;
+import org.ehcache.spi.service.ServiceCreationConfiguration;
+
+/**
+ * Lets a cache manager use a statistics service handed to it in its configuration. The JSR-107
+ * provider builds the Ehcache manager itself, so a service instance cannot be given to it the way
+ * {@code CacheManagerBuilder.using} does; this factory, registered through
+ * {@code META-INF/services} and ranked above the one Ehcache ships, creates the manager's
+ * statistics service from a {@link Configuration} instead. The manager then starts the service and
+ * reports every cache it creates to it, and the same instance can be read for tier statistics.
+ *
+ * <p>Managers configured without a {@link Configuration} get a statistics service of their own,
+ * as they would from Ehcache's factory.
+ */
+public class CacheStatisticsServiceFactory implements ServiceFactory<StatisticsService> {
+
+  @Override
+  public int rank() {
+    return 2;
+  }
+
+  @Override
+  public StatisticsService create(ServiceCreationConfiguration<StatisticsService, ?> configuration) {
+    return configuration instanceof Configuration given ? given.statisticsService() : new DefaultStatisticsService();
+  }
+
+  @Override
+  public Class<? extends StatisticsService> getServiceType() {
+    return DefaultStatisticsService.class;
+  }
+
+  /**
+   * The statistics service a cache manager should use.
+   */
+  public record Configuration(StatisticsService statisticsService)
+      implements ServiceCreationConfiguration<StatisticsService, Void> {
+
+    @Override
+    public Class<StatisticsService> getServiceType() {
+      return StatisticsService.class;
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.kvcrm.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.MediaType;
+
+/**
+ * Response compression in front of the API, outside of every other filter so that what they write
+ * is compressed too.
+ */
+@Configuration
+@EnableConfigurationProperties(CompressionProperties.class)
+class CompressionConfig {
+
+  @Bean
+  @ConditionalOnProperty(prefix = "kvcrm.compression", name = "enabled", havingValue = "true", matchIfMissing = true)
+  FilterRegistrationBean<CompressionFilter> compressionFilter(CompressionProperties properties) {
+    CompressionFilter filter = new CompressionFilter((int) properties.getMinResponseSize().toBytes(),
+        MediaType.parseMediaTypes(properties.getMimeTypes()));
+    FilterRegistrationBean<CompressionFilter> registration = new FilterRegistrationBean<>(filter);
+    registration.setUrlPatterns(properties.getUrlPatterns());
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 5);
+    return registration;
+  }
+}
@@ -0,0 +1,413 @@
+package com.kvcrm.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Gzips response bodies of a compressible type once they reach a minimum size, for clients
+ * accepting it.
+ *
+ * <p>Tomcat's own compression skips every response with a strong {@code ETag}, which here is every
+ * read built by {@code EntityTag}. Compressed responses instead get a {@value #ETAG_SUFFIX} suffix
+ * on their tag, as the compressed bytes are a different representation, and the suffix is removed
+ * from {@code If-None-Match} and {@code If-Match} before the request is handled so that the tags
+ * still match the stored versions.
+ *
+ * <p>The body is buffered until it reaches the minimum size or the response is committed, so the
+ * decision is made before any byte is sent. Streamed bodies are compressed with sync flushes, so
+ * every flush past the minimum size still reaches the client.
+ */
+class CompressionFilter extends OncePerRequestFilter {
+
+  static final String GZIP = "gzip";
+
+  static final String ETAG_SUFFIX = "--gzip";
+
+  private static final int GZIP_BUFFER_SIZE = 8192;
+
+  private final int minResponseSize;
+
+  private final List<MediaType> mimeTypes;
+
+  CompressionFilter(int minResponseSize, List<MediaType> mimeTypes) {
+    this.minResponseSize = minResponseSize;
+    this.mimeTypes = mimeTypes;
+  }
+
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return false;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    GzipResponse gzipResponse = WebUtils.getNativeResponse(response, GzipResponse.class);
+    if (gzipResponse == null) {
+      if (!acceptsGzip(request)) {
+        filterChain.doFilter(request, response);
+        return;
+      }
+      SuffixStrippingRequest strippingRequest = new SuffixStrippingRequest(request);
+      gzipResponse = new GzipResponse(response, strippingRequest.hadSuffix());
+      request = strippingRequest;
+    }
+    filterChain.doFilter(request, gzipResponse);
+    if (!request.isAsyncStarted()) {
+      gzipResponse.finish();
+    }
+  }
+
+  private static boolean acceptsGzip(HttpServletRequest request) {
+    for (Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING); headers.hasMoreElements(); ) {
+      for (String coding : headers.nextElement().split(",")) {
+        String[] parts = coding.split(";");
+        String name = parts[0].strip();
+        if ((GZIP.equalsIgnoreCase(name) || "*".equals(name)) && !isRefused(parts)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isRefused(String[] parameters) {
+    for (int i = 1; i < parameters.length; i++) {
+      String parameter = parameters[i].strip();
+      if (parameter.startsWith("q=")) {
+        try {
+          return Double.parseDouble(parameter.substring(2)) == 0;
+        } catch (NumberFormatException e) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static String suffixed(String tag) {
+    return tag.endsWith("\"") ? tag.substring(0, tag.length() - 1) + ETAG_SUFFIX + '"' : tag;
+  }
+
+  /**
+   * Removes the suffix of compressed representations from the entity tags a client sends back.
+   */
+  private static final class SuffixStrippingRequest extends HttpServletRequestWrapper {
+
+    private SuffixStrippingRequest(HttpServletRequest request) {
+      super(request);
+    }
+
+    boolean hadSuffix() {
+      return hasSuffix(HttpHeaders.IF_NONE_MATCH) || hasSuffix(HttpHeaders.IF_MATCH);
+    }
+
+    @Override
+    public String getHeader(String name) {
+      String value = super.getHeader(name);
+      return value != null && isConditional(name) ? strip(value) : value;
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+      Enumeration<String> values = super.getHeaders(name);
+      if (!isConditional(name)) {
+        return values;
+      }
+      return Collections.enumeration(Collections.list(values).stream().map(SuffixStrippingRequest::strip).toList());
+    }
+
+    private boolean hasSuffix(String name) {
+      return Collections.list(super.getHeaders(name)).stream().anyMatch(value -> value.contains(ETAG_SUFFIX + '"'));
+    }
+
+    private static boolean isConditional(String name) {
+      return HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name) || HttpHeaders.IF_MATCH.equalsIgnoreCase(name);
+    }
+
+    private static String strip(String value) {
+      return value.replace(ETAG_SUFFIX + '"', "\"");
+    }
+  }
+
+  /**
+   * Buffers the body until it is known whether it is worth compressing, then writes it either
+   * through a gzip stream or as is.
+   */
+  private final class GzipResponse extends HttpServletResponseWrapper {
+
+    private final boolean suffixNotModified;
+
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private long contentLength = -1;
+
+    private OutputStream target;
+
+    private GZIPOutputStream gzip;
+
+    private ServletOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    private boolean finished;
+
+    private GzipResponse(HttpServletResponse response, boolean suffixNotModified) {
+      super(response);
+      this.suffixNotModified = suffixNotModified;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+      if (writer != null) {
+        throw new IllegalStateException("getWriter() has already been called for this response");
+      }
+      if (outputStream == null) {
+        outputStream = new BufferingOutputStream();
+      }
+      return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      if (outputStream != null && writer == null) {
+        throw new IllegalStateException("getOutputStream() has already been called for this response");
+      }
+      if (writer == null) {
+        outputStream = new BufferingOutputStream();
+        writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+      }
+      return writer;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+      setContentLengthLong(length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+      if (target == null) {
+        contentLength = length;
+      } else if (gzip == null) {
+        super.setContentLengthLong(length);
+      }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+        setContentLengthLong(Long.parseLong(value));
+      } else {
+        super.setHeader(name, value);
+      }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+      if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+        setContentLengthLong(Long.parseLong(value));
+      } else {
+        super.addHeader(name, value);
+      }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+      setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+      addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      if (writer != null) {
+        writer.flush();
+      }
+      commit();
+      target.flush();
+      super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+      super.resetBuffer();
+      if (buffer != null) {
+        buffer.reset();
+      }
+    }
+
+    @Override
+    public void reset() {
+      super.reset();
+      if (buffer != null) {
+        buffer.reset();
+        contentLength = -1;
+      }
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      discard();
+      super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      discard();
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+      discard();
+      super.sendRedirect(location);
+    }
+
+    void finish() throws IOException {
+      if (finished) {
+        return;
+      }
+      if (writer != null) {
+        writer.flush();
+      }
+      commit();
+      finished = true;
+      if (gzip != null) {
+        gzip.finish();
+      }
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+      if (finished) {
+        throw new IOException("The response has already been completed");
+      }
+      if (target != null) {
+        target.write(bytes, offset, length);
+        return;
+      }
+      buffer.write(bytes, offset, length);
+      if (buffer.size() >= minResponseSize) {
+        commit();
+      }
+    }
+
+    /**
+     * Decides how the body is written, once enough of it is known, and writes what was buffered.
+     */
+    private void commit() throws IOException {
+      if (target != null) {
+        return;
+      }
+      boolean compressible = isCompressible();
+      if (compressible) {
+        super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+      }
+      if (compressible && buffer.size() >= minResponseSize) {
+        super.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        suffixTag();
+        gzip = new GZIPOutputStream(super.getOutputStream(), GZIP_BUFFER_SIZE, true);
+        target = gzip;
+      } else {
+        if (contentLength >= 0) {
+          super.setContentLengthLong(contentLength);
+        }
+        if (getStatus() == HttpServletResponse.SC_NOT_MODIFIED && suffixNotModified) {
+          suffixTag();
+        }
+        target = super.getOutputStream();
+      }
+      buffer.writeTo(target);
+      buffer = null;
+    }
+
+    /**
+     * Drops what was buffered when the container takes over the body, as for an error.
+     */
+    private void discard() {
+      if (target == null) {
+        buffer = null;
+        target = OutputStream.nullOutputStream();
+      }
+    }
+
+    private boolean isCompressible() {
+      String contentType = getContentType();
+      if (contentType == null || getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+        return false;
+      }
+      MediaType mediaType = MediaType.parseMediaType(contentType);
+      return mimeTypes.stream().anyMatch(type -> type.includes(mediaType));
+    }
+
+    private void suffixTag() {
+      String tag = getHeader(HttpHeaders.ETAG);
+      if (tag != null) {
+        super.setHeader(HttpHeaders.ETAG, suffixed(tag));
+      }
+    }
+
+    private final class BufferingOutputStream extends ServletOutputStream {
+
+      @Override
+      public void write(int b) throws IOException {
+        GzipResponse.this.write(new byte[] {(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) throws IOException {
+        GzipResponse.this.write(bytes, offset, length);
+      }
+
+      /**
+       * Flushes once it is decided how the body is written; before, the minimum size is awaited, as
+       * serializers flush after every value.
+       */
+      @Override
+      public void flush() throws IOException {
+        if (target != null && !finished) {
+          target.flush();
+        }
+      }
+
+      @Override
+      public void close() throws IOException {
+        finish();
+        GzipResponse.super.getOutputStream().close();
+      }
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+        throw new UnsupportedOperationException("Compressed responses are written blocking");
+      }
+    }
+  }
+}
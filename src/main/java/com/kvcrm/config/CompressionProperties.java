@@ -0,0 +1,35 @@
+package com.kvcrm.config;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Gzip compression of API responses for clients sending {@code Accept-Encoding: gzip}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "kvcrm.compression")
+class CompressionProperties {
+
+  private boolean enabled = true;
+
+  /**
+   * Smallest body worth compressing; smaller ones are sent as they are.
+   */
+  private DataSize minResponseSize = DataSize.ofKilobytes(2);
+
+  private List<String> mimeTypes = List.of(
+      "application/json",
+      "application/problem+json",
+      "application/x-ndjson",
+      "application/vnd.kvcrm.table+json",
+      "application/x-jackson-smile",
+      "application/cbor");
+
+  private List<String> urlPatterns = List.of("/v1/*");
+
+}
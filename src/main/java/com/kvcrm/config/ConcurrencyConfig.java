@@ -0,0 +1,50 @@
+package com.kvcrm.config;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Request and {@code @Async} execution. Setting {@code spring.threads.virtual.enabled} moves both
+ * Tomcat's request handling and the application task executor onto virtual threads; the
+ * concurrency limiter then caps how many of them reach the database at once.
+ */
+@Slf4j
+@Configuration
+@EnableAsync
+@EnableConfigurationProperties(ConcurrencyLimiterProperties.class)
+class ConcurrencyConfig {
+
+  private static final int DEFAULT_POOL_SIZE = 10;
+
+  @Bean
+  @ConditionalOnProperty(prefix = "kvcrm.concurrency.limiter", name = "enabled", havingValue = "true")
+  FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(ConcurrencyLimiterProperties properties,
+                                                                        DataSource dataSource,
+                                                                        MeterRegistry meterRegistry) {
+    int permits = properties.getPermits() > 0 ? properties.getPermits() : poolSize(dataSource);
+    log.info("Limiting {} to {} concurrent requests", properties.getUrlPatterns(), permits);
+
+    FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+        new FilterRegistrationBean<>(new ConcurrencyLimitFilter(permits, properties.getMaxWait(), meterRegistry));
+    registration.setUrlPatterns(properties.getUrlPatterns());
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+    return registration;
+  }
+
+  private static int poolSize(DataSource dataSource) {
+    HikariConfigMXBean hikari = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+    return hikari != null ? hikari.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+  }
+}
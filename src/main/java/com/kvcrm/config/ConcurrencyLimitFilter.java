@@ -0,0 +1,127 @@
+package com.kvcrm.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Lets at most a fixed number of requests run at once and parks the rest on a fair semaphore.
+ *
+ * <p>With virtual threads a parked request costs a few hundred bytes rather than a platform
+ * thread, so sizing the permits to the connection pool turns bursts into a cheap in-memory queue
+ * instead of threads blocked on, and timing out in, connection acquisition. Requests still
+ * waiting after {@code maxWait} are answered with {@code 503} and a {@code Retry-After} hint.
+ *
+ * <p>A request going asynchronous, such as a streamed export, keeps its permit until the async
+ * processing ends, as it holds its connection until then.
+ */
+class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+  private final Semaphore permits;
+
+  private final Duration maxWait;
+
+  private final Timer waitTimer;
+
+  private final Counter rejected;
+
+  ConcurrencyLimitFilter(int limit, Duration maxWait, MeterRegistry registry) {
+    this.permits = new Semaphore(limit, true);
+    this.maxWait = maxWait;
+    Gauge.builder("concurrency.limiter.limit", () -> limit)
+        .description("Requests allowed to run at once")
+        .register(registry);
+    Gauge.builder("concurrency.limiter.active", permits, semaphore -> limit - semaphore.availablePermits())
+        .description("Requests currently holding a permit")
+        .register(registry);
+    Gauge.builder("concurrency.limiter.queued", permits, Semaphore::getQueueLength)
+        .description("Requests waiting for a permit")
+        .register(registry);
+    this.waitTimer = Timer.builder("concurrency.limiter.wait")
+        .description("Time requests spent waiting for a permit")
+        .publishPercentileHistogram()
+        .register(registry);
+    this.rejected = Counter.builder("concurrency.limiter.rejected")
+        .description("Requests refused after waiting the maximum time for a permit")
+        .register(registry);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    long start = System.nanoTime();
+    boolean acquired;
+    try {
+      acquired = permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      acquired = false;
+    }
+    waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+    if (!acquired) {
+      rejected.increment();
+      response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, maxWait.toSeconds())));
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many concurrent requests");
+      return;
+    }
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new ReleasingListener());
+      } else {
+        permits.release();
+      }
+    }
+  }
+
+  /**
+   * Releases the permit of an asynchronous request once, whichever way it ends.
+   */
+  private class ReleasingListener implements AsyncListener {
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      event.getAsyncContext().addListener(this);
+    }
+
+    private void release() {
+      if (released.compareAndSet(false, true)) {
+        permits.release();
+      }
+    }
+  }
+}
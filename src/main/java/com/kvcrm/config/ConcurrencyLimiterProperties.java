@@ -0,0 +1,33 @@
+package com.kvcrm.config;
+
+import java.time.Duration;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Admission control in front of the API, meant to be enabled together with virtual threads so
+ * that requests queue on a semaphore instead of on the connection pool.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "kvcrm.concurrency.limiter")
+class ConcurrencyLimiterProperties {
+
+  private boolean enabled;
+
+  /**
+   * Requests processed at once, defaults to the maximum size of the Hikari pool when zero.
+   */
+  private int permits;
+
+  /**
+   * Longest a request waits for a permit before being answered with 503.
+   */
+  private Duration maxWait = Duration.ofSeconds(30);
+
+  private List<String> urlPatterns = List.of("/v1/*");
+
+}
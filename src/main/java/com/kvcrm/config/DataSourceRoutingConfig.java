@@ -0,0 +1,82 @@
+package com.kvcrm.config;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Read/write splitting. Only active once a replica is configured; the primary pool is then built
+ * here from {@code spring.datasource} instead of by Boot's auto-configuration.
+ *
+ * <p>The pools are deliberately not exposed as beans of their own: the datasource observation
+ * post-processor would wrap each of them and every statement would be recorded twice.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "kvcrm.datasource.replicas[0].url")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+class DataSourceRoutingConfig {
+
+  @Bean
+  @Primary
+  DataSource dataSource(DataSourceProperties primaryProperties, DataSourceRoutingProperties properties,
+                        Environment environment) {
+    HikariDataSource primary = primaryProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+
+    List<DataSource> replicas = new ArrayList<>();
+    for (DataSourceRoutingProperties.Replica replica : properties.getReplicas()) {
+      HikariDataSource pool = new HikariDataSource();
+      pool.setPoolName(primary.getPoolName() + "-replica-" + replicas.size());
+      pool.setJdbcUrl(replica.getUrl());
+      pool.setUsername(replica.getUsername());
+      pool.setPassword(replica.getPassword());
+      pool.setDriverClassName(primaryProperties.determineDriverClassName());
+      pool.setMaximumPoolSize(replica.getMaximumPoolSize());
+      pool.setAutoCommit(primary.isAutoCommit());
+      pool.setConnectionInitSql(primary.getConnectionInitSql());
+      pool.setReadOnly(true);
+      replicas.add(pool);
+    }
+    log.info("Routing read-only transactions to {} replica(s)", replicas.size());
+
+    ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replicas, properties.getStickiness());
+    routing.afterPropertiesSet();
+    LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(routing);
+    proxy.setDefaultAutoCommit(primary.isAutoCommit());
+    return proxy;
+  }
+
+  @Bean
+  PlatformTransactionManager transactionManager(
+      ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+    JpaTransactionManager transactionManager = new ReadWriteRoutingTransactionManager();
+    transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+    return transactionManager;
+  }
+
+  @Bean
+  ReplicaHealthChecker replicaHealthChecker(DataSource dataSource, DataSourceRoutingProperties properties)
+      throws SQLException {
+    return new ReplicaHealthChecker(dataSource.unwrap(ReadWriteRoutingDataSource.class),
+                                    properties.getHealthCheckInterval());
+  }
+}
@@ -0,0 +1,46 @@
+package com.kvcrm.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Read replicas that serve read-only transactions. Routing is enabled as soon as one replica is
+ * configured; writes, and reads from clients inside their stickiness window, stay on the primary.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "kvcrm.datasource")
+class DataSourceRoutingProperties {
+
+  private List<Replica> replicas = new ArrayList<>();
+
+  /**
+   * How long a client keeps reading from the primary after it wrote, so it sees its own writes
+   * despite replication lag.
+   */
+  private Duration stickiness = Duration.ofSeconds(5);
+
+  /**
+   * Interval between replica connection checks. Unhealthy replicas get no reads until they pass.
+   */
+  private Duration healthCheckInterval = Duration.ofSeconds(10);
+
+  @Getter
+  @Setter
+  static class Replica {
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    private int maximumPoolSize = 10;
+
+  }
+}
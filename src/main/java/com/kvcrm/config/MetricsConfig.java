@@ -0,0 +1,65 @@
+package com.kvcrm.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.data.DefaultRepositoryTagsProvider;
+import org.springframework.boot.actuate.metrics.data.RepositoryTagsProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.repository.Repository;
+
+/**
+ * Instrumentation on top of what Spring Boot records out of the box: the entity of every timed
+ * repository method as a tag of {@code spring.data.repository.invocations}, and the statements
+ * and rows behind every API request, checked against a {@link SqlBudget}. Hibernate statistics,
+ * including those of the second-level cache regions, are bound by {@code hibernate-micrometer}
+ * when {@code hibernate.generate_statistics} is on.
+ */
+@Configuration
+@EnableConfigurationProperties(SqlBudgetProperties.class)
+class MetricsConfig {
+
+  @Bean
+  RepositoryTagsProvider repositoryTagsProvider() {
+    DefaultRepositoryTagsProvider defaults = new DefaultRepositoryTagsProvider();
+    Map<Class<?>, String> entities = new ConcurrentHashMap<>();
+    return invocation -> Tags.of(defaults.repositoryTags(invocation))
+        .and("entity", entities.computeIfAbsent(invocation.getRepositoryInterface(), MetricsConfig::entityName));
+  }
+
+  @Bean
+  RequestJdbcListener requestJdbcListener() {
+    return new RequestJdbcListener();
+  }
+
+  @Bean
+  SqlBudget sqlBudget(SqlBudgetProperties properties) {
+    return new SqlBudget(properties);
+  }
+
+  @Bean
+  SqlBudgetEndpoint sqlBudgetEndpoint(SqlBudget sqlBudget) {
+    return new SqlBudgetEndpoint(sqlBudget);
+  }
+
+  @Bean
+  FilterRegistrationBean<RequestMetricsFilter> requestMetricsFilter(MeterRegistry meterRegistry, SqlBudget sqlBudget) {
+    FilterRegistrationBean<RequestMetricsFilter> registration =
+        new FilterRegistrationBean<>(new RequestMetricsFilter(meterRegistry, sqlBudget));
+    registration.addUrlPatterns("/v1/*");
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+    return registration;
+  }
+
+  private static String entityName(Class<?> repositoryInterface) {
+    Class<?> entity = ResolvableType.forClass(repositoryInterface).as(Repository.class).resolveGeneric(0);
+    return entity != null ? entity.getSimpleName() : "UNKNOWN";
+  }
+}
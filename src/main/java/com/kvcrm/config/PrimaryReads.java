@@ -0,0 +1,34 @@
+package com.kvcrm.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Sends the read-only transactions of a block of code on the current thread to the primary, for
+ * reads whose result outlives the request, such as cached pages, and must not lag behind a commit
+ * the way a replica can.
+ *
+ * <p>Unlike a write, this does not pin the rest of the request, or the client, to the primary.
+ */
+public final class PrimaryReads {
+
+  private static final ThreadLocal<Boolean> ACTIVE = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+  private PrimaryReads() {
+  }
+
+  public static <T> T call(Supplier<T> reads) {
+    if (ACTIVE.get()) {
+      return reads.get();
+    }
+    ACTIVE.set(Boolean.TRUE);
+    try {
+      return reads.get();
+    } finally {
+      ACTIVE.remove();
+    }
+  }
+
+  static boolean isActive() {
+    return ACTIVE.get();
+  }
+}
@@ -0,0 +1,124 @@
+package com.kvcrm.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions round-robin to healthy replicas and everything else to the primary.
+ *
+ * <p>The lookup happens when a connection is obtained, so this data source must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}. The proxy defers
+ * fetching the physical connection until the first statement runs. By then the transaction has
+ * been started and its read-only flag is visible. Connections fetched while a JPA transaction is
+ * still beginning are covered by {@link ReadWriteRoutingTransactionManager}.
+ */
+@Slf4j
+class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+  static final String PRIMARY = "primary";
+
+  private static final ThreadLocal<Boolean> BEGINNING_READ_ONLY = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+  private final DataSource primary;
+
+  private final List<DataSource> replicas;
+
+  private final Set<Integer> unhealthy = ConcurrentHashMap.newKeySet();
+
+  private final AtomicInteger next = new AtomicInteger();
+
+  private final Duration stickiness;
+
+  ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration stickiness) {
+    this.primary = primary;
+    this.replicas = List.copyOf(replicas);
+    this.stickiness = stickiness;
+
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(PRIMARY, primary);
+    IntStream.range(0, replicas.size()).forEach(index -> targets.put(replicaKey(index), replicas.get(index)));
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (!BEGINNING_READ_ONLY.get() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      if (TransactionSynchronizationManager.isActualTransactionActive()) {
+        ReadYourWrites.recordWrite(stickiness);
+      }
+      return PRIMARY;
+    }
+    if (ReadYourWrites.isPinnedToPrimary() || PrimaryReads.isActive()) {
+      return PRIMARY;
+    }
+    int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+    for (int offset = 0; offset < replicas.size(); offset++) {
+      int index = (start + offset) % replicas.size();
+      if (!unhealthy.contains(index)) {
+        return replicaKey(index);
+      }
+    }
+    return PRIMARY;
+  }
+
+  /**
+   * Marks the transaction being begun on this thread as read-only, for connections obtained before
+   * its synchronization is initialized.
+   */
+  static void beginning(boolean readOnly) {
+    if (readOnly) {
+      BEGINNING_READ_ONLY.set(Boolean.TRUE);
+    } else {
+      BEGINNING_READ_ONLY.remove();
+    }
+  }
+
+  /**
+   * Validates a connection of every replica and takes failing ones out of rotation until they
+   * pass again.
+   */
+  void checkReplicas() {
+    for (int index = 0; index < replicas.size(); index++) {
+      boolean valid;
+      try (Connection connection = replicas.get(index).getConnection()) {
+        valid = connection.isValid(5);
+      } catch (SQLException | RuntimeException e) {
+        valid = false;
+      }
+      boolean changed = valid ? unhealthy.remove(index) : unhealthy.add(index);
+      if (changed) {
+        log.warn("Replica {} is now {}", index, valid ? "healthy" : "unhealthy, routing its reads elsewhere");
+      }
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    for (DataSource target : replicas) {
+      if (target instanceof AutoCloseable closeable) {
+        closeable.close();
+      }
+    }
+    if (primary instanceof AutoCloseable closeable) {
+      closeable.close();
+    }
+  }
+
+  private static String replicaKey(int index) {
+    return "replica-" + index;
+  }
+}
@@ -0,0 +1,25 @@
+package com.kvcrm.config;
+
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+/**
+ * Makes the read-only flag of a beginning transaction visible to {@link ReadWriteRoutingDataSource}.
+ *
+ * <p>Hibernate obtains the connection of a read-only transaction while it is being begun, and the
+ * datasource observation proxy touches it right away. Both happen before Spring publishes the flag
+ * through {@code TransactionSynchronizationManager}, so the lazy connection proxy alone would route
+ * them to the primary.
+ */
+class ReadWriteRoutingTransactionManager extends JpaTransactionManager {
+
+  @Override
+  protected void doBegin(Object transaction, TransactionDefinition definition) {
+    ReadWriteRoutingDataSource.beginning(definition.isReadOnly());
+    try {
+      super.doBegin(transaction, definition);
+    } finally {
+      ReadWriteRoutingDataSource.beginning(false);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.kvcrm.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Keeps a client on the primary for a short window after it wrote.
+ *
+ * <p>The first write of a request marks the request and drops a short-lived cookie on the
+ * response; later reads in the same request, and requests carrying the cookie, are pinned to the
+ * primary until the cookie expires. Outside of a web request nothing is pinned.
+ */
+final class ReadYourWrites {
+
+  static final String COOKIE_NAME = "kvcrm-primary";
+
+  private static final String WROTE_ATTRIBUTE = ReadYourWrites.class.getName() + ".wrote";
+
+  private ReadYourWrites() {
+  }
+
+  static boolean isPinnedToPrimary() {
+    ServletRequestAttributes attributes = currentRequest();
+    if (attributes == null) {
+      return false;
+    }
+    if (attributes.getAttribute(WROTE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+      return true;
+    }
+    Cookie[] cookies = attributes.getRequest().getCookies();
+    if (cookies != null) {
+      for (Cookie cookie : cookies) {
+        if (COOKIE_NAME.equals(cookie.getName())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  static void recordWrite(Duration stickiness) {
+    ServletRequestAttributes attributes = currentRequest();
+    if (attributes == null || stickiness.isZero()
+        || attributes.getAttribute(WROTE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+      return;
+    }
+    attributes.setAttribute(WROTE_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+    HttpServletResponse response = attributes.getResponse();
+    if (response != null && !response.isCommitted()) {
+      HttpServletRequest request = attributes.getRequest();
+      Cookie cookie = new Cookie(COOKIE_NAME, "1");
+      cookie.setMaxAge((int) Math.max(1, stickiness.toSeconds()));
+      cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+      cookie.setHttpOnly(true);
+      response.addCookie(cookie);
+    }
+  }
+
+  private static ServletRequestAttributes currentRequest() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    return attributes instanceof ServletRequestAttributes servletAttributes ? servletAttributes : null;
+  }
+}
@@ -0,0 +1,32 @@
+package com.kvcrm.config;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Periodically re-validates the replicas of a {@link ReadWriteRoutingDataSource}. As the routing
+ * data source itself is hidden behind proxies, this bean also closes its pools on shutdown.
+ */
+class ReplicaHealthChecker implements DisposableBean {
+
+  private final ReadWriteRoutingDataSource dataSource;
+
+  private final ScheduledExecutorService executor =
+      Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("replica-health").factory());
+
+  ReplicaHealthChecker(ReadWriteRoutingDataSource dataSource, Duration interval) {
+    this.dataSource = dataSource;
+    long period = interval.toMillis();
+    executor.scheduleWithFixedDelay(dataSource::checkReplicas, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    executor.shutdownNow();
+    dataSource.close();
+  }
+}
@@ -0,0 +1,46 @@
+package com.kvcrm.config;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * Counts statement executions, with their SQL and elapsed time, and fetched rows into the
+ * {@link RequestMetrics} of the current request. A batch counts as one statement, like the single
+ * round trip it makes.
+ *
+ * <p>Registered as a bean, it is added to the data source proxy of {@code datasource-micrometer},
+ * which also proxies result sets so their {@code next()} calls can be seen.
+ */
+class RequestJdbcListener implements QueryExecutionListener, MethodExecutionListener {
+
+  @Override
+  public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    // counted once executed
+  }
+
+  @Override
+  public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    String sql = queryInfoList.isEmpty() ? "" : queryInfoList.getFirst().getQuery();
+    RequestMetrics.addStatement(sql, execInfo.getElapsedTime());
+  }
+
+  @Override
+  public void beforeMethod(MethodExecutionContext executionContext) {
+    // counted once executed
+  }
+
+  @Override
+  public void afterMethod(MethodExecutionContext executionContext) {
+    if (executionContext.getTarget() instanceof ResultSet
+        && "next".equals(executionContext.getMethod().getName())
+        && Boolean.TRUE.equals(executionContext.getResult())) {
+      RequestMetrics.addRowFetched();
+    }
+  }
+}
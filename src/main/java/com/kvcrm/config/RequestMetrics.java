@@ -0,0 +1,88 @@
+package com.kvcrm.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Work done for the HTTP request handled by the current thread: JDBC statements executed with
+ * the time spent in them, rows read from their result sets and rows written to the response body.
+ *
+ * <p>Only work on the request thread between the start and the end of {@link RequestMetricsFilter}
+ * is counted, so rows streamed to the response from another thread, as by the exports, are not.
+ */
+public final class RequestMetrics {
+
+  private static final ThreadLocal<RequestMetrics> CURRENT = new ThreadLocal<>();
+
+  private long statements;
+
+  private long dbTimeMillis;
+
+  private final Map<String, Integer> executions = new HashMap<>();
+
+  private long rowsFetched;
+
+  private long rowsSerialized;
+
+  private RequestMetrics() {
+  }
+
+  /**
+   * Adds rows written to the response body, when called while handling a request.
+   */
+  public static void addRowsSerialized(long rows) {
+    RequestMetrics metrics = CURRENT.get();
+    if (metrics != null) {
+      metrics.rowsSerialized += rows;
+    }
+  }
+
+  static RequestMetrics start() {
+    RequestMetrics metrics = new RequestMetrics();
+    CURRENT.set(metrics);
+    return metrics;
+  }
+
+  static void end() {
+    CURRENT.remove();
+  }
+
+  static void addStatement(String sql, long elapsedMillis) {
+    RequestMetrics metrics = CURRENT.get();
+    if (metrics != null) {
+      metrics.statements++;
+      metrics.dbTimeMillis += elapsedMillis;
+      metrics.executions.merge(sql, 1, Integer::sum);
+    }
+  }
+
+  static void addRowFetched() {
+    RequestMetrics metrics = CURRENT.get();
+    if (metrics != null) {
+      metrics.rowsFetched++;
+    }
+  }
+
+  long statements() {
+    return statements;
+  }
+
+  long dbTimeMillis() {
+    return dbTimeMillis;
+  }
+
+  /**
+   * Executions of every distinct SQL string, as sent to the driver.
+   */
+  Map<String, Integer> executions() {
+    return executions;
+  }
+
+  long rowsFetched() {
+    return rowsFetched;
+  }
+
+  long rowsSerialized() {
+    return rowsSerialized;
+  }
+}
@@ -0,0 +1,151 @@
+package com.kvcrm.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Records the {@link RequestMetrics} of every request as distribution summaries tagged like
+ * {@code http.server.requests}, so the statements and rows behind a slow endpoint can be told
+ * apart, and checks them against the {@link SqlBudget}.
+ *
+ * <p>In strict mode the budget is checked when the body is first written or the response flushed,
+ * while a request over budget can still fail with a 500 instead of the status it was about to be
+ * sent with. With {@code open-in-view} off, no statement runs once the body is being written.
+ * Responses committed without going through the wrapper, as by {@code sendError}, are only reported.
+ */
+class RequestMetricsFilter extends OncePerRequestFilter {
+
+  static final String STATEMENTS = "http.server.requests.statements";
+
+  static final String ROWS_FETCHED = "http.server.requests.rows.fetched";
+
+  static final String ROWS_SERIALIZED = "http.server.requests.rows.serialized";
+
+  private static final String UNKNOWN = "UNKNOWN";
+
+  /**
+   * Bounds the histogram buckets published along with {@code http.server.requests}.
+   */
+  private static final double MAX_EXPECTED_STATEMENTS = 1_000;
+
+  private static final double MAX_EXPECTED_ROWS = 10_000;
+
+  private final MeterRegistry registry;
+
+  private final SqlBudget sqlBudget;
+
+  RequestMetricsFilter(MeterRegistry registry, SqlBudget sqlBudget) {
+    this.registry = registry;
+    this.sqlBudget = sqlBudget;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    RequestMetrics metrics = RequestMetrics.start();
+    BudgetCheckingResponse checkingResponse = sqlBudget.isStrict() ? new BudgetCheckingResponse(request, response, metrics) : null;
+    try {
+      filterChain.doFilter(request, checkingResponse != null ? checkingResponse : response);
+    } finally {
+      RequestMetrics.end();
+    }
+    if (!request.isAsyncStarted()) {
+      record(request.getMethod(), uri(request), response.getStatus(), metrics);
+      if (checkingResponse != null) {
+        checkingResponse.checkBudget();
+      } else {
+        sqlBudget.check(request.getMethod(), uri(request), metrics);
+      }
+    }
+  }
+
+  private static String uri(HttpServletRequest request) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    return pattern != null ? pattern.toString() : UNKNOWN;
+  }
+
+  private void record(String method, String uri, int status, RequestMetrics metrics) {
+    Tags tags = Tags.of("method", method, "uri", uri, "status", String.valueOf(status));
+    DistributionSummary.builder(STATEMENTS)
+        .tags(tags)
+        .baseUnit("statements")
+        .maximumExpectedValue(MAX_EXPECTED_STATEMENTS)
+        .description("JDBC statements executed while handling a request")
+        .register(registry)
+        .record(metrics.statements());
+    DistributionSummary.builder(ROWS_FETCHED)
+        .tags(tags)
+        .baseUnit("rows")
+        .maximumExpectedValue(MAX_EXPECTED_ROWS)
+        .description("Rows read from JDBC result sets while handling a request")
+        .register(registry)
+        .record(metrics.rowsFetched());
+    DistributionSummary.builder(ROWS_SERIALIZED)
+        .tags(tags)
+        .baseUnit("rows")
+        .maximumExpectedValue(MAX_EXPECTED_ROWS)
+        .description("Rows written to the response body of a request")
+        .register(registry)
+        .record(metrics.rowsSerialized());
+  }
+
+  /**
+   * Checks the budget of the request once, before anything is sent.
+   */
+  private final class BudgetCheckingResponse extends HttpServletResponseWrapper {
+
+    private final HttpServletRequest request;
+
+    private final RequestMetrics metrics;
+
+    private boolean checked;
+
+    private BudgetCheckingResponse(HttpServletRequest request, HttpServletResponse response, RequestMetrics metrics) {
+      super(response);
+      this.request = request;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      checkBudget();
+      return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      checkBudget();
+      return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      checkBudget();
+      super.flushBuffer();
+    }
+
+    void checkBudget() {
+      if (checked) {
+        return;
+      }
+      checked = true;
+      if (isCommitted()) {
+        sqlBudget.report(request.getMethod(), uri(request), metrics);
+      } else {
+        sqlBudget.check(request.getMethod(), uri(request), metrics);
+      }
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.kvcrm.config;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Checks the SQL executed by every request against the {@link SqlBudgetProperties}, logging
+ * requests over budget with their most executed statements and keeping the worst request of every
+ * endpoint for the {@code sqlbudget} actuator endpoint.
+ *
+ * <p>Statements are normalized before being counted, so executions differing only in literals or
+ * in the length of a padded {@code IN} list add up as the same statement.
+ */
+@Slf4j
+class SqlBudget {
+
+  private static final int REPORTED_STATEMENTS = 5;
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+  private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+  private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+  private final SqlBudgetProperties properties;
+
+  private final Map<String, Offender> offenders = new ConcurrentHashMap<>();
+
+  SqlBudget(SqlBudgetProperties properties) {
+    this.properties = properties;
+  }
+
+  /**
+   * Reports the request when over budget, failing it in strict mode.
+   */
+  void check(String method, String uri, RequestMetrics metrics) {
+    List<String> violations = report(method, uri, metrics);
+    if (!violations.isEmpty() && properties.isStrict()) {
+      throw new IllegalStateException("SQL budget exceeded by " + method + " " + uri + ": " + String.join(", ", violations));
+    }
+  }
+
+  /**
+   * Reports the request when over budget, returning what it exceeded, empty when within budget.
+   */
+  List<String> report(String method, String uri, RequestMetrics metrics) {
+    if (!properties.isEnabled()) {
+      return List.of();
+    }
+    List<StatementCount> statements = statements(metrics.executions());
+    List<String> violations = new ArrayList<>();
+    if (metrics.statements() > properties.getMaxStatements()) {
+      violations.add("%d statements > %d".formatted(metrics.statements(), properties.getMaxStatements()));
+    }
+    if (metrics.dbTimeMillis() > properties.getMaxDbTime().toMillis()) {
+      violations.add("%d ms > %d ms".formatted(metrics.dbTimeMillis(), properties.getMaxDbTime().toMillis()));
+    }
+    if (!statements.isEmpty() && statements.getFirst().count() > properties.getMaxRepeatedStatements()) {
+      violations.add("%d executions of [%s] > %d".formatted(statements.getFirst().count(), statements.getFirst().sql(),
+          properties.getMaxRepeatedStatements()));
+    }
+    if (violations.isEmpty()) {
+      return violations;
+    }
+
+    List<StatementCount> reported = statements.subList(0, Math.min(REPORTED_STATEMENTS, statements.size()));
+    log.atWarn()
+        .addKeyValue("method", method)
+        .addKeyValue("uri", uri)
+        .addKeyValue("statements", metrics.statements())
+        .addKeyValue("dbTimeMs", metrics.dbTimeMillis())
+        .addKeyValue("topStatements", reported)
+        .log("SQL budget exceeded by {} {}: {}", method, uri, String.join(", ", violations));
+    Offender offender = new Offender(method, uri, 1, metrics.statements(), metrics.dbTimeMillis(), List.copyOf(reported), Instant.now());
+    offenders.merge(method + " " + uri, offender, Offender::merge);
+    return violations;
+  }
+
+  boolean isStrict() {
+    return properties.isEnabled() && properties.isStrict();
+  }
+
+  /**
+   * Endpoints that went over budget, those executing the most statements first.
+   */
+  List<Offender> offenders() {
+    return offenders.values().stream()
+        .sorted(Comparator.comparingLong(Offender::maxStatements).thenComparingLong(Offender::maxDbTimeMillis).reversed())
+        .limit(properties.getOffenders())
+        .toList();
+  }
+
+  void reset() {
+    offenders.clear();
+  }
+
+  static String normalize(String sql) {
+    String normalized = WHITESPACE.matcher(sql.strip()).replaceAll(" ");
+    normalized = STRING_LITERAL.matcher(normalized).replaceAll("?");
+    normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+    return IN_LIST.matcher(normalized).replaceAll("in (?)");
+  }
+
+  private static List<StatementCount> statements(Map<String, Integer> executions) {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    executions.forEach((sql, count) -> counts.merge(normalize(sql), count, Integer::sum));
+    return counts.entrySet().stream()
+        .map(entry -> new StatementCount(entry.getKey(), entry.getValue()))
+        .sorted(Comparator.comparingInt(StatementCount::count).reversed())
+        .toList();
+  }
+
+  /**
+   * Executions of one normalized statement within a request.
+   */
+  record StatementCount(String sql, int count) {
+  }
+
+  /**
+   * An endpoint over budget: how often it was, and the statements of its worst request.
+   */
+  record Offender(String method, String uri, long violations, long maxStatements, long maxDbTimeMillis,
+                  List<StatementCount> topStatements, Instant lastSeen) {
+
+    Offender merge(Offender latest) {
+      boolean worse = latest.maxStatements > maxStatements;
+      return new Offender(method, uri, violations + latest.violations,
+          Math.max(maxStatements, latest.maxStatements),
+          Math.max(maxDbTimeMillis, latest.maxDbTimeMillis),
+          worse ? latest.topStatements : topStatements,
+          latest.lastSeen);
+    }
+  }
+}
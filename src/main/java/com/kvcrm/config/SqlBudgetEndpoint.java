@@ -0,0 +1,30 @@
+package com.kvcrm.config;
+
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Lists the endpoints whose requests went over their SQL budget, worst first.
+ */
+@Endpoint(id = "sqlbudget")
+class SqlBudgetEndpoint {
+
+  private final SqlBudget sqlBudget;
+
+  SqlBudgetEndpoint(SqlBudget sqlBudget) {
+    this.sqlBudget = sqlBudget;
+  }
+
+  @ReadOperation
+  public List<SqlBudget.Offender> offenders() {
+    return sqlBudget.offenders();
+  }
+
+  @DeleteOperation
+  public void reset() {
+    sqlBudget.reset();
+  }
+}
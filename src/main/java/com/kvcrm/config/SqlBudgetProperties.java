@@ -0,0 +1,41 @@
+package com.kvcrm.config;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Limits on the SQL a single API request may execute before it is reported as an offender.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "kvcrm.sql-budget")
+class SqlBudgetProperties {
+
+  private boolean enabled = true;
+
+  private int maxStatements = 25;
+
+  /**
+   * Time spent executing statements, not counting the reading of their results.
+   */
+  private Duration maxDbTime = Duration.ofMillis(500);
+
+  /**
+   * Executions of the same statement, as an N+1 fan-out over the rows of a previous one does.
+   */
+  private int maxRepeatedStatements = 10;
+
+  /**
+   * Fails requests over budget instead of only reporting them, meant for tests.
+   */
+  private boolean strict;
+
+  /**
+   * Endpoints kept by the {@code sqlbudget} actuator endpoint.
+   */
+  private int offenders = 20;
+
+}
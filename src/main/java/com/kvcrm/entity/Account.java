@@ -1,5 +1,6 @@
 package com.kvcrm.entity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityListeners;
@@ -10,6 +11,7 @@ import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Size;
 import java.time.Instant;
 
@@ -21,11 +23,15 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @Builder
@@ -35,7 +41,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @EqualsAndHashCode(of = {"id", "name"})
 @ToString(onlyExplicitlyIncluded = true)
 @EntityListeners(AuditingEntityListener.class)
-public class Account {
+public class Account implements Versioned {
 
   protected static final String TABLE_NAME = "accounts";
 
@@ -44,7 +50,7 @@ public class Account {
       name = "account_id_seq",
       sequenceName = "account_id_seq",
       initialValue = 1,
-      allocationSize = 1
+      allocationSize = SequenceAllocation.SIZE
   )
   @GeneratedValue(
       strategy = GenerationType.SEQUENCE,
@@ -53,6 +59,10 @@ public class Account {
   @ToString.Include
   private Long id;
 
+  @Version
+  @ToString.Include
+  private Long version;
+
   @Size(min = 2, max = 120)
   @Column(length = 120, unique = true)
   @ToString.Include
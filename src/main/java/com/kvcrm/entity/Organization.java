@@ -1,8 +1,10 @@
 package com.kvcrm.entity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityListeners;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -12,10 +14,13 @@ import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Size;
 import java.time.Instant;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -24,6 +29,11 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.ResultCheckStyle;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.SQLRestriction;
 import org.springframework.data.annotation.CreatedDate;
@@ -31,6 +41,9 @@ import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
 @Getter
 @Setter
 @Builder
@@ -40,28 +53,34 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @EqualsAndHashCode(of = {"id", "name"})
 @ToString(onlyExplicitlyIncluded = true)
 @EntityListeners(AuditingEntityListener.class)
-@SQLDelete(sql = "UPDATE " + Organization.TABLE_NAME + "  SET is_deleted = true WHERE id = ?")
+@SQLDelete(sql = "UPDATE " + Organization.TABLE_NAME + " SET is_deleted = true, updated_at = CURRENT_TIMESTAMP, version = version + 1 "
+    + "WHERE id = ? AND version = ?", check = ResultCheckStyle.COUNT)
 @SQLRestriction(" is_deleted = false ")
-public class Organization {
+public class Organization implements Versioned {
 
-  protected static final String TABLE_NAME = "contacts";
+  protected static final String TABLE_NAME = "organizations";
 
   @Id
   @SequenceGenerator(
-      name = "contact_id_seq",
-      sequenceName = "contact_id_seq",
+      name = "organization_id_seq",
+      sequenceName = "organization_id_seq",
       initialValue = 1,
-      allocationSize = 1
+      allocationSize = SequenceAllocation.SIZE
   )
   @GeneratedValue(
       strategy = GenerationType.SEQUENCE,
-      generator = "contact_id_seq"
+      generator = "organization_id_seq"
   )
   @ToString.Include
   private Long id;
 
-  @ManyToOne
+  @Version
+  @ToString.Include
+  private Long version;
+
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "account_id")
+  @JsonIgnore
   private Account account;
 
   @Builder.Default
@@ -122,4 +141,17 @@ public class Organization {
   @ToString.Include
   private Instant updatedAt;
 
+  public Long getAccountId() {
+    return account == null ? null : account.getId();
+  }
+
+  /**
+   * The owning account, serialized only when it was fetched together with this entity.
+   */
+  @JsonProperty("account")
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  Account getFetchedAccount() {
+    return Hibernate.isInitialized(account) ? (Account) Hibernate.unproxy(account) : null;
+  }
+
 }
@@ -0,0 +1,18 @@
+package com.kvcrm.entity;
+
+/**
+ * Block size of the identifier sequences.
+ *
+ * <p>Hibernate hands out this many identifiers per {@code nextval} with its pooled optimizer, which
+ * relies on the database sequence advancing by the same amount. Change it together with the
+ * increment of the sequences, through a new Liquibase changeset. Hibernate compares both when it
+ * starts, and {@code hibernate.id.sequence.increment_size_mismatch_strategy} is pinned to
+ * {@code exception} so that a mismatch fails startup rather than silently reusing identifiers.
+ */
+final class SequenceAllocation {
+
+  static final int SIZE = 50;
+
+  private SequenceAllocation() {
+  }
+}
@@ -1,8 +1,10 @@
 package com.kvcrm.entity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityListeners;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -12,11 +14,13 @@ import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Size;
 import java.time.Instant;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -25,6 +29,11 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.ResultCheckStyle;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.SQLRestriction;
 import org.springframework.data.annotation.CreatedDate;
@@ -32,6 +41,9 @@ import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
 @Getter
 @Setter
 @Builder
@@ -41,9 +53,10 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @EqualsAndHashCode(of = {"id", "email", "firstName", "lastName"})
 @ToString(onlyExplicitlyIncluded = true)
 @EntityListeners(AuditingEntityListener.class)
-@SQLDelete(sql = "UPDATE " + User.TABLE_NAME + "  SET is_deleted = true WHERE id = ?")
+@SQLDelete(sql = "UPDATE " + User.TABLE_NAME + " SET is_deleted = true, updated_at = CURRENT_TIMESTAMP, version = version + 1 "
+    + "WHERE id = ? AND version = ?", check = ResultCheckStyle.COUNT)
 @SQLRestriction(" is_deleted = false ")
-public class User {
+public class User implements Versioned {
 
   protected static final String TABLE_NAME = "users";
 
@@ -52,7 +65,7 @@ public class User {
       name = "user_id_seq",
       sequenceName = "user_id_seq",
       initialValue = 1,
-      allocationSize = 1
+      allocationSize = SequenceAllocation.SIZE
   )
   @GeneratedValue(
       strategy = GenerationType.SEQUENCE,
@@ -61,8 +74,13 @@ public class User {
   @ToString.Include
   private Long id;
 
-  @ManyToOne
+  @Version
+  @ToString.Include
+  private Long version;
+
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "account_id")
+  @JsonIgnore
   private Account account;
 
   @Builder.Default
@@ -111,4 +129,17 @@ public class User {
   @ToString.Include
   private Instant updatedAt;
 
+  public Long getAccountId() {
+    return account == null ? null : account.getId();
+  }
+
+  /**
+   * The owning account, serialized only when it was fetched together with this entity.
+   */
+  @JsonProperty("account")
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  Account getFetchedAccount() {
+    return Hibernate.isInitialized(account) ? (Account) Hibernate.unproxy(account) : null;
+  }
+
 }
@@ -0,0 +1,17 @@
+package com.kvcrm.entity;
+
+import java.time.Instant;
+
+/**
+ * Identity, optimistic lock version and last modification time of an entity or one of its views,
+ * the values HTTP validators are derived from.
+ */
+public interface Versioned {
+
+  Long getId();
+
+  Long getVersion();
+
+  Instant getUpdatedAt();
+
+}
@@ -1,16 +1,51 @@
 package com.kvcrm.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+
+import jakarta.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
 
 import com.kvcrm.entity.Account;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface AccountRepository
     extends PagingAndSortingRepository<Account, Long>, JpaRepository<Account, Long> {
 
+  String QUERY_CACHE_REGION = "query.account";
+
+  /**
+   * Reads the account to update from the primary, see {@link ContactRepository#findForWriteById}.
+   */
+  @Transactional
+  Optional<Account> findForWriteById(Long id);
+
+  @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
   List<Account> findByNameContaining(String name);
 
+  @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
+  Slice<Account> findByIdGreaterThan(Long id, Pageable pageable);
+
+  @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
+  Slice<Account> findByNameContainingAndIdGreaterThan(String name, Long id, Pageable pageable);
+
+  @Query(value = """
+      SELECT * FROM accounts
+      WHERE name ILIKE :pattern
+      ORDER BY similarity(name, :term) DESC, id
+      LIMIT :limit
+      """, nativeQuery = true)
+  List<Account> searchByName(@Param("term") String term, @Param("pattern") String pattern, @Param("limit") int limit);
+
 }
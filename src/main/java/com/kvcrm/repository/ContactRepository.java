@@ -1,12 +1,88 @@
 package com.kvcrm.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 import com.kvcrm.entity.Contact;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface ContactRepository
-    extends PagingAndSortingRepository<Contact, Long>, JpaRepository<Contact, Long> {
+    extends PagingAndSortingRepository<Contact, Long>, JpaRepository<Contact, Long>, SoftDeleteRepository {
+
+  String QUERY_CACHE_REGION = "query.contact";
+
+  String SELECT_VIEW = """
+      select c.id as id, c.version as version, c.account.id as accountId, c.firstName as firstName, c.lastName as lastName,
+             c.phone as phone, c.address as address, c.city as city, c.region as region, c.country as country,
+             c.postalCode as postalCode, c.email as email, c.createdAt as createdAt, c.updatedAt as updatedAt
+      from Contact c
+      """;
+
+  /**
+   * Loads the contact an update is applied to in a read-write transaction, so it comes from the
+   * primary: a replica may lag behind and hand out a version the write would then fail on.
+   */
+  @Transactional
+  Optional<Contact> findForWriteById(Long id);
+
+  @EntityGraph(attributePaths = "account")
+  Optional<Contact> findWithAccountById(Long id);
+
+  @EntityGraph(attributePaths = "account")
+  @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
+  Slice<Contact> findWithAccountByIdGreaterThan(Long id, Pageable pageable);
+
+  @Query(SELECT_VIEW + "where c.id = :id")
+  Optional<ContactView> findViewById(@Param("id") Long id);
+
+  @Query("select c.id as id, c.version as version, c.updatedAt as updatedAt from Contact c where c.id = :id")
+  Optional<VersionView> findVersionById(@Param("id") Long id);
+
+  @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
+  @Query(SELECT_VIEW + "where c.id > :id")
+  Slice<ContactView> findViewsByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+  @Query(SELECT_VIEW + "where c.account.id = :accountId and c.id > :id")
+  Slice<ContactView> findViewsByAccountIdAndIdGreaterThan(@Param("accountId") Long accountId, @Param("id") Long id, Pageable pageable);
+
+  @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+  @Query(SELECT_VIEW + "order by c.id")
+  Stream<ContactView> streamAll();
+
+  @Query(value = "SELECT id FROM contacts WHERE account_id = :accountId AND is_deleted = true", nativeQuery = true)
+  List<Long> findDeletedIdsByAccountId(@Param("accountId") Long accountId);
+
+  @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+  @Query("select c.id as id, concat(coalesce(c.firstName, ''), ' ', coalesce(c.lastName, ''), ' ', coalesce(c.email, '')) as text from Contact c")
+  Stream<IndexedText> streamIndexedText();
+
+  @Query(value = """
+      SELECT id, version, account_id AS "accountId", first_name AS "firstName", last_name AS "lastName", phone, address, city,
+             region, country, postal_code AS "postalCode", email, created_at AS "createdAt", updated_at AS "updatedAt"
+      FROM contacts
+      WHERE is_deleted = false
+        AND (first_name ILIKE :pattern OR last_name ILIKE :pattern OR email ILIKE :pattern)
+      ORDER BY greatest(similarity(first_name, :term), similarity(last_name, :term), similarity(email, :term)) DESC, id
+      LIMIT :limit
+      """, nativeQuery = true)
+  List<ContactView> searchByNameOrEmail(@Param("term") String term, @Param("pattern") String pattern, @Param("limit") int limit);
 
 }
@@ -0,0 +1,50 @@
+package com.kvcrm.repository;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.kvcrm.entity.Versioned;
+
+/**
+ * Read-only view of a contact, selected column by column so the owning account is referenced
+ * by id instead of being loaded alongside every row.
+ */
+@JsonPropertyOrder({"id", "version", "accountId", "firstName", "lastName", "phone", "address",
+    "city", "region", "country", "postalCode", "email", "created_at", "updated_at"})
+public interface ContactView extends Versioned {
+
+  @Override
+  Long getId();
+
+  @Override
+  Long getVersion();
+
+  Long getAccountId();
+
+  String getFirstName();
+
+  String getLastName();
+
+  String getPhone();
+
+  String getAddress();
+
+  String getCity();
+
+  String getRegion();
+
+  String getCountry();
+
+  String getPostalCode();
+
+  String getEmail();
+
+  @JsonProperty("created_at")
+  Instant getCreatedAt();
+
+  @Override
+  @JsonProperty("updated_at")
+  Instant getUpdatedAt();
+
+}
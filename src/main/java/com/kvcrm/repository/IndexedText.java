@@ -0,0 +1,13 @@
+package com.kvcrm.repository;
+
+/**
+ * Identifier and searchable text of an entity, used to build in-memory search indexes
+ * without loading the entities themselves.
+ */
+public interface IndexedText {
+
+  Long getId();
+
+  String getText();
+
+}
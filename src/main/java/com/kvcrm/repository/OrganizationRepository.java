@@ -1,12 +1,87 @@
 package com.kvcrm.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 import com.kvcrm.entity.Organization;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface OrganizationRepository
-    extends PagingAndSortingRepository<Organization, Long>, JpaRepository<Organization, Long> {
+    extends PagingAndSortingRepository<Organization, Long>, JpaRepository<Organization, Long>, SoftDeleteRepository {
+
+  String QUERY_CACHE_REGION = "query.organization";
+
+  String SELECT_VIEW = """
+      select o.id as id, o.version as version, o.account.id as accountId, o.name as name, o.phone as phone, o.address as address,
+             o.city as city, o.region as region, o.country as country, o.postalCode as postalCode, o.email as email,
+             o.createdAt as createdAt, o.updatedAt as updatedAt
+      from Organization o
+      """;
+
+  /**
+   * Reads the organization to update from the primary, see {@link ContactRepository#findForWriteById}.
+   */
+  @Transactional
+  Optional<Organization> findForWriteById(Long id);
+
+  @EntityGraph(attributePaths = "account")
+  Optional<Organization> findWithAccountById(Long id);
+
+  @EntityGraph(attributePaths = "account")
+  @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
+  Slice<Organization> findWithAccountByIdGreaterThan(Long id, Pageable pageable);
+
+  @Query(SELECT_VIEW + "where o.id = :id")
+  Optional<OrganizationView> findViewById(@Param("id") Long id);
+
+  @Query("select o.id as id, o.version as version, o.updatedAt as updatedAt from Organization o where o.id = :id")
+  Optional<VersionView> findVersionById(@Param("id") Long id);
+
+  @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
+  @Query(SELECT_VIEW + "where o.id > :id")
+  Slice<OrganizationView> findViewsByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+  @Query(SELECT_VIEW + "where o.account.id = :accountId and o.id > :id")
+  Slice<OrganizationView> findViewsByAccountIdAndIdGreaterThan(@Param("accountId") Long accountId, @Param("id") Long id, Pageable pageable);
+
+  @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+  @Query(SELECT_VIEW + "order by o.id")
+  Stream<OrganizationView> streamAll();
+
+  @Query(value = "SELECT id FROM organizations WHERE account_id = :accountId AND is_deleted = true", nativeQuery = true)
+  List<Long> findDeletedIdsByAccountId(@Param("accountId") Long accountId);
+
+  @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+  @Query("select o.id as id, o.name as text from Organization o")
+  Stream<IndexedText> streamIndexedText();
+
+  @Query(value = """
+      SELECT id, version, account_id AS "accountId", name, phone, address, city, region, country, postal_code AS "postalCode",
+             email, created_at AS "createdAt", updated_at AS "updatedAt"
+      FROM organizations
+      WHERE is_deleted = false
+        AND name ILIKE :pattern
+      ORDER BY similarity(name, :term) DESC, id
+      LIMIT :limit
+      """, nativeQuery = true)
+  List<OrganizationView> searchByName(@Param("term") String term, @Param("pattern") String pattern, @Param("limit") int limit);
 
 }
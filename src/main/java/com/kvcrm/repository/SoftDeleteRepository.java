@@ -0,0 +1,39 @@
+package com.kvcrm.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Set-based soft deletes for account-owned entities flagged by {@code is_deleted}.
+ *
+ * <p>Unlike {@code deleteById}, which loads every entity before issuing its {@code @SQLDelete},
+ * these run a single {@code UPDATE} per call. They bump the version like any other change so
+ * outstanding ETags stop matching. Bulk updates bypass Hibernate's entity events; callers publish
+ * a {@link SoftDeletedEvent} for listeners that need to know.
+ */
+@NoRepositoryBean
+public interface SoftDeleteRepository {
+
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("""
+      update #{#entityName} e set e.isDeleted = true, e.updatedAt = :now, e.version = e.version + 1
+      where e.id in :ids and e.isDeleted = false
+      """)
+  int softDeleteByIdIn(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("""
+      update #{#entityName} e set e.isDeleted = true, e.updatedAt = :now, e.version = e.version + 1
+      where e.account.id = :accountId and e.isDeleted = false
+      """)
+  int softDeleteByAccountId(@Param("accountId") Long accountId, @Param("now") Instant now);
+
+}
@@ -0,0 +1,31 @@
+package com.kvcrm.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published inside the transaction of a {@link SoftDeleteRepository} bulk delete.
+ *
+ * <p>A delete by account carries no identifiers: collecting them would cost a query over the whole
+ * account, and rows inserted between that query and the delete would be missed anyway. Listeners
+ * that need them read the deleted rows of the account once the delete has committed.
+ *
+ * @param entityType type of the deleted entities
+ * @param ids        identifiers the delete applied to, some of which may not have been live; empty
+ *                   when it applied to a whole account
+ * @param accountId  account whose entities were all deleted, or {@code null} for a delete by ids
+ */
+public record SoftDeletedEvent(Class<?> entityType, Collection<Long> ids, Long accountId) {
+
+  public static SoftDeletedEvent ofIds(Class<?> entityType, Collection<Long> ids) {
+    return new SoftDeletedEvent(entityType, ids, null);
+  }
+
+  public static SoftDeletedEvent ofAccount(Class<?> entityType, long accountId) {
+    return new SoftDeletedEvent(entityType, List.of(), accountId);
+  }
+
+  public boolean isAccountScoped() {
+    return accountId != null;
+  }
+}
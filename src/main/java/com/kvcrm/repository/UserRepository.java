@@ -1,12 +1,61 @@
 package com.kvcrm.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+
+import jakarta.persistence.QueryHint;
+import java.util.Optional;
+
 import com.kvcrm.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface UserRepository
-    extends PagingAndSortingRepository<User, Long>, JpaRepository<User, Long> {
+    extends PagingAndSortingRepository<User, Long>, JpaRepository<User, Long>, SoftDeleteRepository {
+
+  String QUERY_CACHE_REGION = "query.user";
+
+  String SELECT_VIEW = """
+      select u.id as id, u.version as version, u.account.id as accountId, coalesce(u.owner, false) as owner,
+             u.firstName as firstName, u.lastName as lastName, u.email as email, u.photoPath as photoPath,
+             u.createdAt as createdAt, u.updatedAt as updatedAt
+      from User u
+      """;
+
+  /**
+   * Reads the user to update from the primary, see {@link ContactRepository#findForWriteById}.
+   */
+  @Transactional
+  Optional<User> findForWriteById(Long id);
+
+  @EntityGraph(attributePaths = "account")
+  Optional<User> findWithAccountById(Long id);
+
+  @EntityGraph(attributePaths = "account")
+  @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
+  Slice<User> findWithAccountByIdGreaterThan(Long id, Pageable pageable);
+
+  @Query(SELECT_VIEW + "where u.id = :id")
+  Optional<UserView> findViewById(@Param("id") Long id);
+
+  @Query("select u.id as id, u.version as version, u.updatedAt as updatedAt from User u where u.id = :id")
+  Optional<VersionView> findVersionById(@Param("id") Long id);
+
+  @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
+  @Query(SELECT_VIEW + "where u.id > :id")
+  Slice<UserView> findViewsByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+  @Query(SELECT_VIEW + "where u.account.id = :accountId and u.id > :id")
+  Slice<UserView> findViewsByAccountIdAndIdGreaterThan(@Param("accountId") Long accountId, @Param("id") Long id, Pageable pageable);
 
 }
@@ -0,0 +1,41 @@
+package com.kvcrm.repository;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.kvcrm.entity.Versioned;
+
+/**
+ * Read-only view of a user, selected column by column so the owning account is referenced
+ * by id instead of being loaded alongside every row. The password is never selected.
+ */
+@JsonPropertyOrder({"id", "version", "accountId", "owner", "firstName", "lastName", "email", "photoPath", "created_at", "updated_at"})
+public interface UserView extends Versioned {
+
+  @Override
+  Long getId();
+
+  @Override
+  Long getVersion();
+
+  Long getAccountId();
+
+  boolean isOwner();
+
+  String getFirstName();
+
+  String getLastName();
+
+  String getEmail();
+
+  String getPhotoPath();
+
+  @JsonProperty("created_at")
+  Instant getCreatedAt();
+
+  @Override
+  @JsonProperty("updated_at")
+  Instant getUpdatedAt();
+
+}
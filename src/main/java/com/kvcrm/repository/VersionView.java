@@ -0,0 +1,10 @@
+package com.kvcrm.repository;
+
+import com.kvcrm.entity.Versioned;
+
+/**
+ * Identity, version and last modification time of a stored entity, selected without loading it
+ * to evaluate HTTP preconditions.
+ */
+public interface VersionView extends Versioned {
+}
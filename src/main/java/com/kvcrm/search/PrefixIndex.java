@@ -0,0 +1,395 @@
+package com.kvcrm.search;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.regex.Pattern;
+
+/**
+ * Concurrent prefix index from normalized tokens to sorted {@code long} identifier arrays.
+ *
+ * <p>Tokens live in a sorted skip list, so every token starting with a prefix is one contiguous
+ * range. Posting lists are copy-on-write primitive arrays, which keeps them compact and lets
+ * lookups run without locking while entities are being reindexed. A token shared by more than
+ * {@code maxPostings} identifiers, such as the {@code com} or {@code gmail} of email addresses,
+ * becomes a stop token: its posting list is dropped, and it no longer matches as a prefix.
+ *
+ * <p>Bulk loads go through a {@link Builder}, which collects postings unsorted and sorts each of
+ * them once, instead of copying a posting list for every identifier added to it.
+ */
+final class PrefixIndex {
+
+  private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private final int maxPostings;
+
+  private final ConcurrentSkipListMap<String, long[]> postings;
+
+  private final Set<String> stopTokens;
+
+  private final TextTable texts;
+
+  PrefixIndex(int maxPostings) {
+    this(maxPostings, new ConcurrentSkipListMap<>(), ConcurrentHashMap.newKeySet(), new TextTable());
+  }
+
+  private PrefixIndex(int maxPostings, ConcurrentSkipListMap<String, long[]> postings, Set<String> stopTokens, TextTable texts) {
+    this.maxPostings = maxPostings;
+    this.postings = postings;
+    this.stopTokens = stopTokens;
+    this.texts = texts;
+  }
+
+  /**
+   * Indexes {@code text} under {@code id}, replacing whatever was indexed for it before.
+   */
+  void put(long id, String text) {
+    String compacted = compact(text);
+    String previous = texts.put(id, compacted);
+    if (previous != null) {
+      tokens(previous).forEach(token -> postings.computeIfPresent(token, (key, ids) -> without(ids, id)));
+    }
+    for (String token : tokens(compacted)) {
+      if (!stopTokens.contains(token)) {
+        long[] ids = postings.merge(token, new long[] {id}, (existing, ignored) -> with(existing, id));
+        if (ids.length > maxPostings) {
+          stopTokens.add(token);
+          postings.remove(token);
+        }
+      }
+    }
+  }
+
+  void remove(long id) {
+    String previous = texts.remove(id);
+    if (previous != null) {
+      tokens(previous).forEach(token -> postings.computeIfPresent(token, (key, ids) -> without(ids, id)));
+    }
+  }
+
+  /**
+   * Identifiers with a token starting with {@code prefix}, exact token matches first.
+   */
+  long[] lookup(String prefix, int limit) {
+    String normalized = normalize(prefix);
+    if (normalized.isEmpty()) {
+      return new long[0];
+    }
+    NavigableMap<String, long[]> range = postings.subMap(normalized, true, normalized + Character.MAX_VALUE, false);
+    Set<Long> ids = new LinkedHashSet<>();
+    for (long[] posting : range.values()) {
+      for (long id : posting) {
+        ids.add(id);
+        if (ids.size() >= limit) {
+          return ids.stream().mapToLong(Long::longValue).toArray();
+        }
+      }
+    }
+    return ids.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  String text(long id) {
+    return texts.get(id);
+  }
+
+  int size() {
+    return texts.size();
+  }
+
+  static Set<String> tokens(String text) {
+    Set<String> tokens = new LinkedHashSet<>();
+    for (String chunk : WHITESPACE.split(normalize(text))) {
+      if (chunk.isEmpty()) {
+        continue;
+      }
+      tokens.add(chunk);
+      for (String part : NON_ALPHANUMERIC.split(chunk)) {
+        if (!part.isEmpty()) {
+          tokens.add(part);
+        }
+      }
+    }
+    return tokens;
+  }
+
+  static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+    String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+    return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).strip();
+  }
+
+  private static String compact(String text) {
+    return WHITESPACE.matcher(text.strip()).replaceAll(" ");
+  }
+
+  private static long[] with(long[] ids, long id) {
+    int position = Arrays.binarySearch(ids, id);
+    if (position >= 0) {
+      return ids;
+    }
+    int insertion = -position - 1;
+    long[] result = new long[ids.length + 1];
+    System.arraycopy(ids, 0, result, 0, insertion);
+    result[insertion] = id;
+    System.arraycopy(ids, insertion, result, insertion + 1, ids.length - insertion);
+    return result;
+  }
+
+  private static long[] without(long[] ids, long id) {
+    int position = Arrays.binarySearch(ids, id);
+    if (position < 0) {
+      return ids;
+    }
+    if (ids.length == 1) {
+      return null;
+    }
+    long[] result = new long[ids.length - 1];
+    System.arraycopy(ids, 0, result, 0, position);
+    System.arraycopy(ids, position + 1, result, position, ids.length - position - 1);
+    return result;
+  }
+
+  /**
+   * Loads a new index in one pass; not thread-safe, and not usable once built.
+   */
+  static final class Builder {
+
+    private final int maxPostings;
+
+    private final Map<String, LongBuffer> postings = new HashMap<>();
+
+    private final Set<String> stopTokens = ConcurrentHashMap.newKeySet();
+
+    private final TextTable texts = new TextTable();
+
+    Builder(int maxPostings) {
+      this.maxPostings = maxPostings;
+    }
+
+    /**
+     * Indexes {@code text} under {@code id}, which must not have been added before.
+     */
+    Builder add(long id, String text) {
+      String compacted = compact(text);
+      texts.put(id, compacted);
+      for (String token : tokens(compacted)) {
+        if (stopTokens.contains(token)) {
+          continue;
+        }
+        LongBuffer ids = postings.computeIfAbsent(token, key -> new LongBuffer());
+        ids.add(id);
+        if (ids.size > maxPostings) {
+          stopTokens.add(token);
+          postings.remove(token);
+        }
+      }
+      return this;
+    }
+
+    PrefixIndex build() {
+      TreeMap<String, long[]> sorted = new TreeMap<>();
+      postings.forEach((token, ids) -> sorted.put(token, ids.sorted()));
+      postings.clear();
+      return new PrefixIndex(maxPostings, new ConcurrentSkipListMap<>(sorted), stopTokens, texts);
+    }
+  }
+
+  /**
+   * Growable identifier array, sorted and deduplicated once all identifiers are in.
+   */
+  private static final class LongBuffer {
+
+    private long[] values = new long[4];
+
+    private int size;
+
+    void add(long value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    long[] sorted() {
+      Arrays.sort(values, 0, size);
+      int distinct = 0;
+      for (int i = 0; i < size; i++) {
+        if (distinct == 0 || values[i] != values[distinct - 1]) {
+          values[distinct++] = values[i];
+        }
+      }
+      return Arrays.copyOf(values, distinct);
+    }
+  }
+
+  /**
+   * Open-addressing table from identifiers to UTF-8 encoded texts. An entry costs its bytes and a
+   * slot, where a map would add a boxed key, a node and a {@code String} around them. Writers take
+   * the lock; readers probe optimistically and only lock when a write interleaved.
+   */
+  private static final class TextTable {
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private final StampedLock lock = new StampedLock();
+
+    private long[] keys;
+
+    private byte[][] values;
+
+    private int size;
+
+    TextTable() {
+      allocate(16);
+    }
+
+    String get(long id) {
+      long stamp = lock.tryOptimisticRead();
+      byte[] value = find(id);
+      if (!lock.validate(stamp)) {
+        stamp = lock.readLock();
+        try {
+          value = find(id);
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+      return value == null ? null : new String(value, UTF_8);
+    }
+
+    String put(long id, String text) {
+      byte[] value = text.getBytes(UTF_8);
+      long stamp = lock.writeLock();
+      try {
+        if ((size + 1) * 4L > keys.length * 3L) {
+          resize(keys.length * 2);
+        }
+        int slot = slot(id);
+        byte[] previous = values[slot];
+        if (keys[slot] == FREE) {
+          keys[slot] = id;
+          size++;
+        }
+        values[slot] = value;
+        return previous == null ? null : new String(previous, UTF_8);
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    String remove(long id) {
+      long stamp = lock.writeLock();
+      try {
+        int slot = slot(id);
+        if (keys[slot] == FREE) {
+          return null;
+        }
+        byte[] previous = values[slot];
+        delete(slot);
+        size--;
+        return new String(previous, UTF_8);
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    int size() {
+      long stamp = lock.readLock();
+      try {
+        return size;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    /**
+     * Probes arrays that may be changing under an optimistic read; a torn result is discarded by
+     * the stamp validation of the caller.
+     */
+    private byte[] find(long id) {
+      long[] keys = this.keys;
+      byte[][] values = this.values;
+      if (keys.length != values.length) {
+        return null;
+      }
+      int mask = keys.length - 1;
+      for (int i = home(id, mask), probes = 0; probes < keys.length; i = (i + 1) & mask, probes++) {
+        if (keys[i] == id) {
+          return values[i];
+        }
+        if (keys[i] == FREE) {
+          return null;
+        }
+      }
+      return null;
+    }
+
+    private int slot(long id) {
+      int mask = keys.length - 1;
+      int i = home(id, mask);
+      while (keys[i] != FREE && keys[i] != id) {
+        i = (i + 1) & mask;
+      }
+      return i;
+    }
+
+    /**
+     * Shifts later entries of the probe sequence back into the freed slot, so lookups never need
+     * tombstones.
+     */
+    private void delete(int slot) {
+      int mask = keys.length - 1;
+      int free = slot;
+      for (int i = (free + 1) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+        if (((i - home(keys[i], mask)) & mask) >= ((i - free) & mask)) {
+          keys[free] = keys[i];
+          values[free] = values[i];
+          free = i;
+        }
+      }
+      keys[free] = FREE;
+      values[free] = null;
+    }
+
+    private void resize(int capacity) {
+      long[] oldKeys = keys;
+      byte[][] oldValues = values;
+      allocate(capacity);
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != FREE) {
+          int slot = slot(oldKeys[i]);
+          keys[slot] = oldKeys[i];
+          values[slot] = oldValues[i];
+        }
+      }
+    }
+
+    private void allocate(int capacity) {
+      long[] keys = new long[capacity];
+      Arrays.fill(keys, FREE);
+      this.values = new byte[capacity][];
+      this.keys = keys;
+    }
+
+    private static int home(long id, int mask) {
+      return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+  }
+}
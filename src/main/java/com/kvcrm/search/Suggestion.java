@@ -0,0 +1,20 @@
+package com.kvcrm.search;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A typeahead match.
+ *
+ * @param type kind of the matched entity
+ * @param id   identifier of the matched entity
+ * @param text indexed text of the matched entity
+ */
+public record Suggestion(Type type, long id, String text) {
+
+  public enum Type {
+    @JsonProperty("contact")
+    CONTACT,
+    @JsonProperty("organization")
+    ORGANIZATION
+  }
+}
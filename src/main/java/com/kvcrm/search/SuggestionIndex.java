@@ -0,0 +1,283 @@
+package com.kvcrm.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.kvcrm.entity.Contact;
+import com.kvcrm.entity.Organization;
+import com.kvcrm.repository.ContactRepository;
+import com.kvcrm.repository.IndexedText;
+import com.kvcrm.repository.OrganizationRepository;
+import com.kvcrm.repository.SoftDeletedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory typeahead index over contact names and emails and organization names.
+ *
+ * <p>The index is loaded from the database once the application is ready and then kept current by
+ * Hibernate post-commit events, so suggestions only ever reflect committed data. Bulk soft deletes
+ * bypass those events and are applied from their {@link SoftDeletedEvent} once committed, reading
+ * back the deleted rows when a whole account was deleted; other changes made through bulk queries
+ * are picked up by the next {@link #rebuild()}.
+ *
+ * <p>A rebuild loads into a fresh index while the current one keeps answering, then swaps it in.
+ * Changes committed during the load are applied to both, so the swap loses none of them.
+ *
+ * <p>The index is local to this instance: the events only report writes made through it. Writes
+ * made through other instances are picked up by the rebuild {@link SuggestionIndexConfig} runs
+ * every {@code rebuild-interval}, so until then the suggestions of two instances may differ.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "kvcrm.search.suggest", name = "enabled", havingValue = "true")
+public class SuggestionIndex implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+  private final int maxPostings;
+
+  private final LiveIndex contacts;
+
+  private final LiveIndex organizations;
+
+  private final ContactRepository contactRepository;
+
+  private final OrganizationRepository organizationRepository;
+
+  private final EntityManagerFactory entityManagerFactory;
+
+  private final TransactionTemplate transactionTemplate;
+
+  SuggestionIndex(ContactRepository contactRepository,
+                  OrganizationRepository organizationRepository,
+                  EntityManagerFactory entityManagerFactory,
+                  PlatformTransactionManager transactionManager,
+                  SuggestionIndexProperties properties) {
+    this.maxPostings = properties.getMaxPostings();
+    this.contacts = new LiveIndex(maxPostings);
+    this.organizations = new LiveIndex(maxPostings);
+    this.contactRepository = contactRepository;
+    this.organizationRepository = organizationRepository;
+    this.entityManagerFactory = entityManagerFactory;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+  }
+
+  @PostConstruct
+  void registerListeners() {
+    EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+        .getServiceRegistry()
+        .getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+    registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+    registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void rebuild() {
+    contacts.startRebuild();
+    organizations.startRebuild();
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        contacts.swap(load(contactRepository.streamIndexedText()));
+        organizations.swap(load(organizationRepository.streamIndexedText()));
+      });
+    } finally {
+      contacts.endRebuild();
+      organizations.endRebuild();
+    }
+    log.info("Suggestion index loaded with {} contacts and {} organizations", contacts.size(), organizations.size());
+  }
+
+  public List<Suggestion> suggest(String prefix, Suggestion.Type type, int limit) {
+    List<Suggestion> suggestions = new ArrayList<>(limit);
+    if (type == null || type == Suggestion.Type.CONTACT) {
+      collect(suggestions, Suggestion.Type.CONTACT, contacts, prefix, limit);
+    }
+    if (type == null || type == Suggestion.Type.ORGANIZATION) {
+      collect(suggestions, Suggestion.Type.ORGANIZATION, organizations, prefix, limit - suggestions.size());
+    }
+    return suggestions;
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    index(event.getEntity());
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    index(event.getEntity());
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    if (event.getEntity() instanceof Contact contact) {
+      contacts.remove(contact.getId());
+    } else if (event.getEntity() instanceof Organization organization) {
+      organizations.remove(organization.getId());
+    }
+  }
+
+  @TransactionalEventListener
+  void onSoftDeleted(SoftDeletedEvent event) {
+    if (event.entityType() == Contact.class) {
+      deletedIds(event, contactRepository::findDeletedIdsByAccountId).forEach(contacts::remove);
+    } else if (event.entityType() == Organization.class) {
+      deletedIds(event, organizationRepository::findDeletedIdsByAccountId).forEach(organizations::remove);
+    }
+  }
+
+  @Override
+  public void onPostInsertCommitFailed(PostInsertEvent event) {
+    // nothing was indexed before the commit
+  }
+
+  @Override
+  public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    // nothing was indexed before the commit
+  }
+
+  @Override
+  public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    // nothing was removed before the commit
+  }
+
+  @Override
+  public boolean requiresPostCommitHandling(EntityPersister persister) {
+    Class<?> mappedClass = persister.getMappedClass();
+    return mappedClass == Contact.class || mappedClass == Organization.class;
+  }
+
+  private void index(Object entity) {
+    if (entity instanceof Contact contact) {
+      if (contact.isDeleted()) {
+        contacts.remove(contact.getId());
+      } else {
+        contacts.put(contact.getId(), String.join(" ", nullToEmpty(contact.getFirstName()), nullToEmpty(contact.getLastName()),
+            nullToEmpty(contact.getEmail())));
+      }
+    } else if (entity instanceof Organization organization) {
+      if (organization.isDeleted()) {
+        organizations.remove(organization.getId());
+      } else {
+        organizations.put(organization.getId(), nullToEmpty(organization.getName()));
+      }
+    }
+  }
+
+  /**
+   * Identifiers of the deleted entities; those of a whole account are read back, which also finds
+   * rows deleted earlier, and removing those again changes nothing.
+   */
+  private static Collection<Long> deletedIds(SoftDeletedEvent event, Function<Long, List<Long>> deletedIdsOfAccount) {
+    return event.isAccountScoped() ? deletedIdsOfAccount.apply(event.accountId()) : event.ids();
+  }
+
+  private PrefixIndex load(Stream<IndexedText> rows) {
+    PrefixIndex.Builder builder = new PrefixIndex.Builder(maxPostings);
+    try (rows) {
+      rows.forEach(row -> builder.add(row.getId(), row.getText()));
+    }
+    return builder.build();
+  }
+
+  private static void collect(List<Suggestion> suggestions, Suggestion.Type type, LiveIndex live, String prefix, int limit) {
+    if (limit <= 0) {
+      return;
+    }
+    PrefixIndex index = live.current();
+    for (long id : index.lookup(prefix, limit)) {
+      String text = index.text(id);
+      if (text != null) {
+        suggestions.add(new Suggestion(type, id, text));
+      }
+    }
+  }
+
+  private static String nullToEmpty(String value) {
+    return value == null ? "" : value;
+  }
+
+  /**
+   * The index currently answering for one entity type. While a rebuild is loading, changes are also
+   * recorded, and replayed onto the rebuilt index before it replaces this one.
+   */
+  private static final class LiveIndex {
+
+    private volatile PrefixIndex index;
+
+    private List<Change> pending;
+
+    LiveIndex(int maxPostings) {
+      this.index = new PrefixIndex(maxPostings);
+    }
+
+    PrefixIndex current() {
+      return index;
+    }
+
+    int size() {
+      return index.size();
+    }
+
+    synchronized void put(long id, String text) {
+      index.put(id, text);
+      if (pending != null) {
+        pending.add(new Change(id, text));
+      }
+    }
+
+    synchronized void remove(long id) {
+      index.remove(id);
+      if (pending != null) {
+        pending.add(new Change(id, null));
+      }
+    }
+
+    synchronized void startRebuild() {
+      pending = new ArrayList<>();
+    }
+
+    synchronized void swap(PrefixIndex rebuilt) {
+      pending.forEach(change -> change.applyTo(rebuilt));
+      index = rebuilt;
+      pending = null;
+    }
+
+    synchronized void endRebuild() {
+      pending = null;
+    }
+  }
+
+  private record Change(long id, String text) {
+
+    void applyTo(PrefixIndex index) {
+      if (text == null) {
+        index.remove(id);
+      } else {
+        index.put(id, text);
+      }
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.kvcrm.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Schedules the periodic rebuild of the {@link SuggestionIndex}, first one interval after startup.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(SuggestionIndexProperties.class)
+@ConditionalOnProperty(prefix = "kvcrm.search.suggest", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+class SuggestionIndexConfig implements SchedulingConfigurer {
+
+  private final SuggestionIndex suggestionIndex;
+
+  private final SuggestionIndexProperties properties;
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar registrar) {
+    registrar.addFixedDelayTask(new FixedDelayTask(suggestionIndex::rebuild, properties.getRebuildInterval(),
+        properties.getRebuildInterval()));
+  }
+}
@@ -0,0 +1,31 @@
+package com.kvcrm.search;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * The in-memory typeahead index of {@link SuggestionIndex}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "kvcrm.search.suggest")
+class SuggestionIndexProperties {
+
+  private boolean enabled;
+
+  /**
+   * Entities a token may point to before it is dropped from the index, as it then suggests nothing
+   * in particular.
+   */
+  private int maxPostings = 10_000;
+
+  /**
+   * Delay between the end of one full reload and the start of the next, bounding how long writes
+   * made through other instances take to show up.
+   */
+  private Duration rebuildInterval = Duration.ofMinutes(15);
+
+}
@@ -1,6 +1,5 @@
 package com.kvcrm.web;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,7 +12,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.iqkv.boot.restful.web.ApiError;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -25,6 +27,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @Tag(name = "Account resource", description = "API endpoints for managing account entity.")
@@ -35,6 +38,8 @@ class AccountResource {
 
   private final AccountRepository accountRepository;
 
+  private final BatchProcessor batchProcessor;
+
   @PostMapping
   @Operation(
       description = "Create a new account.",
@@ -55,12 +60,34 @@ class AccountResource {
     return new ResponseEntity<>(account, HttpStatus.CREATED);
   }
 
+  @PostMapping("/batch")
+  @Operation(
+      description = "Create, update and delete accounts in a single transaction. Returns one result per item, in request order.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<List<BatchResult>> batch(@RequestBody List<AccountBatchOperation> operations) {
+    return batchProcessor.process(operations, accountRepository,
+        accountRequest -> Account.builder().name(accountRequest.name()).build(),
+        (account, accountRequest) -> account.setName(accountRequest.name()),
+        Account::getId);
+  }
+
   @GetMapping("/{id}")
   @Operation(
       description = "Retrieve account by id.",
       responses = {
           @ApiResponse(responseCode = "200",
                        description = "Success"),
+          @ApiResponse(responseCode = "304",
+                       description = "Not modified"),
           @ApiResponse(responseCode = "500",
                        description = "Internal error",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
@@ -73,15 +100,17 @@ class AccountResource {
       })
   ResponseEntity<Account> findById(@PathVariable("id") long id) {
     Optional<Account> accountData = accountRepository.findById(id);
-    return accountData.map(account -> new ResponseEntity<>(account, HttpStatus.OK)).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    return accountData.map(account -> EntityTag.ok(account, account)).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
   }
 
   @GetMapping
   @Operation(
-      description = "Get all the accounts.",
+      description = "Get the accounts page by page, ordered by id. Pass the returned `next` cursor as `after` to continue.",
       responses = {
           @ApiResponse(responseCode = "200",
                        description = "Success"),
+          @ApiResponse(responseCode = "304",
+                       description = "Not modified"),
           @ApiResponse(responseCode = "500",
                        description = "Internal error",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
@@ -89,24 +118,55 @@ class AccountResource {
                        description = "Bad request",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
       })
-  ResponseEntity<List<Account>> findAll(@RequestParam(required = false) String name) {
-    List<Account> accounts = new ArrayList<>();
+  ResponseEntity<CursorPage<Account>> findAll(@RequestParam(required = false) String name,
+                                              @RequestParam(required = false) String after,
+                                              @RequestParam(defaultValue = KeysetCursor.DEFAULT_LIMIT) int limit) {
+    long afterId = KeysetCursor.decode(after);
+    Pageable pageable = KeysetCursor.pageable(limit);
 
+    Slice<Account> accounts;
     if (name == null) {
-      accounts.addAll(accountRepository.findAll());
+      accounts = accountRepository.findByIdGreaterThan(afterId, pageable);
     } else {
-      accounts.addAll(accountRepository.findByNameContaining(name));
+      accounts = accountRepository.findByNameContainingAndIdGreaterThan(name, afterId, pageable);
     }
 
+    return EntityTag.page(CursorPage.of(accounts, Account::getId), accounts.getContent());
+  }
+
+  @GetMapping("/search")
+  @Operation(
+      description = "Search accounts by name containing the term, case-insensitively, best matches first. "
+          + "Terms shorter than 3 characters return no results.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<List<Account>> search(@RequestParam String q,
+                                       @RequestParam(defaultValue = SearchTerm.DEFAULT_LIMIT) int limit) {
+    if (!SearchTerm.isSearchable(q)) {
+      return new ResponseEntity<>(List.of(), HttpStatus.OK);
+    }
+    List<Account> accounts = accountRepository.searchByName(q.strip(), SearchTerm.containsPattern(q), SearchTerm.limit(limit));
     return new ResponseEntity<>(accounts, HttpStatus.OK);
   }
 
   @PutMapping("/{id}")
   @Operation(
-      description = "Updates an existing account.",
+      description = "Updates an existing account. Send the `ETag` of the copy being modified as `If-Match` to have the update "
+          + "refused with 412 when the account changed in between.",
       responses = {
           @ApiResponse(responseCode = "200",
                        description = "Success"),
+          @ApiResponse(responseCode = "412",
+                       description = "Precondition failed, the account was modified concurrently",
+                       content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
           @ApiResponse(responseCode = "500",
                        description = "Internal error",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
@@ -114,13 +174,18 @@ class AccountResource {
                        description = "Bad request",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
       })
-  ResponseEntity<Account> update(@PathVariable("id") long id, @RequestBody AccountRequest accountRequest) {
-    Optional<Account> accountData = accountRepository.findById(id);
+  ResponseEntity<?> update(@PathVariable("id") long id, @RequestBody AccountRequest accountRequest, WebRequest request) {
+    Optional<Account> accountData = accountRepository.findForWriteById(id);
 
     if (accountData.isPresent()) {
       Account account = accountData.get();
+      Optional<ResponseEntity<ProblemDetail>> preconditionFailed = EntityTag.checkPreconditions(request, account);
+      if (preconditionFailed.isPresent()) {
+        return preconditionFailed.get();
+      }
       account.setName(accountRequest.name());
-      return new ResponseEntity<>(accountRepository.save(account), HttpStatus.OK);
+      Account updatedAccount = accountRepository.save(account);
+      return EntityTag.ok(updatedAccount, updatedAccount);
     } else {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
@@ -133,6 +198,9 @@ class AccountResource {
 
   }
 
+  record AccountBatchOperation(BatchOperation.Action action, Long id, AccountRequest data) implements BatchOperation<AccountRequest> {
+  }
+
   record AccountRequest(String name) {
   }
 }
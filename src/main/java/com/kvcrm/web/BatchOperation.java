@@ -0,0 +1,33 @@
+package com.kvcrm.web;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A single item of a batch request. Resources bind it to a concrete record per payload type.
+ */
+interface BatchOperation<T> {
+
+  /**
+   * What to do with the item.
+   */
+  Action action();
+
+  /**
+   * Target of an update or delete.
+   */
+  Long id();
+
+  /**
+   * Payload of a create or update.
+   */
+  T data();
+
+  enum Action {
+    @JsonProperty("create")
+    CREATE,
+    @JsonProperty("update")
+    UPDATE,
+    @JsonProperty("delete")
+    DELETE
+  }
+}
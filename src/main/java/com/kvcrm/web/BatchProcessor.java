@@ -0,0 +1,126 @@
+package com.kvcrm.web;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Applies a batch of create, update and delete operations in a single transaction.
+ *
+ * <p>Targets of updates and deletes are loaded with one {@code IN} query, and new and changed rows
+ * are flushed together so Hibernate can group them into JDBC batches of {@code hibernate.jdbc.batch_size}.
+ * Items that cannot be applied are reported individually; a database error rolls back the whole batch.
+ */
+@Component
+@EnableConfigurationProperties(BatchProperties.class)
+class BatchProcessor {
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final int maxItems;
+
+  BatchProcessor(PlatformTransactionManager transactionManager, BatchProperties batchProperties) {
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.maxItems = batchProperties.getMaxItems();
+  }
+
+  <T, R> ResponseEntity<List<BatchResult>> process(List<? extends BatchOperation<R>> operations,
+                                                   JpaRepository<T, Long> repository,
+                                                   Function<R, T> creator,
+                                                   BiConsumer<T, R> updater,
+                                                   Function<T, Long> idExtractor) {
+    if (operations.size() > maxItems) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A batch accepts at most " + maxItems + " items");
+    }
+    List<BatchResult> results = transactionTemplate.execute(status -> apply(operations, repository, creator, updater, idExtractor));
+    return new ResponseEntity<>(results, HttpStatus.OK);
+  }
+
+  private <T, R> List<BatchResult> apply(List<? extends BatchOperation<R>> operations,
+                                         JpaRepository<T, Long> repository,
+                                         Function<R, T> creator,
+                                         BiConsumer<T, R> updater,
+                                         Function<T, Long> idExtractor) {
+    List<Long> ids = operations.stream()
+        .filter(operation -> operation.action() != BatchOperation.Action.CREATE)
+        .map(BatchOperation::id)
+        .filter(Objects::nonNull)
+        .distinct()
+        .toList();
+    Map<Long, T> existing = new HashMap<>();
+    if (!ids.isEmpty()) {
+      repository.findAllById(ids).forEach(entity -> existing.put(idExtractor.apply(entity), entity));
+    }
+
+    BatchResult[] results = new BatchResult[operations.size()];
+    List<T> created = new ArrayList<>();
+    List<Integer> createdIndexes = new ArrayList<>();
+    List<T> deleted = new ArrayList<>();
+
+    for (int index = 0; index < operations.size(); index++) {
+      BatchOperation<R> operation = operations.get(index);
+      if (!isWellFormed(operation)) {
+        results[index] = BatchResult.of(index, HttpStatus.BAD_REQUEST, operation.id());
+        continue;
+      }
+      switch (operation.action()) {
+        case CREATE -> {
+          created.add(creator.apply(operation.data()));
+          createdIndexes.add(index);
+        }
+        case UPDATE -> {
+          T entity = existing.get(operation.id());
+          if (entity == null) {
+            results[index] = BatchResult.of(index, HttpStatus.NOT_FOUND, operation.id());
+          } else {
+            updater.accept(entity, operation.data());
+            results[index] = BatchResult.of(index, HttpStatus.OK, operation.id());
+          }
+        }
+        case DELETE -> {
+          T entity = existing.remove(operation.id());
+          if (entity == null) {
+            results[index] = BatchResult.of(index, HttpStatus.NOT_FOUND, operation.id());
+          } else {
+            deleted.add(entity);
+            results[index] = BatchResult.of(index, HttpStatus.NO_CONTENT, operation.id());
+          }
+        }
+      }
+    }
+
+    List<T> saved = repository.saveAll(created);
+    for (int i = 0; i < saved.size(); i++) {
+      int index = createdIndexes.get(i);
+      results[index] = BatchResult.of(index, HttpStatus.CREATED, idExtractor.apply(saved.get(i)));
+    }
+    repository.deleteAll(deleted);
+    repository.flush();
+
+    return List.of(results);
+  }
+
+  private static boolean isWellFormed(BatchOperation<?> operation) {
+    if (operation.action() == null) {
+      return false;
+    }
+    return switch (operation.action()) {
+      case CREATE -> operation.data() != null;
+      case UPDATE -> operation.id() != null && operation.data() != null;
+      case DELETE -> operation.id() != null;
+    };
+  }
+}
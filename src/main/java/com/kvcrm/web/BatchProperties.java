@@ -0,0 +1,21 @@
+package com.kvcrm.web;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Limits of the batch and bulk delete endpoints.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "kvcrm.batch")
+class BatchProperties {
+
+  /**
+   * Operations a batch, or ids a bulk delete, may carry; larger requests are refused with 400 so a
+   * single transaction stays short.
+   */
+  private int maxItems = 1000;
+
+}
@@ -0,0 +1,17 @@
+package com.kvcrm.web;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Outcome of a single batch item, reported in request order.
+ *
+ * @param index  position of the item in the request
+ * @param status HTTP status the item would have received as a standalone call
+ * @param id     identifier of the created, updated or deleted entity
+ */
+record BatchResult(int index, int status, Long id) {
+
+  static BatchResult of(int index, HttpStatus status, Long id) {
+    return new BatchResult(index, status.value(), id);
+  }
+}
@@ -0,0 +1,10 @@
+package com.kvcrm.web;
+
+/**
+ * Outcome of a bulk delete.
+ *
+ * @param deleted number of live entities that were deleted; ids that were already deleted or
+ *                never existed are not counted
+ */
+record BulkDeleteResult(int deleted) {
+}
@@ -0,0 +1,57 @@
+package com.kvcrm.web;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.kvcrm.repository.SoftDeleteRepository;
+import com.kvcrm.repository.SoftDeletedEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Soft deletes a set of entities, chosen by id or by owning account, with one {@code UPDATE}.
+ */
+@Component
+@EnableConfigurationProperties(BatchProperties.class)
+class BulkDeleter {
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final ApplicationEventPublisher eventPublisher;
+
+  private final int maxItems;
+
+  BulkDeleter(PlatformTransactionManager transactionManager,
+              ApplicationEventPublisher eventPublisher,
+              BatchProperties batchProperties) {
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.eventPublisher = eventPublisher;
+    this.maxItems = batchProperties.getMaxItems();
+  }
+
+  ResponseEntity<BulkDeleteResult> delete(SoftDeleteRepository repository, Class<?> entityType, List<Long> ids, Long accountId) {
+    boolean byIds = ids != null && !ids.isEmpty();
+    if (byIds == (accountId != null)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Pass either ids or accountId");
+    }
+    if (byIds && ids.size() > maxItems) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A bulk delete accepts at most " + maxItems + " ids");
+    }
+    Integer deleted = transactionTemplate.execute(status -> {
+      Instant now = Instant.now();
+      if (byIds) {
+        eventPublisher.publishEvent(SoftDeletedEvent.ofIds(entityType, ids));
+        return repository.softDeleteByIdIn(ids, now);
+      }
+      eventPublisher.publishEvent(SoftDeletedEvent.ofAccount(entityType, accountId));
+      return repository.softDeleteByAccountId(accountId, now);
+    });
+    return new ResponseEntity<>(new BulkDeleteResult(deleted), HttpStatus.OK);
+  }
+}
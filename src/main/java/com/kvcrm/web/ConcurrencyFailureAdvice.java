@@ -0,0 +1,25 @@
+package com.kvcrm.web;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Reports writes that lost an optimistic locking race as {@code 412 Precondition Failed}, the same
+ * status and body a stale {@code If-Match} gets, so clients handle both by refetching and retrying.
+ */
+@RestControllerAdvice
+@Order(Ordered.HIGHEST_PRECEDENCE)
+class ConcurrencyFailureAdvice {
+
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+  ProblemDetail handleOptimisticLockingFailure(OptimisticLockingFailureException exception) {
+    return EntityTag.preconditionFailed();
+  }
+}
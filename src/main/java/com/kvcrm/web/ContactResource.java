@@ -1,11 +1,17 @@
 package com.kvcrm.web;
 
-import java.util.ArrayList;
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.kvcrm.entity.Contact;
+import com.kvcrm.entity.Versioned;
 import com.kvcrm.repository.ContactRepository;
+import com.kvcrm.repository.ContactView;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,17 +19,25 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.iqkv.boot.restful.web.ApiError;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @Tag(name = "Contact resource", description = "API endpoints for managing contact entity.")
@@ -32,8 +46,20 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 class ContactResource {
 
+  private static final Set<String> PATCHABLE_PROPERTIES = Set.of("firstName", "lastName", "phone", "address", "city", "region", "country", "postalCode", "email");
+
   private final ContactRepository contactRepository;
 
+  private final BatchProcessor batchProcessor;
+
+  private final MergePatcher mergePatcher;
+
+  private final BulkDeleter bulkDeleter;
+
+  private final NdjsonExporter ndjsonExporter;
+
+  private final WriteBehindQueue<ContactRequest> contactWriteBehindQueue;
+
   @PostMapping
   @Operation(
       description = "Create a new contact.",
@@ -54,12 +80,34 @@ class ContactResource {
     return new ResponseEntity<>(contact, HttpStatus.CREATED);
   }
 
+  @PostMapping("/batch")
+  @Operation(
+      description = "Create, update and delete contacts in a single transaction. Returns one result per item, in request order.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<List<BatchResult>> batch(@RequestBody List<ContactBatchOperation> operations) {
+    return batchProcessor.process(operations, contactRepository,
+        contactRequest -> Contact.builder().email(contactRequest.email()).build(),
+        (contact, contactRequest) -> contact.setEmail(contactRequest.email()),
+        Contact::getId);
+  }
+
   @GetMapping("/{id}")
   @Operation(
-      description = "Retrieve contact by id.",
+      description = "Retrieve contact by id. Pass `expand=account` to include the owning account.",
       responses = {
           @ApiResponse(responseCode = "200",
                        description = "Success"),
+          @ApiResponse(responseCode = "304",
+                       description = "Not modified"),
           @ApiResponse(responseCode = "500",
                        description = "Internal error",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
@@ -70,17 +118,33 @@ class ContactResource {
                        description = "Not found",
                        content = @Content(schema = @Schema(implementation = ApiError.class)))
       })
-  ResponseEntity<Contact> findById(@PathVariable("id") long id) {
-    Optional<Contact> contactData = contactRepository.findById(id);
-    return contactData.map(contact -> new ResponseEntity<>(contact, HttpStatus.OK)).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+  ResponseEntity<?> findById(@PathVariable("id") long id,
+                             @RequestParam(defaultValue = "") Set<String> expand,
+                             WebRequest request) {
+    if (expand.contains(Expand.ACCOUNT)) {
+      Optional<Contact> contactData = contactRepository.findWithAccountById(id);
+      return contactData.map(contact -> EntityTag.ok(contact, contact, contact.getAccount())).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+    if (EntityTag.hasPreconditions(request)) {
+      Optional<ResponseEntity<Void>> notModified = contactRepository.findVersionById(id)
+          .flatMap(version -> EntityTag.checkNotModified(request, version));
+      if (notModified.isPresent()) {
+        return notModified.get();
+      }
+    }
+    Optional<ContactView> contactData = contactRepository.findViewById(id);
+    return contactData.map(contact -> EntityTag.ok(contact, contact)).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
   }
 
   @GetMapping
   @Operation(
-      description = "Get all the contacts.",
+      description = "Get the contacts page by page, ordered by id. Pass the returned `next` cursor as `after` to continue "
+          + "and `expand=account` to include the owning accounts.",
       responses = {
           @ApiResponse(responseCode = "200",
                        description = "Success"),
+          @ApiResponse(responseCode = "304",
+                       description = "Not modified"),
           @ApiResponse(responseCode = "500",
                        description = "Internal error",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
@@ -88,17 +152,75 @@ class ContactResource {
                        description = "Bad request",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
       })
-  ResponseEntity<List<Contact>> findAll() {
-    List<Contact> contacts = new ArrayList<>(contactRepository.findAll());
+  ResponseEntity<CursorPage<?>> findAll(@RequestParam(required = false) String after,
+                                        @RequestParam(defaultValue = KeysetCursor.DEFAULT_LIMIT) int limit,
+                                        @RequestParam(defaultValue = "") Set<String> expand) {
+    long afterId = KeysetCursor.decode(after);
+    Pageable pageable = KeysetCursor.pageable(limit);
+    if (expand.contains(Expand.ACCOUNT)) {
+      Slice<Contact> contacts = contactRepository.findWithAccountByIdGreaterThan(afterId, pageable);
+      List<Versioned> versions = contacts.stream()
+          .flatMap(contact -> Stream.<Versioned>of(contact, contact.getAccount()))
+          .toList();
+      return EntityTag.page(CursorPage.of(contacts, Contact::getId), versions);
+    }
+    Slice<ContactView> contacts = contactRepository.findViewsByIdGreaterThan(afterId, pageable);
+    return EntityTag.page(CursorPage.of(contacts, ContactView::getId), contacts.getContent());
+  }
+
+  @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @Operation(
+      description = "Export all the contacts as newline delimited JSON, one contact per line.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<StreamingResponseBody> export() {
+    return ndjsonExporter.export(contactRepository::streamAll);
+  }
+
+  @GetMapping("/search")
+  @Operation(
+      description = "Search contacts by first name, last name or email containing the term, case-insensitively, best matches first. "
+          + "Terms shorter than 3 characters return no results.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<List<ContactView>> search(@RequestParam String q,
+                                           @RequestParam(defaultValue = SearchTerm.DEFAULT_LIMIT) int limit) {
+    if (!SearchTerm.isSearchable(q)) {
+      return new ResponseEntity<>(List.of(), HttpStatus.OK);
+    }
+    List<ContactView> contacts = contactRepository.searchByNameOrEmail(q.strip(), SearchTerm.containsPattern(q), SearchTerm.limit(limit));
     return new ResponseEntity<>(contacts, HttpStatus.OK);
   }
 
   @PutMapping("/{id}")
   @Operation(
-      description = "Updates an existing contact.",
+      description = "Updates an existing contact. Send the `ETag` of the copy being modified as `If-Match` to have the update "
+          + "refused with 412 when the contact changed in between. When asynchronous writes are enabled, send "
+          + "`Prefer: respond-async` without preconditions to have the update queued and answered with 202 and the "
+          + "`Location` of its status; queued updates of the same contact are coalesced. A queued update is not "
+          + "last-writer-wins: it fails as a conflict when the contact changed after it was accepted.",
       responses = {
           @ApiResponse(responseCode = "200",
                        description = "Success"),
+          @ApiResponse(responseCode = "202",
+                       description = "Accepted, the update is queued and fails as a conflict if the contact "
+                           + "changes before it is written"),
+          @ApiResponse(responseCode = "412",
+                       description = "Precondition failed, the contact was modified concurrently",
+                       content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
           @ApiResponse(responseCode = "500",
                        description = "Internal error",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
@@ -106,13 +228,83 @@ class ContactResource {
                        description = "Bad request",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
       })
-  ResponseEntity<Contact> update(@PathVariable("id") long id, @RequestBody ContactRequest contactRequest) {
-    Optional<Contact> contactData = contactRepository.findById(id);
+  ResponseEntity<?> update(@PathVariable("id") long id, @RequestBody ContactRequest contactRequest, WebRequest request) {
+    Optional<Contact> contactData = contactRepository.findForWriteById(id);
 
     if (contactData.isPresent()) {
       Contact contact = contactData.get();
+      if (contactWriteBehindQueue.isEnabled() && WriteBehindQueue.isRequested(request)) {
+        WriteStatus status = contactWriteBehindQueue.submit(id, contact.getVersion(), contactRequest);
+        return ResponseEntity.accepted()
+            .location(URI.create("/v1/contacts/writes/" + status.handle()))
+            .header(WriteBehindQueue.PREFERENCE_APPLIED, WriteBehindQueue.RESPOND_ASYNC)
+            .body(status);
+      }
+      Optional<ResponseEntity<ProblemDetail>> preconditionFailed = EntityTag.checkPreconditions(request, contact);
+      if (preconditionFailed.isPresent()) {
+        return preconditionFailed.get();
+      }
       contact.setEmail(contactRequest.email());
-      return new ResponseEntity<>(contactRepository.save(contact), HttpStatus.OK);
+      Contact updatedContact = contactRepository.save(contact);
+      return EntityTag.ok(updatedContact, updatedContact);
+    } else {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+  }
+
+  @GetMapping("/writes/{handle}")
+  @Operation(
+      description = "Retrieve the state of a contact update queued with `Prefer: respond-async`.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "404",
+                       description = "Unknown or expired handle",
+                       content = @Content(schema = @Schema(implementation = ApiError.class)))
+      })
+  ResponseEntity<WriteStatus> findWrite(@PathVariable("handle") UUID handle) {
+    return contactWriteBehindQueue.status(handle)
+        .map(status -> new ResponseEntity<>(status, HttpStatus.OK))
+        .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+  }
+
+  @PatchMapping(value = "/{id}", consumes = {MergePatcher.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+  @Operation(
+      description = "Partially updates an existing contact with a JSON Merge Patch: only the members sent are changed and "
+          + "`null` clears a property. Only the changed columns are written. Honours `If-Match` like the full update.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "412",
+                       description = "Precondition failed, the contact was modified concurrently",
+                       content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "404",
+                       description = "Not found",
+                       content = @Content(schema = @Schema(implementation = ApiError.class)))
+      })
+  ResponseEntity<?> patch(@PathVariable("id") long id, @RequestBody JsonNode patch, WebRequest request) {
+    Optional<Contact> contactData = contactRepository.findForWriteById(id);
+
+    if (contactData.isPresent()) {
+      Contact contact = contactData.get();
+      Optional<ResponseEntity<ProblemDetail>> preconditionFailed = EntityTag.checkPreconditions(request, contact);
+      if (preconditionFailed.isPresent()) {
+        return preconditionFailed.get();
+      }
+      Contact patchedContact = contactRepository.save(mergePatcher.apply(patch, contact, PATCHABLE_PROPERTIES));
+      return EntityTag.ok(patchedContact, patchedContact);
     } else {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
@@ -125,6 +317,28 @@ class ContactResource {
 
   }
 
+  @DeleteMapping
+  @Operation(
+      description = "Deletes the contacts with the given `ids`, or all the contacts of `accountId`, with a single update. "
+          + "Returns the number of contacts deleted.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<BulkDeleteResult> deleteAll(@RequestParam(required = false) List<Long> ids,
+                                             @RequestParam(required = false) Long accountId) {
+    return bulkDeleter.delete(contactRepository, Contact.class, ids, accountId);
+  }
+
+  record ContactBatchOperation(BatchOperation.Action action, Long id, ContactRequest data) implements BatchOperation<ContactRequest> {
+  }
+
   record ContactRequest(String email) {
   }
 }
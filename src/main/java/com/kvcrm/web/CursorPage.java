@@ -0,0 +1,23 @@
+package com.kvcrm.web;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import org.springframework.data.domain.Slice;
+
+/**
+ * A single page of a keyset paginated collection.
+ *
+ * @param items page content in ascending {@code id} order
+ * @param next  cursor to pass as {@code after} for the following page, absent on the last page
+ */
+record CursorPage<T>(List<T> items, String next) {
+
+  static <T> CursorPage<T> of(Slice<T> slice, ToLongFunction<T> idExtractor) {
+    List<T> items = slice.getContent();
+    String next = slice.hasNext() && !items.isEmpty()
+        ? KeysetCursor.encode(idExtractor.applyAsLong(items.get(items.size() - 1)))
+        : null;
+    return new CursorPage<>(items, next);
+  }
+}
@@ -0,0 +1,132 @@
+package com.kvcrm.web;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.kvcrm.entity.Versioned;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Strong entity tags and last modification times for conditional GETs.
+ *
+ * <p>Tags are digests of the ids and optimistic lock versions of everything a representation is
+ * built from, plus the {@code next} cursor of a page, and the last modification time is the newest
+ * {@code updatedAt} among them. Reads carrying them are answered with {@code 304 Not Modified}
+ * before the body is serialized when the client already holds the current version, and writes
+ * against a stale version are refused with {@code 412 Precondition Failed} and the
+ * {@link #preconditionFailed() problem detail} every {@code 412} of the API carries.
+ *
+ * <p>The tags built here are those of the JSON representation. The other negotiated formats get
+ * their own from {@link FormatTagFilter}, and tagged responses vary by {@code Accept}.
+ */
+final class EntityTag {
+
+  private EntityTag() {
+  }
+
+  /**
+   * Whether the request carries {@code If-None-Match} or {@code If-Modified-Since}, in which case
+   * it is worth checking the stored version before loading the resource.
+   */
+  static boolean hasPreconditions(WebRequest request) {
+    return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+  }
+
+  /**
+   * Evaluates {@code If-None-Match} and {@code If-Modified-Since} of a read against the stored
+   * version, returning a {@code 304} when the client copy is current.
+   */
+  static Optional<ResponseEntity<Void>> checkNotModified(WebRequest request, Versioned version) {
+    String tag = of(List.of(version));
+    return answeredByPreconditions(request, tag, version)
+        ? Optional.of(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).build())
+        : Optional.empty();
+  }
+
+  /**
+   * Evaluates {@code If-Match} and {@code If-Unmodified-Since} of a write against the stored
+   * version, returning a {@code 412} when the client modified a stale copy.
+   */
+  static Optional<ResponseEntity<ProblemDetail>> checkPreconditions(WebRequest request, Versioned version) {
+    String tag = of(List.of(version));
+    return answeredByPreconditions(request, tag, version)
+        ? Optional.of(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(tag).body(preconditionFailed()))
+        : Optional.empty();
+  }
+
+  /**
+   * The body of a {@code 412}, whether a stale {@code If-Match} or a lost optimistic locking race
+   * caused it.
+   */
+  static ProblemDetail preconditionFailed() {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.PRECONDITION_FAILED,
+        "The resource was modified concurrently, fetch the current version and retry.");
+  }
+
+  static <T> ResponseEntity<T> ok(T body, Versioned... versions) {
+    return ok(body, Arrays.asList(versions));
+  }
+
+  static <T> ResponseEntity<T> ok(T body, Collection<? extends Versioned> versions) {
+    ResponseEntity.BodyBuilder builder = ResponseEntity.ok().eTag(of(versions)).varyBy(HttpHeaders.ACCEPT);
+    versions.stream()
+        .filter(Objects::nonNull)
+        .map(Versioned::getUpdatedAt)
+        .filter(Objects::nonNull)
+        .max(Instant::compareTo)
+        .ifPresent(builder::lastModified);
+    return builder.body(body);
+  }
+
+  /**
+   * A page of items, tagged by its items and its {@code next} cursor: the same items are a
+   * different representation once a row past them appears and the page gains a cursor. Such a
+   * row leaves the newest {@code updatedAt} of the items as it was, so pages carry no last
+   * modification time, which would answer {@code If-Modified-Since} with a stale {@code 304}.
+   */
+  static <P extends CursorPage<?>> ResponseEntity<P> page(P page, Collection<? extends Versioned> versions) {
+    return ResponseEntity.ok().eTag(of(versions, page.next())).varyBy(HttpHeaders.ACCEPT).body(page);
+  }
+
+  static String of(Collection<? extends Versioned> versions) {
+    return quote(validator(versions));
+  }
+
+  static String of(Collection<? extends Versioned> versions, String next) {
+    return quote(validator(versions).append("next:").append(next));
+  }
+
+  private static StringBuilder validator(Collection<? extends Versioned> versions) {
+    StringBuilder validator = new StringBuilder();
+    for (Versioned version : versions) {
+      if (version != null) {
+        validator.append(version.getId()).append(':').append(version.getVersion()).append(';');
+      }
+    }
+    return validator;
+  }
+
+  /**
+   * Whether the preconditions of the request decide its answer, a {@code 304} for reads and a
+   * {@code 412} for writes.
+   */
+  private static boolean answeredByPreconditions(WebRequest request, String tag, Versioned version) {
+    long lastModified = version.getUpdatedAt() == null ? -1 : version.getUpdatedAt().toEpochMilli();
+    return request.checkNotModified(tag, lastModified);
+  }
+
+  private static String quote(CharSequence validator) {
+    return '"' + DigestUtils.md5DigestAsHex(validator.toString().getBytes(UTF_8)) + '"';
+  }
+}
@@ -0,0 +1,13 @@
+package com.kvcrm.web;
+
+/**
+ * Associations that can be requested inline through the {@code expand} query parameter.
+ * Unexpanded associations are rendered by id only.
+ */
+final class Expand {
+
+  static final String ACCOUNT = "account";
+
+  private Expand() {
+  }
+}
@@ -0,0 +1,45 @@
+package com.kvcrm.web;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Suffixes the entity tag of a response with its negotiated format, once the converter writing
+ * it is chosen. See {@link FormatTagFilter}.
+ */
+@RestControllerAdvice
+class FormatTagAdvice implements ResponseBodyAdvice<Object> {
+
+  @Override
+  public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                ServerHttpRequest request, ServerHttpResponse response) {
+    HttpHeaders headers = response.getHeaders();
+    String tag = headers.getETag();
+    if (tag == null) {
+      return body;
+    }
+    // the tag of a GET is already on the servlet response, set there when it was checked against the request
+    HttpServletResponse servletResponse = response instanceof ServletServerHttpResponse servlet ? servlet.getServletResponse() : null;
+    if (servletResponse != null && servletResponse.getHeader(HttpHeaders.ETAG) != null) {
+      servletResponse.setHeader(HttpHeaders.ETAG, FormatTagFilter.suffixed(tag, selectedContentType));
+    } else {
+      headers.setETag(FormatTagFilter.suffixed(tag, selectedContentType));
+    }
+    return body;
+  }
+}
@@ -0,0 +1,191 @@
+package com.kvcrm.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Tells apart the entity tags of the formats negotiated through {@code Accept}. JSON responses
+ * carry the tag {@link EntityTag} builds, while Smile, CBOR and table responses get a suffix
+ * naming their format from {@link FormatTagAdvice} once the format is known, as their bytes
+ * differ and a strong tag must not be shared between them.
+ *
+ * <p>As with the {@code --gzip} suffix of compressed responses, the suffix is removed from the
+ * tags of {@code If-Match} and {@code If-None-Match} before the request is handled, so that they
+ * still match the stored versions. Tags in {@code If-None-Match} of a format the request does not
+ * accept are dropped instead, so a client is never answered {@code 304} for a representation it
+ * cannot use, and the {@code ETag} of a {@code 304} gets back the suffix of the tag that matched.
+ */
+class FormatTagFilter extends OncePerRequestFilter {
+
+  private static final Map<MediaType, String> SUFFIXES = Map.of(
+      new MediaType("application", "x-jackson-smile"), "--smile",
+      MediaType.APPLICATION_CBOR, "--cbor",
+      TableHttpMessageConverter.MEDIA_TYPE, "--table");
+
+  /**
+   * Adds the suffix of a format other than JSON to a strong tag.
+   */
+  static String suffixed(String tag, MediaType format) {
+    if (format == null || !tag.endsWith("\"") || tag.startsWith("W/")) {
+      return tag;
+    }
+    for (Map.Entry<MediaType, String> suffix : SUFFIXES.entrySet()) {
+      if (suffix.getKey().equalsTypeAndSubtype(format)) {
+        return suffixed(tag, suffix.getValue());
+      }
+    }
+    return tag;
+  }
+
+  private static String suffixed(String tag, String suffix) {
+    return tag.substring(0, tag.length() - 1) + suffix + '"';
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    if (request.getHeader(HttpHeaders.IF_MATCH) == null && request.getHeader(HttpHeaders.IF_NONE_MATCH) == null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    SuffixStrippingRequest strippingRequest = new SuffixStrippingRequest(request);
+    filterChain.doFilter(strippingRequest, new SuffixingResponse(response, strippingRequest.suffixes));
+  }
+
+  /**
+   * Removes the format suffixes from the entity tags a client sends back, remembering the suffix
+   * of each tag kept in {@code If-None-Match}.
+   */
+  private static final class SuffixStrippingRequest extends HttpServletRequestWrapper {
+
+    private final Map<String, String> suffixes = new HashMap<>();
+
+    private final List<String> ifMatch = new ArrayList<>();
+
+    private final List<String> ifNoneMatch = new ArrayList<>();
+
+    private SuffixStrippingRequest(HttpServletRequest request) {
+      super(request);
+      List<MediaType> accepted = accepted(request);
+      for (String tag : tags(request, HttpHeaders.IF_MATCH)) {
+        ifMatch.add(strip(tag).getKey());
+      }
+      for (String tag : tags(request, HttpHeaders.IF_NONE_MATCH)) {
+        if ("*".equals(tag)) {
+          ifNoneMatch.add(tag);
+          continue;
+        }
+        Map.Entry<String, MediaType> stripped = strip(tag);
+        if (accepted.stream().anyMatch(type -> type.getQualityValue() > 0 && type.includes(stripped.getValue()))) {
+          ifNoneMatch.add(stripped.getKey());
+          suffixes.putIfAbsent(stripped.getKey(), SUFFIXES.getOrDefault(stripped.getValue(), ""));
+        }
+      }
+    }
+
+    @Override
+    public String getHeader(String name) {
+      List<String> tags = conditional(name);
+      if (tags == null) {
+        return super.getHeader(name);
+      }
+      return tags.isEmpty() ? null : String.join(", ", tags);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+      List<String> tags = conditional(name);
+      return tags == null ? super.getHeaders(name) : Collections.enumeration(tags);
+    }
+
+    private List<String> conditional(String name) {
+      if (HttpHeaders.IF_MATCH.equalsIgnoreCase(name)) {
+        return super.getHeader(name) == null ? null : ifMatch;
+      }
+      if (HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name)) {
+        return super.getHeader(name) == null ? null : ifNoneMatch;
+      }
+      return null;
+    }
+
+    private static List<String> tags(HttpServletRequest request, String name) {
+      List<String> tags = new ArrayList<>();
+      for (Enumeration<String> values = request.getHeaders(name); values.hasMoreElements(); ) {
+        for (String tag : values.nextElement().split(",")) {
+          if (!tag.isBlank()) {
+            tags.add(tag.strip());
+          }
+        }
+      }
+      return tags;
+    }
+
+    /**
+     * The tag without its format suffix, and the format it names, JSON for unsuffixed tags.
+     */
+    private static Map.Entry<String, MediaType> strip(String tag) {
+      for (Map.Entry<MediaType, String> suffix : SUFFIXES.entrySet()) {
+        if (tag.endsWith(suffix.getValue() + '"')) {
+          return Map.entry(tag.substring(0, tag.length() - suffix.getValue().length() - 1) + '"', suffix.getKey());
+        }
+      }
+      return Map.entry(tag, MediaType.APPLICATION_JSON);
+    }
+
+    private static List<MediaType> accepted(HttpServletRequest request) {
+      List<String> accept = Collections.list(request.getHeaders(HttpHeaders.ACCEPT));
+      try {
+        return accept.isEmpty() ? List.of(MediaType.ALL) : MediaType.parseMediaTypes(accept);
+      } catch (InvalidMediaTypeException e) {
+        return List.of(MediaType.ALL);
+      }
+    }
+  }
+
+  /**
+   * Gives the tag of a {@code 304} the suffix of the format the client holds.
+   */
+  private static final class SuffixingResponse extends HttpServletResponseWrapper {
+
+    private final Map<String, String> suffixes;
+
+    private SuffixingResponse(HttpServletResponse response, Map<String, String> suffixes) {
+      super(response);
+      this.suffixes = suffixes;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      super.setHeader(name, notModifiedTag(name, value));
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+      super.addHeader(name, notModifiedTag(name, value));
+    }
+
+    private String notModifiedTag(String name, String value) {
+      if (value == null || getStatus() != HttpServletResponse.SC_NOT_MODIFIED || !HttpHeaders.ETAG.equalsIgnoreCase(name)) {
+        return value;
+      }
+      String suffix = suffixes.getOrDefault(value, "");
+      return suffix.isEmpty() ? value : suffixed(value, suffix);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package com.kvcrm.web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Opaque cursor for keyset pagination over the sequence generated {@code id} column.
+ *
+ * <p>Identifiers are allocated in insertion order, so seeking past the last seen {@code id}
+ * follows creation order and lets the database use the primary key index for every page.
+ */
+final class KeysetCursor {
+
+  static final String DEFAULT_LIMIT = "50";
+
+  static final int MAX_LIMIT = 500;
+
+  static final long FIRST_PAGE = 0L;
+
+  private static final String PREFIX = "id:";
+
+  private KeysetCursor() {
+  }
+
+  static String encode(long id) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+  }
+
+  static long decode(String after) {
+    if (after == null || after.isBlank()) {
+      return FIRST_PAGE;
+    }
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+      if (!value.startsWith(PREFIX)) {
+        throw new IllegalArgumentException(value);
+      }
+      return Long.parseLong(value.substring(PREFIX.length()));
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed cursor: " + after, e);
+    }
+  }
+
+  static Pageable pageable(int limit) {
+    return PageRequest.of(0, Math.clamp(limit, 1, MAX_LIMIT), Sort.by(Sort.Direction.ASC, "id"));
+  }
+}
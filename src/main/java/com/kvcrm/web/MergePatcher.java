@@ -0,0 +1,58 @@
+package com.kvcrm.web;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Applies a JSON Merge Patch (RFC 7396) to an entity: members present in the patch replace the
+ * corresponding properties, {@code null} clears them and absent ones are left alone.
+ *
+ * <p>Only the given properties may be patched. Combined with {@code @DynamicUpdate} on the entity,
+ * the resulting {@code UPDATE} sets just the columns whose values actually changed.
+ */
+@Component
+@RequiredArgsConstructor
+class MergePatcher {
+
+  static final String MEDIA_TYPE = "application/merge-patch+json";
+
+  private final ObjectMapper objectMapper;
+
+  private final Validator validator;
+
+  <T> T apply(JsonNode patch, T target, Set<String> patchableProperties) {
+    if (!patch.isObject()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A merge patch must be a JSON object");
+    }
+    for (Iterator<String> names = patch.fieldNames(); names.hasNext(); ) {
+      String name = names.next();
+      if (!patchableProperties.contains(name)) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Property '" + name + "' cannot be patched");
+      }
+    }
+    try {
+      objectMapper.readerForUpdating(target).readValue(patch);
+    } catch (IOException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed merge patch", e);
+    }
+    Set<ConstraintViolation<T>> violations = validator.validate(target);
+    if (!violations.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, violations.stream()
+          .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+          .sorted()
+          .collect(Collectors.joining(", ")));
+    }
+    return target;
+  }
+}
@@ -0,0 +1,70 @@
+package com.kvcrm.web;
+
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Writes repository streams as newline delimited JSON without materializing the result set.
+ *
+ * <p>Rows are serialized straight to the response as the JDBC cursor advances, and the
+ * persistence context is cleared every {@link #CHUNK_SIZE} rows so managed entities do not
+ * accumulate for the lifetime of the export. The response is flushed once per chunk rather than
+ * after every row.
+ */
+@Component
+@RequiredArgsConstructor
+class NdjsonExporter {
+
+  static final int CHUNK_SIZE = 500;
+
+  private final EntityManager entityManager;
+
+  private final ObjectMapper objectMapper;
+
+  private final PlatformTransactionManager transactionManager;
+
+  <T> ResponseEntity<StreamingResponseBody> export(Supplier<Stream<T>> source) {
+    StreamingResponseBody body = outputStream -> {
+      TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+      transactionTemplate.setReadOnly(true);
+      transactionTemplate.executeWithoutResult(status -> write(source, outputStream));
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  private <T> void write(Supplier<Stream<T>> source, OutputStream outputStream) {
+    ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    try (Stream<T> rows = source.get();
+         JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+      long count = 0;
+      for (T row : (Iterable<T>) rows::iterator) {
+        writer.writeValue(generator, row);
+        generator.writeRaw('\n');
+        if (++count % CHUNK_SIZE == 0) {
+          generator.flush();
+          entityManager.clear();
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -1,11 +1,15 @@
 package com.kvcrm.web;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.kvcrm.entity.Organization;
+import com.kvcrm.entity.Versioned;
 import com.kvcrm.repository.OrganizationRepository;
+import com.kvcrm.repository.OrganizationView;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,17 +17,25 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.iqkv.boot.restful.web.ApiError;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @Tag(name = "Organization resource", description = "API endpoints for managing organization entity.")
@@ -32,8 +44,18 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 class OrganizationResource {
 
+  private static final Set<String> PATCHABLE_PROPERTIES = Set.of("name", "phone", "address", "city", "region", "country", "postalCode", "email");
+
   private final OrganizationRepository organizationRepository;
 
+  private final BatchProcessor batchProcessor;
+
+  private final MergePatcher mergePatcher;
+
+  private final BulkDeleter bulkDeleter;
+
+  private final NdjsonExporter ndjsonExporter;
+
   @PostMapping
   @Operation(
       description = "Create a new organization.",
@@ -54,12 +76,34 @@ class OrganizationResource {
     return new ResponseEntity<>(organization, HttpStatus.CREATED);
   }
 
+  @PostMapping("/batch")
+  @Operation(
+      description = "Create, update and delete organizations in a single transaction. Returns one result per item, in request order.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<List<BatchResult>> batch(@RequestBody List<OrganizationBatchOperation> operations) {
+    return batchProcessor.process(operations, organizationRepository,
+        organizationRequest -> Organization.builder().email(organizationRequest.email()).build(),
+        (organization, organizationRequest) -> organization.setEmail(organizationRequest.email()),
+        Organization::getId);
+  }
+
   @GetMapping("/{id}")
   @Operation(
-      description = "Retrieve organization by id.",
+      description = "Retrieve organization by id. Pass `expand=account` to include the owning account.",
       responses = {
           @ApiResponse(responseCode = "200",
                        description = "Success"),
+          @ApiResponse(responseCode = "304",
+                       description = "Not modified"),
           @ApiResponse(responseCode = "500",
                        description = "Internal error",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
@@ -70,14 +114,74 @@ class OrganizationResource {
                        description = "Not found",
                        content = @Content(schema = @Schema(implementation = ApiError.class)))
       })
-  ResponseEntity<Organization> findById(@PathVariable("id") long id) {
-    Optional<Organization> organizationData = organizationRepository.findById(id);
-    return organizationData.map(organization -> new ResponseEntity<>(organization, HttpStatus.OK)).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+  ResponseEntity<?> findById(@PathVariable("id") long id,
+                             @RequestParam(defaultValue = "") Set<String> expand,
+                             WebRequest request) {
+    if (expand.contains(Expand.ACCOUNT)) {
+      Optional<Organization> organizationData = organizationRepository.findWithAccountById(id);
+      return organizationData.map(organization -> EntityTag.ok(organization, organization, organization.getAccount())).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+    if (EntityTag.hasPreconditions(request)) {
+      Optional<ResponseEntity<Void>> notModified = organizationRepository.findVersionById(id)
+          .flatMap(version -> EntityTag.checkNotModified(request, version));
+      if (notModified.isPresent()) {
+        return notModified.get();
+      }
+    }
+    Optional<OrganizationView> organizationData = organizationRepository.findViewById(id);
+    return organizationData.map(organization -> EntityTag.ok(organization, organization)).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
   }
 
   @GetMapping
   @Operation(
-      description = "Get all the organizations.",
+      description = "Get the organizations page by page, ordered by id. Pass the returned `next` cursor as `after` to continue "
+          + "and `expand=account` to include the owning accounts.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "304",
+                       description = "Not modified"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<CursorPage<?>> findAll(@RequestParam(required = false) String after,
+                                        @RequestParam(defaultValue = KeysetCursor.DEFAULT_LIMIT) int limit,
+                                        @RequestParam(defaultValue = "") Set<String> expand) {
+    long afterId = KeysetCursor.decode(after);
+    Pageable pageable = KeysetCursor.pageable(limit);
+    if (expand.contains(Expand.ACCOUNT)) {
+      Slice<Organization> organizations = organizationRepository.findWithAccountByIdGreaterThan(afterId, pageable);
+      List<Versioned> versions = organizations.stream()
+          .flatMap(organization -> Stream.<Versioned>of(organization, organization.getAccount()))
+          .toList();
+      return EntityTag.page(CursorPage.of(organizations, Organization::getId), versions);
+    }
+    Slice<OrganizationView> organizations = organizationRepository.findViewsByIdGreaterThan(afterId, pageable);
+    return EntityTag.page(CursorPage.of(organizations, OrganizationView::getId), organizations.getContent());
+  }
+
+  @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @Operation(
+      description = "Export all the organizations as newline delimited JSON, one organization per line.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<StreamingResponseBody> export() {
+    return ndjsonExporter.export(organizationRepository::streamAll);
+  }
+
+  @GetMapping("/search")
+  @Operation(
+      description = "Search organizations by name containing the term, case-insensitively, best matches first. "
+          + "Terms shorter than 3 characters return no results.",
       responses = {
           @ApiResponse(responseCode = "200",
                        description = "Success"),
@@ -88,17 +192,25 @@ class OrganizationResource {
                        description = "Bad request",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
       })
-  ResponseEntity<List<Organization>> findAll() {
-    List<Organization> organizations = new ArrayList<>(organizationRepository.findAll());
+  ResponseEntity<List<OrganizationView>> search(@RequestParam String q,
+                                                @RequestParam(defaultValue = SearchTerm.DEFAULT_LIMIT) int limit) {
+    if (!SearchTerm.isSearchable(q)) {
+      return new ResponseEntity<>(List.of(), HttpStatus.OK);
+    }
+    List<OrganizationView> organizations = organizationRepository.searchByName(q.strip(), SearchTerm.containsPattern(q), SearchTerm.limit(limit));
     return new ResponseEntity<>(organizations, HttpStatus.OK);
   }
 
   @PutMapping("/{id}")
   @Operation(
-      description = "Updates an existing organization.",
+      description = "Updates an existing organization. Send the `ETag` of the copy being modified as `If-Match` to have the update "
+          + "refused with 412 when the organization changed in between.",
       responses = {
           @ApiResponse(responseCode = "200",
                        description = "Success"),
+          @ApiResponse(responseCode = "412",
+                       description = "Precondition failed, the organization was modified concurrently",
+                       content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
           @ApiResponse(responseCode = "500",
                        description = "Internal error",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
@@ -106,13 +218,54 @@ class OrganizationResource {
                        description = "Bad request",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
       })
-  ResponseEntity<Organization> update(@PathVariable("id") long id, @RequestBody OrganizationRequest organizationRequest) {
-    Optional<Organization> organizationData = organizationRepository.findById(id);
+  ResponseEntity<?> update(@PathVariable("id") long id, @RequestBody OrganizationRequest organizationRequest, WebRequest request) {
+    Optional<Organization> organizationData = organizationRepository.findForWriteById(id);
 
     if (organizationData.isPresent()) {
       Organization organization = organizationData.get();
+      Optional<ResponseEntity<ProblemDetail>> preconditionFailed = EntityTag.checkPreconditions(request, organization);
+      if (preconditionFailed.isPresent()) {
+        return preconditionFailed.get();
+      }
       organization.setEmail(organizationRequest.email());
-      return new ResponseEntity<>(organizationRepository.save(organization), HttpStatus.OK);
+      Organization updatedOrganization = organizationRepository.save(organization);
+      return EntityTag.ok(updatedOrganization, updatedOrganization);
+    } else {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+  }
+
+  @PatchMapping(value = "/{id}", consumes = {MergePatcher.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+  @Operation(
+      description = "Partially updates an existing organization with a JSON Merge Patch: only the members sent are changed and "
+          + "`null` clears a property. Only the changed columns are written. Honours `If-Match` like the full update.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "412",
+                       description = "Precondition failed, the organization was modified concurrently",
+                       content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "404",
+                       description = "Not found",
+                       content = @Content(schema = @Schema(implementation = ApiError.class)))
+      })
+  ResponseEntity<?> patch(@PathVariable("id") long id, @RequestBody JsonNode patch, WebRequest request) {
+    Optional<Organization> organizationData = organizationRepository.findForWriteById(id);
+
+    if (organizationData.isPresent()) {
+      Organization organization = organizationData.get();
+      Optional<ResponseEntity<ProblemDetail>> preconditionFailed = EntityTag.checkPreconditions(request, organization);
+      if (preconditionFailed.isPresent()) {
+        return preconditionFailed.get();
+      }
+      Organization patchedOrganization = organizationRepository.save(mergePatcher.apply(patch, organization, PATCHABLE_PROPERTIES));
+      return EntityTag.ok(patchedOrganization, patchedOrganization);
     } else {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
@@ -125,6 +278,28 @@ class OrganizationResource {
 
   }
 
+  @DeleteMapping
+  @Operation(
+      description = "Deletes the organizations with the given `ids`, or all the organizations of `accountId`, with a single update. "
+          + "Returns the number of organizations deleted.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<BulkDeleteResult> deleteAll(@RequestParam(required = false) List<Long> ids,
+                                             @RequestParam(required = false) Long accountId) {
+    return bulkDeleter.delete(organizationRepository, Organization.class, ids, accountId);
+  }
+
+  record OrganizationBatchOperation(BatchOperation.Action action, Long id, OrganizationRequest data) implements BatchOperation<OrganizationRequest> {
+  }
+
   record OrganizationRequest(String email) {
   }
 }
@@ -0,0 +1,50 @@
+package com.kvcrm.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Formats negotiated through {@code Accept} besides JSON, for service-to-service reads: Smile
+ * ({@code application/x-jackson-smile}) and CBOR ({@code application/cbor}), and the
+ * column-oriented {@link TableHttpMessageConverter#MEDIA_TYPE table shape} of pages and lists.
+ *
+ * <p>The binary converters replace the ones Spring MVC registers by default, so that they are
+ * built from the {@code spring.jackson} settings of the JSON one. Each format gets its own entity
+ * tags, see {@link FormatTagFilter}.
+ */
+@Configuration
+class ResponseFormatConfig {
+
+  @Bean
+  MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+  }
+
+  @Bean
+  MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+  }
+
+  @Bean
+  TableHttpMessageConverter tableHttpMessageConverter(ObjectMapper objectMapper) {
+    return new TableHttpMessageConverter(objectMapper);
+  }
+
+  /**
+   * Inside the compression filter, which strips its own suffix from the tags first.
+   */
+  @Bean
+  FilterRegistrationBean<FormatTagFilter> formatTagFilter() {
+    FilterRegistrationBean<FormatTagFilter> registration = new FilterRegistrationBean<>(new FormatTagFilter());
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 6);
+    return registration;
+  }
+}
@@ -0,0 +1,69 @@
+package com.kvcrm.web;
+
+import java.util.List;
+import java.util.Locale;
+
+import com.kvcrm.search.Suggestion;
+import com.kvcrm.search.SuggestionIndex;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.iqkv.boot.restful.web.ApiError;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@Tag(name = "Search resource", description = "API endpoints for typeahead search across entities.")
+@Validated
+@RequestMapping("/v1/search")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "kvcrm.search.suggest", name = "enabled", havingValue = "true")
+class SearchResource {
+
+  static final String DEFAULT_LIMIT = "10";
+
+  static final int MAX_LIMIT = 50;
+
+  private final SuggestionIndex suggestionIndex;
+
+  @GetMapping("/suggest")
+  @Operation(
+      description = "Suggest contacts and organizations with a name or email token starting with the prefix, served from memory.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<List<Suggestion>> suggest(@RequestParam String q,
+                                           @RequestParam(required = false) String type,
+                                           @RequestParam(defaultValue = DEFAULT_LIMIT) int limit) {
+    List<Suggestion> suggestions = suggestionIndex.suggest(q, parseType(type), Math.clamp(limit, 1, MAX_LIMIT));
+    return new ResponseEntity<>(suggestions, HttpStatus.OK);
+  }
+
+  private static Suggestion.Type parseType(String type) {
+    if (type == null) {
+      return null;
+    }
+    try {
+      return Suggestion.Type.valueOf(type.strip().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown suggestion type: " + type, e);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.kvcrm.web;
+
+/**
+ * Normalizes typeahead input for the trigram backed search queries.
+ *
+ * <p>Terms shorter than {@link #MIN_LENGTH} produce no trigrams, so the {@code pg_trgm} indexes
+ * cannot narrow the scan; such terms are answered with an empty result instead.
+ */
+final class SearchTerm {
+
+  static final String DEFAULT_LIMIT = "20";
+
+  static final int MAX_LIMIT = 100;
+
+  static final int MIN_LENGTH = 3;
+
+  private SearchTerm() {
+  }
+
+  static boolean isSearchable(String term) {
+    return term != null && term.strip().length() >= MIN_LENGTH;
+  }
+
+  static String containsPattern(String term) {
+    String escaped = term.strip()
+        .replace("\\", "\\\\")
+        .replace("%", "\\%")
+        .replace("_", "\\_");
+    return "%" + escaped + "%";
+  }
+
+  static int limit(int limit) {
+    return Math.clamp(limit, 1, MAX_LIMIT);
+  }
+}
@@ -0,0 +1,47 @@
+package com.kvcrm.web;
+
+import java.util.Collection;
+
+import com.kvcrm.config.RequestMetrics;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Counts the rows of every response body into the {@link RequestMetrics} of the request: the
+ * items of a page or list, one for a single resource and none for errors.
+ */
+@RestControllerAdvice
+class SerializedRowsAdvice implements ResponseBodyAdvice<Object> {
+
+  @Override
+  public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                ServerHttpRequest request, ServerHttpResponse response) {
+    RequestMetrics.addRowsSerialized(rows(body));
+    return body;
+  }
+
+  private static long rows(Object body) {
+    if (body == null || body instanceof ProblemDetail) {
+      return 0;
+    }
+    if (body instanceof CursorPage<?> page) {
+      return page.items().size();
+    }
+    if (body instanceof Collection<?> collection) {
+      return collection.size();
+    }
+    return 1;
+  }
+}
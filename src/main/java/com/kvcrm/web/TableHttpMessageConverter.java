@@ -0,0 +1,141 @@
+package com.kvcrm.web;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Writes pages and lists in a column-oriented shape, with the property names once and every item
+ * as an array of values in the same order:
+ *
+ * <pre>{"columns":["id","email"],"rows":[[1,"a@example.com"],[2,"b@example.com"]],"next":"..."}</pre>
+ *
+ * <p>Columns are the properties of the bean serializer of the first item, in serialization order,
+ * and every item is written straight from the getters of its own serializer without building a
+ * tree first. Properties an item does not have, or leaves out as {@code null}, have {@code null}
+ * in their column. The shape is only produced when {@link #MEDIA_TYPE} is asked for explicitly,
+ * never for a wildcard {@code Accept}.
+ */
+class TableHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+  static final String MEDIA_TYPE_VALUE = "application/vnd.kvcrm.table+json";
+
+  static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+  private final ObjectMapper objectMapper;
+
+  TableHttpMessageConverter(ObjectMapper objectMapper) {
+    super(MEDIA_TYPE);
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return CursorPage.class.isAssignableFrom(clazz) || Collection.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  public boolean canRead(Class<?> clazz, MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected boolean canWrite(MediaType mediaType) {
+    return mediaType != null && !mediaType.isWildcardType() && !mediaType.isWildcardSubtype() && super.canWrite(mediaType);
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("The table shape is only written", inputMessage);
+  }
+
+  @Override
+  protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+    Collection<?> items = body instanceof CursorPage<?> page ? page.items() : (Collection<?>) body;
+    SerializerProvider provider = objectMapper.getSerializerProviderInstance();
+    Map<Class<?>, Map<String, PropertyWriter>> writers = new HashMap<>();
+    Set<String> columns = items.isEmpty() ? Set.of() : writers(items.iterator().next(), provider, writers).keySet();
+
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(StreamUtils.nonClosing(outputMessage.getBody()))) {
+      generator.writeStartObject();
+      generator.writeArrayFieldStart("columns");
+      for (String column : columns) {
+        generator.writeString(column);
+      }
+      generator.writeEndArray();
+      generator.writeArrayFieldStart("rows");
+      for (Object item : items) {
+        Map<String, PropertyWriter> properties = writers(item, provider, writers);
+        generator.writeStartArray();
+        for (String column : columns) {
+          PropertyWriter property = properties.get(column);
+          if (property == null) {
+            generator.writeNull();
+          } else {
+            writeValue(property, item, generator, provider);
+          }
+        }
+        generator.writeEndArray();
+      }
+      generator.writeEndArray();
+      if (body instanceof CursorPage<?> page && page.next() != null) {
+        generator.writeStringField("next", page.next());
+      }
+      generator.writeEndObject();
+    }
+  }
+
+  /**
+   * Properties of the bean serializer of the class of the item, by name in serialization order.
+   */
+  private static Map<String, PropertyWriter> writers(Object item, SerializerProvider provider,
+                                                     Map<Class<?>, Map<String, PropertyWriter>> writers) throws JsonMappingException {
+    if (item == null) {
+      throw new HttpMessageNotWritableException("Only objects have a table shape, not null");
+    }
+    Map<String, PropertyWriter> properties = writers.get(item.getClass());
+    if (properties == null) {
+      JsonSerializer<Object> serializer = provider.findTypedValueSerializer(item.getClass(), true, null);
+      if (!(serializer instanceof BeanSerializerBase bean)) {
+        throw new HttpMessageNotWritableException("Only objects have a table shape, not " + item.getClass().getName());
+      }
+      properties = new LinkedHashMap<>();
+      for (Iterator<PropertyWriter> iterator = bean.properties(); iterator.hasNext(); ) {
+        PropertyWriter property = iterator.next();
+        properties.put(property.getName(), property);
+      }
+      writers.put(item.getClass(), properties);
+    }
+    return properties;
+  }
+
+  private static void writeValue(PropertyWriter property, Object item, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    try {
+      property.serializeAsElement(item, generator, provider);
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw JsonMappingException.from(generator, "Could not write " + property.getName(), e);
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package com.kvcrm.web;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.kvcrm.config.PrimaryReads;
+import com.kvcrm.entity.Account;
+import com.kvcrm.entity.Contact;
+import com.kvcrm.entity.Organization;
+import com.kvcrm.entity.User;
+import com.kvcrm.repository.SoftDeletedEvent;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Pages of the account-scoped collections of {@link TenantResource}, invalidated per account.
+ *
+ * <p>The Hibernate query cache invalidates by table, so with contacts written all day long it would
+ * rarely serve a page of any account. Pages are cached here instead under a key holding a generation
+ * of their account, which Hibernate post-commit events bump when an entity of that account is
+ * inserted, updated or deleted. Pages of older generations are never read again and age out of the
+ * {@code tenant.<entity>} region. Bulk soft deletes bypass those events and bump every account of
+ * the type once committed.
+ *
+ * <p>Pages filling the cache are read from the primary. A replica that has not yet applied the
+ * write behind a generation bump would otherwise have its stale page cached under the new
+ * generation until the region expires.
+ *
+ * <p>Generations are local to this instance, like the second-level cache itself: writes made
+ * through another instance are only seen once the cached pages expire.
+ */
+@Component
+@EnableConfigurationProperties(TenantPageCacheProperties.class)
+class TenantPageCache implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+  private static final String REGION_PREFIX = "tenant.";
+
+  private final boolean enabled;
+
+  private final ObjectProvider<javax.cache.CacheManager> cacheManager;
+
+  private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+  private final Map<Class<?>, Generations> generations = Map.of(
+      Contact.class, new Generations(),
+      Organization.class, new Generations(),
+      User.class, new Generations());
+
+  TenantPageCache(TenantPageCacheProperties properties,
+                  ObjectProvider<javax.cache.CacheManager> cacheManager,
+                  ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+    this.enabled = properties.isEnabled();
+    this.cacheManager = cacheManager;
+    this.entityManagerFactory = entityManagerFactory;
+  }
+
+  @PostConstruct
+  void registerListeners() {
+    if (!enabled) {
+      return;
+    }
+    entityManagerFactory.ifAvailable(factory -> {
+      EventListenerRegistry registry = factory.unwrap(SessionFactoryImplementor.class)
+          .getServiceRegistry()
+          .getService(EventListenerRegistry.class);
+      registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+      registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+      registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    });
+  }
+
+  /**
+   * Returns the cached page of {@code entityType} for the account, loading it from the primary
+   * when absent. Pages are loaded every time, wherever reads are routed, when there is no JCache
+   * manager or no region for the type.
+   */
+  @SuppressWarnings("unchecked")
+  <T> CursorPage<T> get(Class<?> entityType, long accountId, long afterId, int limit, Supplier<CursorPage<T>> loader) {
+    javax.cache.CacheManager manager = enabled ? cacheManager.getIfAvailable() : null;
+    javax.cache.Cache<Object, Object> cache = manager == null ? null
+        : manager.getCache(REGION_PREFIX + entityType.getSimpleName().toLowerCase());
+    if (cache == null) {
+      return loader.get();
+    }
+    PageKey key = generations.get(entityType).key(accountId, afterId, limit);
+    CursorPage<T> page = (CursorPage<T>) cache.get(key);
+    if (page == null) {
+      page = PrimaryReads.call(loader);
+      cache.put(key, page);
+    }
+    return page;
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    invalidate(event.getPersister(), event.getState());
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    invalidate(event.getPersister(), event.getState());
+    invalidate(event.getPersister(), event.getOldState());
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    invalidate(event.getPersister(), event.getDeletedState());
+  }
+
+  @TransactionalEventListener
+  void onSoftDeleted(SoftDeletedEvent event) {
+    Generations typeGenerations = generations.get(event.entityType());
+    if (typeGenerations != null) {
+      typeGenerations.epoch.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void onPostInsertCommitFailed(PostInsertEvent event) {
+    // nothing is invalidated before the commit
+  }
+
+  @Override
+  public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    // nothing is invalidated before the commit
+  }
+
+  @Override
+  public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    // nothing is invalidated before the commit
+  }
+
+  @Override
+  public boolean requiresPostCommitHandling(EntityPersister persister) {
+    return generations.containsKey(persister.getMappedClass());
+  }
+
+  /**
+   * Bumps the generation of the account owning the entity, or of every account when the state
+   * does not tell, as for updates of detached entities without their previous state.
+   */
+  private void invalidate(EntityPersister persister, Object[] state) {
+    Generations typeGenerations = generations.get(persister.getMappedClass());
+    if (typeGenerations == null) {
+      return;
+    }
+    Long accountId = state == null ? null : accountId(state[persister.getPropertyIndex("account")]);
+    if (accountId == null) {
+      typeGenerations.epoch.incrementAndGet();
+    } else {
+      typeGenerations.of(accountId).incrementAndGet();
+    }
+  }
+
+  /**
+   * Reads the id of the owning account, which may be an uninitialized proxy.
+   */
+  private static Long accountId(Object account) {
+    LazyInitializer lazyInitializer = HibernateProxy.extractLazyInitializer(account);
+    if (lazyInitializer != null) {
+      return (Long) lazyInitializer.getIdentifier();
+    }
+    return account instanceof Account loaded ? loaded.getId() : null;
+  }
+
+  /**
+   * Generation of every account of one entity type, plus an epoch bumped to invalidate all of them.
+   */
+  private static final class Generations {
+
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final Map<Long, AtomicLong> accounts = new ConcurrentHashMap<>();
+
+    AtomicLong of(long accountId) {
+      return accounts.computeIfAbsent(accountId, id -> new AtomicLong());
+    }
+
+    PageKey key(long accountId, long afterId, int limit) {
+      return new PageKey(accountId, epoch.get(), of(accountId).get(), afterId, limit);
+    }
+  }
+
+  private record PageKey(long accountId, long epoch, long generation, long afterId, int limit) {
+  }
+}
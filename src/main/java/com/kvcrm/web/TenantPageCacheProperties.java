@@ -0,0 +1,20 @@
+package com.kvcrm.web;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Caching of the account-scoped pages of {@link TenantResource}, see {@link TenantPageCache}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "kvcrm.cache.tenant-pages")
+class TenantPageCacheProperties {
+
+  /**
+   * Whether pages are cached; they are still served from the database without a JCache manager.
+   */
+  private boolean enabled = true;
+
+}
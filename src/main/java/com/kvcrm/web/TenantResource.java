@@ -0,0 +1,147 @@
+package com.kvcrm.web;
+
+import com.kvcrm.entity.Contact;
+import com.kvcrm.entity.Organization;
+import com.kvcrm.entity.User;
+import com.kvcrm.entity.Versioned;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import com.kvcrm.repository.ContactView;
+import com.kvcrm.repository.OrganizationRepository;
+import com.kvcrm.repository.OrganizationView;
+import com.kvcrm.repository.UserRepository;
+import com.kvcrm.repository.UserView;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.iqkv.boot.restful.web.ApiError;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Collections of a single account, paged by keyset over {@code (account_id, id)} so the work
+ * done per page depends on the size of the tenant rather than of the table. Pages are cached per
+ * account by {@link TenantPageCache}.
+ */
+@RestController
+@Tag(name = "Tenant resource", description = "API endpoints for listing the entities of an account.")
+@Validated
+@RequestMapping("/v1/accounts/{accountId}")
+@RequiredArgsConstructor
+class TenantResource {
+
+  private final AccountRepository accountRepository;
+
+  private final ContactRepository contactRepository;
+
+  private final OrganizationRepository organizationRepository;
+
+  private final UserRepository userRepository;
+
+  private final TenantPageCache tenantPageCache;
+
+  @GetMapping("/contacts")
+  @Operation(
+      description = "Get the contacts of the account page by page, ordered by id. Pass the returned `next` cursor as `after` "
+          + "to continue.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "304",
+                       description = "Not modified"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "404",
+                       description = "Account not found",
+                       content = @Content(schema = @Schema(implementation = ApiError.class)))
+      })
+  ResponseEntity<CursorPage<ContactView>> findContacts(@PathVariable("accountId") long accountId,
+                                                       @RequestParam(required = false) String after,
+                                                       @RequestParam(defaultValue = KeysetCursor.DEFAULT_LIMIT) int limit) {
+    long afterId = KeysetCursor.decode(after);
+    Pageable pageable = KeysetCursor.pageable(limit);
+    return page(accountId, tenantPageCache.get(Contact.class, accountId, afterId, pageable.getPageSize(),
+        () -> CursorPage.of(contactRepository.findViewsByAccountIdAndIdGreaterThan(accountId, afterId, pageable), ContactView::getId)));
+  }
+
+  @GetMapping("/organizations")
+  @Operation(
+      description = "Get the organizations of the account page by page, ordered by id. Pass the returned `next` cursor as "
+          + "`after` to continue.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "304",
+                       description = "Not modified"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "404",
+                       description = "Account not found",
+                       content = @Content(schema = @Schema(implementation = ApiError.class)))
+      })
+  ResponseEntity<CursorPage<OrganizationView>> findOrganizations(@PathVariable("accountId") long accountId,
+                                                                 @RequestParam(required = false) String after,
+                                                                 @RequestParam(defaultValue = KeysetCursor.DEFAULT_LIMIT) int limit) {
+    long afterId = KeysetCursor.decode(after);
+    Pageable pageable = KeysetCursor.pageable(limit);
+    return page(accountId, tenantPageCache.get(Organization.class, accountId, afterId, pageable.getPageSize(),
+        () -> CursorPage.of(organizationRepository.findViewsByAccountIdAndIdGreaterThan(accountId, afterId, pageable), OrganizationView::getId)));
+  }
+
+  @GetMapping("/users")
+  @Operation(
+      description = "Get the users of the account page by page, ordered by id. Pass the returned `next` cursor as `after` "
+          + "to continue.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "304",
+                       description = "Not modified"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "404",
+                       description = "Account not found",
+                       content = @Content(schema = @Schema(implementation = ApiError.class)))
+      })
+  ResponseEntity<CursorPage<UserView>> findUsers(@PathVariable("accountId") long accountId,
+                                                 @RequestParam(required = false) String after,
+                                                 @RequestParam(defaultValue = KeysetCursor.DEFAULT_LIMIT) int limit) {
+    long afterId = KeysetCursor.decode(after);
+    Pageable pageable = KeysetCursor.pageable(limit);
+    return page(accountId, tenantPageCache.get(User.class, accountId, afterId, pageable.getPageSize(),
+        () -> CursorPage.of(userRepository.findViewsByAccountIdAndIdGreaterThan(accountId, afterId, pageable), UserView::getId)));
+  }
+
+  /**
+   * An empty page is either an empty account or no account at all; only then is the (cached)
+   * account looked up to tell the two apart.
+   */
+  private <T extends Versioned> ResponseEntity<CursorPage<T>> page(long accountId, CursorPage<T> page) {
+    if (page.items().isEmpty() && accountRepository.findById(accountId).isEmpty()) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    return EntityTag.page(page, page.items());
+  }
+}
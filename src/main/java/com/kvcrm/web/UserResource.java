@@ -1,11 +1,15 @@
 package com.kvcrm.web;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.kvcrm.entity.User;
+import com.kvcrm.entity.Versioned;
 import com.kvcrm.repository.UserRepository;
+import com.kvcrm.repository.UserView;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,17 +17,24 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.iqkv.boot.restful.web.ApiError;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @Tag(name = "User resource", description = "API endpoints for managing user entity.")
@@ -32,8 +43,16 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 class UserResource {
 
+  private static final Set<String> PATCHABLE_PROPERTIES = Set.of("firstName", "lastName", "email", "photoPath");
+
   private final UserRepository userRepository;
 
+  private final BatchProcessor batchProcessor;
+
+  private final MergePatcher mergePatcher;
+
+  private final BulkDeleter bulkDeleter;
+
   @PostMapping
   @Operation(
       description = "Create a new user.",
@@ -54,12 +73,34 @@ class UserResource {
     return new ResponseEntity<>(user, HttpStatus.CREATED);
   }
 
+  @PostMapping("/batch")
+  @Operation(
+      description = "Create, update and delete users in a single transaction. Returns one result per item, in request order.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<List<BatchResult>> batch(@RequestBody List<UserBatchOperation> operations) {
+    return batchProcessor.process(operations, userRepository,
+        userRequest -> User.builder().email(userRequest.email()).build(),
+        (user, userRequest) -> user.setEmail(userRequest.email()),
+        User::getId);
+  }
+
   @GetMapping("/{id}")
   @Operation(
-      description = "Retrieve user by id.",
+      description = "Retrieve user by id. Pass `expand=account` to include the owning account.",
       responses = {
           @ApiResponse(responseCode = "200",
                        description = "Success"),
+          @ApiResponse(responseCode = "304",
+                       description = "Not modified"),
           @ApiResponse(responseCode = "500",
                        description = "Internal error",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
@@ -70,17 +111,33 @@ class UserResource {
                        description = "Not found",
                        content = @Content(schema = @Schema(implementation = ApiError.class)))
       })
-  ResponseEntity<User> findById(@PathVariable("id") long id) {
-    Optional<User> userData = userRepository.findById(id);
-    return userData.map(user -> new ResponseEntity<>(user, HttpStatus.OK)).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+  ResponseEntity<?> findById(@PathVariable("id") long id,
+                             @RequestParam(defaultValue = "") Set<String> expand,
+                             WebRequest request) {
+    if (expand.contains(Expand.ACCOUNT)) {
+      Optional<User> userData = userRepository.findWithAccountById(id);
+      return userData.map(user -> EntityTag.ok(user, user, user.getAccount())).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+    if (EntityTag.hasPreconditions(request)) {
+      Optional<ResponseEntity<Void>> notModified = userRepository.findVersionById(id)
+          .flatMap(version -> EntityTag.checkNotModified(request, version));
+      if (notModified.isPresent()) {
+        return notModified.get();
+      }
+    }
+    Optional<UserView> userData = userRepository.findViewById(id);
+    return userData.map(user -> EntityTag.ok(user, user)).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
   }
 
   @GetMapping
   @Operation(
-      description = "Get all the users.",
+      description = "Get the users page by page, ordered by id. Pass the returned `next` cursor as `after` to continue "
+          + "and `expand=account` to include the owning accounts.",
       responses = {
           @ApiResponse(responseCode = "200",
                        description = "Success"),
+          @ApiResponse(responseCode = "304",
+                       description = "Not modified"),
           @ApiResponse(responseCode = "500",
                        description = "Internal error",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
@@ -88,17 +145,32 @@ class UserResource {
                        description = "Bad request",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
       })
-  ResponseEntity<List<User>> findAll() {
-    List<User> users = new ArrayList<>(userRepository.findAll());
-    return new ResponseEntity<>(users, HttpStatus.OK);
+  ResponseEntity<CursorPage<?>> findAll(@RequestParam(required = false) String after,
+                                        @RequestParam(defaultValue = KeysetCursor.DEFAULT_LIMIT) int limit,
+                                        @RequestParam(defaultValue = "") Set<String> expand) {
+    long afterId = KeysetCursor.decode(after);
+    Pageable pageable = KeysetCursor.pageable(limit);
+    if (expand.contains(Expand.ACCOUNT)) {
+      Slice<User> users = userRepository.findWithAccountByIdGreaterThan(afterId, pageable);
+      List<Versioned> versions = users.stream()
+          .flatMap(user -> Stream.<Versioned>of(user, user.getAccount()))
+          .toList();
+      return EntityTag.page(CursorPage.of(users, User::getId), versions);
+    }
+    Slice<UserView> users = userRepository.findViewsByIdGreaterThan(afterId, pageable);
+    return EntityTag.page(CursorPage.of(users, UserView::getId), users.getContent());
   }
 
   @PutMapping("/{id}")
   @Operation(
-      description = "Updates an existing user.",
+      description = "Updates an existing user. Send the `ETag` of the copy being modified as `If-Match` to have the update "
+          + "refused with 412 when the user changed in between.",
       responses = {
           @ApiResponse(responseCode = "200",
                        description = "Success"),
+          @ApiResponse(responseCode = "412",
+                       description = "Precondition failed, the user was modified concurrently",
+                       content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
           @ApiResponse(responseCode = "500",
                        description = "Internal error",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
@@ -106,13 +178,54 @@ class UserResource {
                        description = "Bad request",
                        content = @Content(schema = @Schema(implementation = ApiError.class))),
       })
-  ResponseEntity<User> update(@PathVariable("id") long id, @RequestBody UserRequest userRequest) {
-    Optional<User> userData = userRepository.findById(id);
+  ResponseEntity<?> update(@PathVariable("id") long id, @RequestBody UserRequest userRequest, WebRequest request) {
+    Optional<User> userData = userRepository.findForWriteById(id);
 
     if (userData.isPresent()) {
       User user = userData.get();
+      Optional<ResponseEntity<ProblemDetail>> preconditionFailed = EntityTag.checkPreconditions(request, user);
+      if (preconditionFailed.isPresent()) {
+        return preconditionFailed.get();
+      }
       user.setEmail(userRequest.email());
-      return new ResponseEntity<>(userRepository.save(user), HttpStatus.OK);
+      User updatedUser = userRepository.save(user);
+      return EntityTag.ok(updatedUser, updatedUser);
+    } else {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+  }
+
+  @PatchMapping(value = "/{id}", consumes = {MergePatcher.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+  @Operation(
+      description = "Partially updates an existing user with a JSON Merge Patch: only the members sent are changed and "
+          + "`null` clears a property. Only the changed columns are written. Honours `If-Match` like the full update.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "412",
+                       description = "Precondition failed, the user was modified concurrently",
+                       content = @Content(schema = @Schema(implementation = ProblemDetail.class))),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "404",
+                       description = "Not found",
+                       content = @Content(schema = @Schema(implementation = ApiError.class)))
+      })
+  ResponseEntity<?> patch(@PathVariable("id") long id, @RequestBody JsonNode patch, WebRequest request) {
+    Optional<User> userData = userRepository.findForWriteById(id);
+
+    if (userData.isPresent()) {
+      User user = userData.get();
+      Optional<ResponseEntity<ProblemDetail>> preconditionFailed = EntityTag.checkPreconditions(request, user);
+      if (preconditionFailed.isPresent()) {
+        return preconditionFailed.get();
+      }
+      User patchedUser = userRepository.save(mergePatcher.apply(patch, user, PATCHABLE_PROPERTIES));
+      return EntityTag.ok(patchedUser, patchedUser);
     } else {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
@@ -125,6 +238,28 @@ class UserResource {
 
   }
 
+  @DeleteMapping
+  @Operation(
+      description = "Deletes the users with the given `ids`, or all the users of `accountId`, with a single update. "
+          + "Returns the number of users deleted.",
+      responses = {
+          @ApiResponse(responseCode = "200",
+                       description = "Success"),
+          @ApiResponse(responseCode = "500",
+                       description = "Internal error",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+          @ApiResponse(responseCode = "400",
+                       description = "Bad request",
+                       content = @Content(schema = @Schema(implementation = ApiError.class))),
+      })
+  ResponseEntity<BulkDeleteResult> deleteAll(@RequestParam(required = false) List<Long> ids,
+                                             @RequestParam(required = false) Long accountId) {
+    return bulkDeleter.delete(userRepository, User.class, ids, accountId);
+  }
+
+  record UserBatchOperation(BatchOperation.Action action, Long id, UserRequest data) implements BatchOperation<UserRequest> {
+  }
+
   record UserRequest(String email) {
   }
 }
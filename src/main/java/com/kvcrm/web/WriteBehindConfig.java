@@ -0,0 +1,47 @@
+package com.kvcrm.web;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kvcrm.entity.Contact;
+import com.kvcrm.repository.ContactRepository;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+@Configuration
+@EnableConfigurationProperties(WriteBehindProperties.class)
+class WriteBehindConfig {
+
+  /**
+   * Loads the pending contacts with one {@code IN} query and lets Hibernate batch their updates
+   * when the transaction commits. The versions checked before each write, and on replay, are read
+   * the same way.
+   */
+  @Bean
+  WriteBehindQueue<ContactResource.ContactRequest> contactWriteBehindQueue(WriteBehindProperties properties, ObjectMapper objectMapper,
+                                                                          PlatformTransactionManager transactionManager,
+                                                                          ContactRepository contactRepository) {
+    return new WriteBehindQueue<>("contacts", ContactResource.ContactRequest.class, properties, objectMapper,
+        new TransactionTemplate(transactionManager), (Map<Long, ContactResource.ContactRequest> updates) -> {
+          Map<Long, Contact> contacts = new HashMap<>();
+          contactRepository.findAllById(updates.keySet()).forEach(contact -> contacts.put(contact.getId(), contact));
+          updates.forEach((id, contactRequest) -> {
+            Contact contact = contacts.get(id);
+            if (contact == null) {
+              throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact " + id + " not found");
+            }
+            contact.setEmail(contactRequest.email());
+          });
+        }, ids -> {
+          Map<Long, Long> versions = new HashMap<>();
+          contactRepository.findAllById(ids).forEach(contact -> versions.put(contact.getId(), contact.getVersion()));
+          return versions;
+        });
+  }
+}
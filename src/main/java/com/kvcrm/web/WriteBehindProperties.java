@@ -0,0 +1,53 @@
+package com.kvcrm.web;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Asynchronous, coalescing updates requested with {@code Prefer: respond-async}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "kvcrm.write-behind")
+class WriteBehindProperties {
+
+  private boolean enabled;
+
+  /**
+   * Distinct entities waiting to be written; further updates of other entities are refused with 503.
+   */
+  private int capacity = 10_000;
+
+  /**
+   * Delay between the end of one flush and the start of the next.
+   */
+  private Duration flushInterval = Duration.ofMillis(200);
+
+  /**
+   * Pending entities that trigger a flush before the interval elapses.
+   */
+  private int flushSize = 500;
+
+  /**
+   * Where accepted updates are journaled until written, and replayed from on startup. Required, and
+   * absolute: a relative one would move with the working directory and lose the journal on restart.
+   */
+  private Path journalDirectory;
+
+  /**
+   * How long the outcome of a write stays available through its status handle.
+   */
+  private Duration statusRetention = Duration.ofMinutes(10);
+
+  void validate() {
+    if (journalDirectory == null || !journalDirectory.isAbsolute()) {
+      throw new IllegalStateException("kvcrm.write-behind.journal-directory must be an absolute path when write-behind is enabled, "
+          + "was '" + (journalDirectory == null ? "" : journalDirectory) + "'");
+    }
+  }
+
+}
@@ -0,0 +1,547 @@
+package com.kvcrm.web;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Accepts updates of one entity type to be written later, coalescing the updates of each entity
+ * so that only the last one accepted before a flush reaches the database.
+ *
+ * <p>Pending updates are flushed every {@code flush-interval}, or as soon as {@code flush-size}
+ * entities are pending, by handing them all to the writer in a single transaction. When that
+ * transaction fails for a reason other than the database being unreachable, the updates are
+ * retried one transaction each so a single refused update does not hold back the others.
+ *
+ * <p>Every accepted update is first appended and forced to a journal segment. Updates submitted
+ * together share a force, so the disk sees one sync per group rather than one per update. A flush
+ * starts a new segment and deletes the older ones once written, and segments left behind by a crash
+ * are replayed on startup, so an update acknowledged with 202 is not lost with the process.
+ *
+ * <p>Each update records the version the entity had when it was accepted, and fails as a conflict
+ * when the entity has changed since by the time it is flushed, rather than overwriting the later
+ * change. A replayed update of a changed entity is skipped the same way, as it was either written
+ * before the crash or would overwrite a later change.
+ *
+ * @param <R> update request
+ */
+@Slf4j
+class WriteBehindQueue<R> implements SmartLifecycle {
+
+  static final String PREFER = "Prefer";
+
+  static final String PREFERENCE_APPLIED = "Preference-Applied";
+
+  static final String RESPOND_ASYNC = "respond-async";
+
+  private static final String SEGMENT_SUFFIX = ".journal";
+
+  private final String name;
+
+  private final Class<R> type;
+
+  private final WriteBehindProperties properties;
+
+  private final ObjectMapper objectMapper;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final Consumer<Map<Long, R>> writer;
+
+  private final Function<Collection<Long>, Map<Long, Long>> versions;
+
+  private final Pattern segmentPattern;
+
+  private final Map<UUID, WriteStatus> statuses = new ConcurrentHashMap<>();
+
+  /**
+   * Guards {@link #pending} and appends to the journal. Not {@code synchronized}, which would pin a
+   * virtual thread to its carrier.
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Held by the submitter forcing the journal. Submitters queued behind it usually find their
+   * entries forced along with its own once they get the lock.
+   */
+  private final ReentrantLock forceLock = new ReentrantLock();
+
+  /**
+   * Entries forced to disk, counted like {@link #appended}.
+   */
+  private final AtomicLong forced = new AtomicLong();
+
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  private Map<Long, Pending<R>> pending = new LinkedHashMap<>();
+
+  private FileChannel journal;
+
+  private long segment;
+
+  private long appended;
+
+  private ScheduledExecutorService executor;
+
+  private volatile boolean running;
+
+  /**
+   * @param writer   applies updates by entity id within the current transaction, throwing to refuse them
+   * @param versions current versions of the given entities, read within the current transaction
+   */
+  WriteBehindQueue(String name, Class<R> type, WriteBehindProperties properties, ObjectMapper objectMapper,
+                   TransactionTemplate transactionTemplate, Consumer<Map<Long, R>> writer,
+                   Function<Collection<Long>, Map<Long, Long>> versions) {
+    this.name = name;
+    this.type = type;
+    this.properties = properties;
+    this.objectMapper = objectMapper;
+    this.transactionTemplate = transactionTemplate;
+    this.writer = writer;
+    this.versions = versions;
+    this.segmentPattern = Pattern.compile(Pattern.quote(name) + "-\\d+" + Pattern.quote(SEGMENT_SUFFIX));
+  }
+
+  boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  /**
+   * Whether the client asked for {@code Prefer: respond-async} without {@code If-Match} or
+   * {@code If-Unmodified-Since}, which can only be evaluated against the stored version synchronously.
+   */
+  static boolean isRequested(WebRequest request) {
+    String prefer = request.getHeader(PREFER);
+    return prefer != null
+        && Arrays.stream(prefer.split(",")).map(String::strip).anyMatch(RESPOND_ASYNC::equalsIgnoreCase)
+        && request.getHeader(HttpHeaders.IF_MATCH) == null
+        && request.getHeader(HttpHeaders.IF_UNMODIFIED_SINCE) == null;
+  }
+
+  /**
+   * Journals the update and queues it, superseding any update of the same entity still pending.
+   *
+   * @param version version of the entity the update was accepted against
+   */
+  WriteStatus submit(long id, long version, R data) {
+    if (!running) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Asynchronous writes are not accepted");
+    }
+    UUID handle = UUID.randomUUID();
+    WriteStatus status = WriteStatus.pending(handle, id);
+    boolean full;
+    long sequence;
+    lock.lock();
+    try {
+      Pending<R> superseded = pending.get(id);
+      if (superseded == null && pending.size() >= properties.getCapacity()) {
+        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many pending asynchronous writes");
+      }
+      append(new JournalEntry(handle, id, version, objectMapper.valueToTree(data)));
+      sequence = ++appended;
+      statuses.put(handle, status);
+      pending.put(id, Pending.of(id, version, data, handle, superseded));
+      full = pending.size() >= properties.getFlushSize();
+    } finally {
+      lock.unlock();
+    }
+    awaitForced(sequence);
+    if (full) {
+      try {
+        executor.execute(this::flush);
+      } catch (RejectedExecutionException e) {
+        // stopping, the final flush writes it
+      }
+    }
+    return status;
+  }
+
+  Optional<WriteStatus> status(UUID handle) {
+    return Optional.ofNullable(statuses.get(handle));
+  }
+
+  /**
+   * Writes everything pending. Does nothing when another flush is in progress.
+   */
+  void flush() {
+    if (!flushLock.tryLock()) {
+      return;
+    }
+    try {
+      Map<Long, Pending<R>> batch;
+      long written;
+      lock.lock();
+      try {
+        if (pending.isEmpty()) {
+          return;
+        }
+        batch = pending;
+        pending = new LinkedHashMap<>();
+        written = segment;
+        openSegment(segment + 1);
+      } finally {
+        lock.unlock();
+      }
+      Map<Long, Pending<R>> retry = write(batch);
+      if (retry.isEmpty()) {
+        deleteSegmentsUpTo(written);
+      } else {
+        requeue(retry);
+      }
+      expireStatuses();
+    } catch (RuntimeException e) {
+      log.error("Flushing asynchronous {} writes failed", name, e);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private Map<Long, Pending<R>> write(Map<Long, Pending<R>> batch) {
+    try {
+      transactionTemplate.executeWithoutResult(status -> writer.accept(unchanged(batch)));
+      batch.values().forEach(entry -> complete(entry, WriteStatus.State.APPLIED, null));
+      return Map.of();
+    } catch (TransientDataAccessException | CannotCreateTransactionException e) {
+      log.warn("Writing {} asynchronous {} updates failed, retrying later", batch.size(), name, e);
+      return batch;
+    } catch (RuntimeException e) {
+      Map<Long, Pending<R>> retry = new LinkedHashMap<>();
+      batch.forEach((id, entry) -> {
+        Map<Long, Pending<R>> single = new LinkedHashMap<>(Map.of(id, entry));
+        try {
+          transactionTemplate.executeWithoutResult(status -> writer.accept(unchanged(single)));
+          if (!single.isEmpty()) {
+            complete(entry, WriteStatus.State.APPLIED, null);
+          }
+        } catch (TransientDataAccessException | CannotCreateTransactionException transientFailure) {
+          retry.put(id, entry);
+        } catch (RuntimeException failure) {
+          complete(entry, WriteStatus.State.FAILED, reason(failure));
+        }
+      });
+      return retry;
+    }
+  }
+
+  /**
+   * Fails and removes the entries of entities changed since their update was accepted, and returns
+   * the updates of the others. Called within the writing transaction, whose commit the version of
+   * each entity still guards against changes made after this check.
+   */
+  private Map<Long, R> unchanged(Map<Long, Pending<R>> entries) {
+    Map<Long, Long> current = versions.apply(List.copyOf(entries.keySet()));
+    entries.values().removeIf(entry -> {
+      if (!isChanged(entry, current)) {
+        return false;
+      }
+      complete(entry, WriteStatus.State.FAILED, "Conflict, the entity changed after the update was accepted");
+      return true;
+    });
+    return data(entries);
+  }
+
+  /**
+   * Entries journaled without a version, and entities no longer found, are never taken as changed.
+   */
+  private static boolean isChanged(Pending<?> entry, Map<Long, Long> current) {
+    Long version = current.get(entry.id());
+    return entry.version() != null && version != null && !entry.version().equals(version);
+  }
+
+  private void requeue(Map<Long, Pending<R>> retry) {
+    lock.lock();
+    try {
+      Map<Long, Pending<R>> requeued = new LinkedHashMap<>(retry);
+      pending.forEach((id, entry) -> requeued.merge(id, entry, (older, newer) -> newer.supersede(older)));
+      pending = requeued;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void complete(Pending<R> entry, WriteStatus.State state, String error) {
+    entry.handles().forEach(handle -> statuses.computeIfPresent(handle, (key, status) -> status.complete(state, error)));
+  }
+
+  private void expireStatuses() {
+    Instant expiry = Instant.now().minus(properties.getStatusRetention());
+    statuses.values().removeIf(status -> status.state() != WriteStatus.State.PENDING && status.updatedAt().isBefore(expiry));
+  }
+
+  private static String reason(RuntimeException failure) {
+    if (failure instanceof ResponseStatusException responseStatus) {
+      return responseStatus.getReason() != null ? responseStatus.getReason() : responseStatus.getStatusCode().toString();
+    }
+    return failure.getClass().getSimpleName();
+  }
+
+  private static <R> Map<Long, R> data(Map<Long, Pending<R>> batch) {
+    Map<Long, R> data = new LinkedHashMap<>();
+    batch.forEach((id, entry) -> data.put(id, entry.data()));
+    return data;
+  }
+
+  @Override
+  public void start() {
+    if (!properties.isEnabled()) {
+      return;
+    }
+    properties.validate();
+    lock.lock();
+    try {
+      Files.createDirectories(properties.getJournalDirectory());
+      List<Path> segments = segments();
+      for (Path replayed : segments) {
+        replay(replayed);
+      }
+      skipStale();
+      openSegment(segments.isEmpty() ? 1 : segmentNumber(segments.getLast()) + 1);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      lock.unlock();
+    }
+    if (!pending.isEmpty()) {
+      log.info("Replayed {} asynchronous {} updates from the journal", pending.size(), name);
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("write-behind-" + name).factory());
+    long period = properties.getFlushInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::flush, period, period, TimeUnit.MILLISECONDS);
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    executor.shutdown();
+    try {
+      executor.awaitTermination(properties.getFlushInterval().toMillis() * 10, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+    lock.lock();
+    try {
+      closeSegment();
+    } catch (IOException e) {
+      log.warn("Closing the asynchronous {} journal failed", name, e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Starts before and stops after the web server, so requests never reach a queue that is
+   * replaying its journal or has already been drained.
+   */
+  @Override
+  public int getPhase() {
+    return SmartLifecycle.DEFAULT_PHASE - 4096;
+  }
+
+  private void append(JournalEntry entry) {
+    try {
+      ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(entry) + '\n').getBytes(UTF_8));
+      while (line.hasRemaining()) {
+        journal.write(line);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns once the journal is forced up to the entry appended as {@code sequence}. The first
+   * submitter to get here forces everything appended so far, so the ones that appended while it
+   * waited for the disk return without forcing again.
+   */
+  private void awaitForced(long sequence) {
+    forceLock.lock();
+    try {
+      if (forced.get() >= sequence) {
+        return;
+      }
+      FileChannel channel;
+      long upTo;
+      lock.lock();
+      try {
+        channel = journal;
+        upTo = appended;
+      } finally {
+        lock.unlock();
+      }
+      try {
+        channel.force(false);
+      } catch (ClosedChannelException e) {
+        // a flush moved on to a new segment and forced this one before closing it
+      }
+      forced.accumulateAndGet(upTo, Math::max);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      forceLock.unlock();
+    }
+  }
+
+  private void replay(Path replayed) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(replayed, UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        try {
+          JournalEntry entry = objectMapper.readValue(line, JournalEntry.class);
+          statuses.put(entry.handle(), WriteStatus.pending(entry.handle(), entry.id()));
+          pending.put(entry.id(), Pending.of(entry.id(), entry.version(), objectMapper.treeToValue(entry.data(), type),
+              entry.handle(), pending.get(entry.id())));
+        } catch (JsonProcessingException e) {
+          log.warn("Skipping unreadable entry of asynchronous {} journal {}", name, replayed, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Drops the replayed updates of entities whose version moved on since the update was accepted.
+   */
+  private void skipStale() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    Map<Long, Long> current = transactionTemplate.execute(status -> versions.apply(List.copyOf(pending.keySet())));
+    pending.values().removeIf(entry -> {
+      if (!isChanged(entry, current)) {
+        return false;
+      }
+      complete(entry, WriteStatus.State.FAILED, "Skipped on replay, the entity changed after the update was accepted");
+      return true;
+    });
+  }
+
+  private void openSegment(long number) {
+    try {
+      closeSegment();
+      journal = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+      segment = number;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Forces and closes the current segment, which covers every entry appended so far.
+   */
+  private void closeSegment() throws IOException {
+    if (journal != null) {
+      journal.force(false);
+      forced.accumulateAndGet(appended, Math::max);
+      journal.close();
+    }
+  }
+
+  private void deleteSegmentsUpTo(long number) {
+    try {
+      for (Path written : segments()) {
+        if (segmentNumber(written) <= number) {
+          Files.deleteIfExists(written);
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Deleting written segments of asynchronous {} journal failed", name, e);
+    }
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(properties.getJournalDirectory())) {
+      return files
+          .filter(file -> segmentPattern.matcher(file.getFileName().toString()).matches())
+          .sorted((left, right) -> Long.compare(segmentNumber(left), segmentNumber(right)))
+          .toList();
+    }
+  }
+
+  private Path segmentPath(long number) {
+    return properties.getJournalDirectory().resolve(name + "-" + number + SEGMENT_SUFFIX);
+  }
+
+  private long segmentNumber(Path file) {
+    String fileName = file.getFileName().toString();
+    return Long.parseLong(fileName.substring(name.length() + 1, fileName.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /**
+   * @param version version of the entity the update was accepted against, absent from entries
+   *                journaled before versions were recorded
+   */
+  record JournalEntry(UUID handle, long id, Long version, JsonNode data) {
+  }
+
+  /**
+   * Latest update of an entity, with the version it was accepted against and the handles of all the
+   * updates it superseded.
+   */
+  private record Pending<R>(long id, Long version, R data, List<UUID> handles) {
+
+    static <R> Pending<R> of(long id, Long version, R data, UUID handle, Pending<R> superseded) {
+      List<UUID> handles = new ArrayList<>();
+      if (superseded != null) {
+        handles.addAll(superseded.handles());
+      }
+      handles.add(handle);
+      return new Pending<>(id, version, data, handles);
+    }
+
+    Pending<R> supersede(Pending<R> older) {
+      List<UUID> merged = new ArrayList<>(older.handles());
+      merged.addAll(handles);
+      return new Pending<>(id, version, data, merged);
+    }
+  }
+}
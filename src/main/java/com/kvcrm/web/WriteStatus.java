@@ -0,0 +1,30 @@
+package com.kvcrm.web;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Outcome of an update accepted by a {@link WriteBehindQueue}.
+ *
+ * @param handle    identifier returned when the update was accepted
+ * @param id        entity updated
+ * @param state     whether the update is still queued, written or refused
+ * @param error     why the update was refused, absent otherwise
+ * @param updatedAt when the state last changed
+ */
+record WriteStatus(UUID handle, long id, State state, String error, Instant updatedAt) {
+
+  enum State {
+    PENDING,
+    APPLIED,
+    FAILED
+  }
+
+  static WriteStatus pending(UUID handle, long id) {
+    return new WriteStatus(handle, id, State.PENDING, null, Instant.now());
+  }
+
+  WriteStatus complete(State state, String error) {
+    return new WriteStatus(handle, id, state, error, Instant.now());
+  }
+}
@@ -0,0 +1,39 @@
+package com.kvcrm;
+
+import java.util.List;
+
+import com.kvcrm.search.SuggestionIndex;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Deletes every row once an {@link IntegrationTest} class has run, and drops what the caches and
+ * the suggestion index still hold of them, so the next class sharing the database and the cached
+ * application context starts from an empty one.
+ */
+class DatabaseCleanup extends AbstractTestExecutionListener {
+
+  /**
+   * Tables of the changelog, referencing tables before the ones they reference.
+   */
+  private static final List<String> TABLES = List.of("contacts", "organizations", "users", "password_resets",
+      "contacts_archive", "organizations_archive", "users_archive", "accounts");
+
+  @Override
+  public void afterTestClass(TestContext testContext) {
+    if (!testContext.hasApplicationContext()) {
+      return;
+    }
+    ApplicationContext context = testContext.getApplicationContext();
+    JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+    new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).executeWithoutResult(status ->
+        TABLES.forEach(table -> jdbcTemplate.update("DELETE FROM " + table)));
+    context.getBeanProvider(javax.cache.CacheManager.class).ifAvailable(cacheManager ->
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear()));
+    context.getBeanProvider(SuggestionIndex.class).ifAvailable(SuggestionIndex::rebuild);
+  }
+}
@@ -0,0 +1,32 @@
+package com.kvcrm;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.annotation.AliasFor;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * A {@link SpringBootTest} of the whole application without security, on the in-memory database
+ * of the test configuration. Every test class using it shares that database, so it is emptied by
+ * {@link DatabaseCleanup} once the class has run.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@SpringBootTest
+@TestPropertySource(properties = "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration")
+@TestExecutionListeners(listeners = DatabaseCleanup.class, mergeMode = TestExecutionListeners.MergeMode.MERGE_WITH_DEFAULTS)
+public @interface IntegrationTest {
+
+  @AliasFor(annotation = SpringBootTest.class)
+  String[] properties() default {};
+
+  @AliasFor(annotation = SpringBootTest.class)
+  SpringBootTest.WebEnvironment webEnvironment() default SpringBootTest.WebEnvironment.MOCK;
+}
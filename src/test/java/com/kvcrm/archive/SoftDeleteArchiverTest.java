@@ -0,0 +1,66 @@
+package com.kvcrm.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SoftDeleteArchiverTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.now(ZoneOffset.UTC);
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final SoftDeleteArchiver archiver;
+
+  @Autowired
+  SoftDeleteArchiverTest(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+    this.jdbcTemplate = jdbcTemplate;
+    ArchiveProperties properties = new ArchiveProperties();
+    properties.setRetention(Duration.ofDays(30));
+    properties.setChunkSize(2);
+    properties.setMaxChunks(10);
+    this.archiver = new SoftDeleteArchiver(new NamedParameterJdbcTemplate(jdbcTemplate), transactionManager, properties);
+  }
+
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate.update("INSERT INTO accounts (id, name, created_at, version) VALUES (9001, 'Archive', ?, 0)", NOW);
+    contact(9001, false, NOW.minusDays(90));
+    contact(9002, true, NOW.minusDays(90));
+    contact(9003, true, NOW.minusDays(60));
+    contact(9004, true, NOW.minusDays(31));
+    contact(9005, true, NOW.minusDays(1));
+  }
+
+  @Test
+  void shouldMoveExpiredSoftDeletedRowsToArchiveInChunks() {
+    archiver.archive();
+
+    assertThat(jdbcTemplate.queryForList("SELECT id FROM contacts WHERE id > 9000 ORDER BY id", Long.class))
+        .containsExactly(9001L, 9005L);
+    assertThat(jdbcTemplate.queryForList("SELECT id FROM contacts_archive ORDER BY id", Long.class))
+        .containsExactly(9002L, 9003L, 9004L);
+    assertThat(jdbcTemplate.queryForObject("SELECT email FROM contacts_archive WHERE id = 9003", String.class))
+        .isEqualTo("contact9003@example.com");
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM contacts_archive WHERE archived_at IS NULL", Integer.class))
+        .isZero();
+  }
+
+  private void contact(long id, boolean deleted, LocalDateTime updatedAt) {
+    jdbcTemplate.update("INSERT INTO contacts (id, account_id, is_deleted, email, created_at, updated_at, version) "
+        + "VALUES (?, 9001, ?, ?, ?, ?, 0)", id, deleted, "contact" + id + "@example.com", updatedAt, updatedAt);
+  }
+}
@@ -0,0 +1,93 @@
+package com.kvcrm.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import com.kvcrm.entity.Contact;
+import com.kvcrm.entity.Organization;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ehcache.core.spi.service.StatisticsService;
+import org.iqkv.boot.cache.CacheProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class CacheConfigTest {
+
+  private static final String CONTACTS = Contact.class.getName();
+
+  private static final String ORGANIZATIONS = Organization.class.getName();
+
+  private final CacheRegionProperties cacheRegionProperties = new CacheRegionProperties();
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private javax.cache.CacheManager cacheManager;
+
+  @AfterEach
+  void close() {
+    if (cacheManager != null) {
+      cacheManager.close();
+    }
+  }
+
+  @Test
+  void shouldCountHitsAndMissesPerTier() {
+    CacheRegionProperties.Region region = new CacheRegionProperties.Region();
+    region.setMaxEntries(10L);
+    region.setOffHeapMb(1);
+    cacheRegionProperties.getRegions().put("contact", region);
+    javax.cache.Cache<Object, Object> cache = bind().getCache(CONTACTS);
+
+    cache.put(1L, "contact");
+    cache.get(1L);
+    cache.get(1L);
+    cache.get(2L);
+
+    assertThat(gets(CONTACTS, "OnHeap", "hit")).isEqualTo(1);
+    assertThat(gets(CONTACTS, "OnHeap", "miss")).isEqualTo(2);
+    assertThat(gets(CONTACTS, "OffHeap", "hit")).isEqualTo(1);
+    assertThat(gets(CONTACTS, "OffHeap", "miss")).isEqualTo(1);
+    assertThat(size(CONTACTS, "OffHeap")).isEqualTo(1);
+  }
+
+  @Test
+  void shouldCountCacheGetsForSingleTier() {
+    javax.cache.Cache<Object, Object> cache = bind().getCache(ORGANIZATIONS);
+
+    cache.put(1L, "organization");
+    cache.get(1L);
+    cache.get(2L);
+
+    assertThat(gets(ORGANIZATIONS, "OnHeap", "hit")).isEqualTo(1);
+    assertThat(gets(ORGANIZATIONS, "OnHeap", "miss")).isEqualTo(1);
+    assertThat(size(ORGANIZATIONS, "OnHeap")).isEqualTo(1);
+  }
+
+  @Test
+  void shouldRejectDiskTierNotLargerThanOffHeapTier() {
+    CacheRegionProperties.Region region = new CacheRegionProperties.Region();
+    region.setOffHeapMb(64);
+    region.setDiskMb(64);
+    cacheRegionProperties.getRegions().put("contact", region);
+
+    assertThatIllegalStateException()
+        .isThrownBy(() -> new CacheConfig(new CacheProperties(), cacheRegionProperties))
+        .withMessageContaining("kvcrm.cache.regions.contact.disk-mb (64) must exceed off-heap-mb (64)");
+  }
+
+  private javax.cache.CacheManager bind() {
+    CacheConfig cacheConfig = new CacheConfig(new CacheProperties(), cacheRegionProperties);
+    StatisticsService statisticsService = cacheConfig.cacheStatisticsService();
+    cacheManager = cacheConfig.jCacheCacheManager(statisticsService);
+    cacheConfig.cacheTierMetrics(statisticsService).bindTo(registry);
+    return cacheManager;
+  }
+
+  private double gets(String cacheName, String tier, String result) {
+    return registry.get("cache.tier.gets").tags("cache", cacheName, "tier", tier, "result", result).functionCounter().count();
+  }
+
+  private double size(String cacheName, String tier) {
+    return registry.get("cache.tier.size").tags("cache", cacheName, "tier", tier).gauge().value();
+  }
+}
@@ -0,0 +1,143 @@
+package com.kvcrm.config;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class CompressionFilterTest {
+
+  private static final String BODY = "{\"items\":[" + "{\"email\":\"contact@example.com\"},".repeat(100) + "{}]}";
+
+  private static final String LINE = "{\"email\":\"contact@example.com\"}\n";
+
+  private final CompressionFilter filter = new CompressionFilter(1024, List.of(MediaType.APPLICATION_JSON));
+
+  @Test
+  void shouldCompressLargeBodiesAndSuffixTheirTag() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request("gzip, deflate"), response, (request, servletResponse) -> write(servletResponse, BODY));
+
+    assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"tag--gzip\"");
+    assertThat(response.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+    assertThat(response.containsHeader(HttpHeaders.CONTENT_LENGTH)).isFalse();
+    assertThat(gunzip(response.getContentAsByteArray())).isEqualTo(BODY);
+  }
+
+  @Test
+  void shouldCompressFlushedStreams() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request("gzip"), response, (request, servletResponse) -> {
+      servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+      OutputStream outputStream = servletResponse.getOutputStream();
+      for (int i = 0; i < 100; i++) {
+        outputStream.write(LINE.getBytes(UTF_8));
+        outputStream.flush();
+      }
+    });
+
+    assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    assertThat(gunzip(response.getContentAsByteArray())).isEqualTo(LINE.repeat(100));
+  }
+
+  @Test
+  void shouldSendSmallBodiesAsTheyAre() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request("gzip"), response, (request, servletResponse) -> write(servletResponse, "{}"));
+
+    assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"tag\"");
+    assertThat(response.getContentLength()).isEqualTo(2);
+    assertThat(response.getContentAsString()).isEqualTo("{}");
+  }
+
+  @Test
+  void shouldSendOtherTypesAsTheyAre() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request("gzip"), response, (request, servletResponse) -> {
+      servletResponse.setContentType(MediaType.TEXT_PLAIN_VALUE);
+      servletResponse.getOutputStream().write(BODY.getBytes(UTF_8));
+    });
+
+    assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+    assertThat(response.getContentAsString()).isEqualTo(BODY);
+  }
+
+  @Test
+  void shouldNotCompressForClientsRefusingGzip() throws Exception {
+    for (String acceptEncoding : new String[] {null, "identity", "gzip;q=0", "br, *;q=0"}) {
+      MockHttpServletResponse response = new MockHttpServletResponse();
+
+      filter.doFilter(request(acceptEncoding), response, (request, servletResponse) -> write(servletResponse, BODY));
+
+      assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).as(acceptEncoding).isNull();
+      assertThat(response.getContentAsString()).isEqualTo(BODY);
+    }
+  }
+
+  @Test
+  void shouldStripSuffixFromConditionalRequests() throws Exception {
+    MockHttpServletRequest request = request("gzip");
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"tag--gzip\"");
+    request.addHeader(HttpHeaders.IF_MATCH, "\"other\", \"tag--gzip\"");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    List<String> conditions = new ArrayList<>();
+
+    filter.doFilter(request, response, (filteredRequest, servletResponse) -> {
+      HttpServletRequest httpRequest = (HttpServletRequest) filteredRequest;
+      conditions.add(httpRequest.getHeader(HttpHeaders.IF_NONE_MATCH));
+      conditions.addAll(Collections.list(httpRequest.getHeaders(HttpHeaders.IF_MATCH)));
+      HttpServletResponse httpResponse = (HttpServletResponse) servletResponse;
+      httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      httpResponse.setHeader(HttpHeaders.ETAG, "\"tag\"");
+      httpResponse.flushBuffer();
+    });
+
+    assertThat(conditions).containsExactly("\"tag\"", "\"other\", \"tag\"");
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"tag--gzip\"");
+  }
+
+  private static MockHttpServletRequest request(String acceptEncoding) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/contacts");
+    if (acceptEncoding != null) {
+      request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+    }
+    return request;
+  }
+
+  private static void write(ServletResponse response, String body) throws IOException {
+    byte[] bytes = body.getBytes(UTF_8);
+    HttpServletResponse httpResponse = (HttpServletResponse) response;
+    httpResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    httpResponse.setHeader(HttpHeaders.ETAG, "\"tag\"");
+    httpResponse.setContentLength(bytes.length);
+    httpResponse.getOutputStream().write(bytes);
+  }
+
+  private static String gunzip(byte[] bytes) throws Exception {
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      return new String(gzip.readAllBytes(), UTF_8);
+    }
+  }
+}
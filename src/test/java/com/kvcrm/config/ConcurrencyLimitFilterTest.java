@@ -0,0 +1,115 @@
+package com.kvcrm.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ConcurrencyLimitFilterTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @Test
+  void shouldQueueRequestsBeyondLimitAndRejectAfterMaxWait() throws Exception {
+    ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, Duration.ofMillis(200), registry);
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      Future<?> holder = executor.submit(() -> {
+        filter.doFilter(new MockHttpServletRequest("GET", "/v1/contacts"), new MockHttpServletResponse(),
+            (request, response) -> {
+              running.countDown();
+              await(release);
+            });
+        return null;
+      });
+      assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+      MockHttpServletResponse rejected = new MockHttpServletResponse();
+      filter.doFilter(new MockHttpServletRequest("GET", "/v1/contacts"), rejected, new MockFilterChain());
+      assertThat(rejected.getStatus()).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+      assertThat(registry.get("concurrency.limiter.rejected").counter().count()).isEqualTo(1);
+      assertThat(registry.get("concurrency.limiter.active").gauge().value()).isEqualTo(1);
+
+      release.countDown();
+      holder.get(5, TimeUnit.SECONDS);
+    }
+
+    MockHttpServletResponse admitted = new MockHttpServletResponse();
+    filter.doFilter(new MockHttpServletRequest("GET", "/v1/contacts"), admitted, new MockFilterChain());
+    assertThat(admitted.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(registry.get("concurrency.limiter.active").gauge().value()).isZero();
+    assertThat(registry.get("concurrency.limiter.wait").timer().count()).isEqualTo(3);
+  }
+
+  @Test
+  void shouldReportQueuedRequests() throws Exception {
+    ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, Duration.ofSeconds(5), registry);
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      executor.submit(() -> {
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (request, response) -> {
+          running.countDown();
+          await(release);
+        });
+        return null;
+      });
+      assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+      for (int i = 0; i < 3; i++) {
+        executor.submit(() -> {
+          filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), new MockFilterChain());
+          return null;
+        });
+      }
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (registry.get("concurrency.limiter.queued").gauge().value() < 3 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(registry.get("concurrency.limiter.queued").gauge().value()).isEqualTo(3);
+      release.countDown();
+    }
+    assertThat(registry.get("concurrency.limiter.queued").gauge().value()).isZero();
+    assertThat(registry.get("concurrency.limiter.rejected").counter().count()).isZero();
+  }
+
+  @Test
+  void shouldHoldPermitUntilAsyncExportCompletes() throws Exception {
+    ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(2, Duration.ofMillis(200), registry);
+    MockHttpServletRequest export = new MockHttpServletRequest("GET", "/v1/contacts/export");
+    export.setAsyncSupported(true);
+
+    filter.doFilter(export, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+    filter.doFilter(new MockHttpServletRequest("GET", "/v1/contacts"), new MockHttpServletResponse(), new MockFilterChain());
+
+    assertThat(registry.get("concurrency.limiter.active").gauge().value()).isEqualTo(1);
+
+    export.getAsyncContext().complete();
+
+    assertThat(registry.get("concurrency.limiter.active").gauge().value()).isZero();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.kvcrm.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.servlet.http.Cookie;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+class ReadWriteRoutingDataSourceTest {
+
+  private final AtomicBoolean replicaDown = new AtomicBoolean();
+
+  private ReadWriteRoutingDataSource routing;
+
+  private JdbcTemplate jdbc;
+
+  private TransactionTemplate writes;
+
+  private TransactionTemplate reads;
+
+  @BeforeEach
+  void setUp() {
+    DataSource primary = database("primary");
+    DataSource replica = new DelegatingDataSource(database("replica")) {
+      @Override
+      public Connection getConnection() throws SQLException {
+        if (replicaDown.get()) {
+          throw new SQLException("Connection refused");
+        }
+        return super.getConnection();
+      }
+    };
+    routing = new ReadWriteRoutingDataSource(primary, List.of(replica), Duration.ofSeconds(5));
+    routing.afterPropertiesSet();
+
+    LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+    jdbc = new JdbcTemplate(dataSource);
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    writes = new TransactionTemplate(transactionManager);
+    reads = new TransactionTemplate(transactionManager);
+    reads.setReadOnly(true);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    RequestContextHolder.resetRequestAttributes();
+    routing.close();
+  }
+
+  @Test
+  void shouldRouteReadOnlyTransactionsToReplicaAndWritesToPrimary() {
+    assertThat(serverIn(reads)).isEqualTo("replica");
+    assertThat(serverIn(writes)).isEqualTo("primary");
+    assertThat(jdbc.queryForObject("select name from server", String.class)).isEqualTo("primary");
+  }
+
+  @Test
+  void shouldKeepClientOnPrimaryAfterWrite() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    bindRequest(new MockHttpServletRequest("PUT", "/v1/contacts/1"), response);
+    writes.executeWithoutResult(status -> jdbc.update("update server set name = name"));
+    assertThat(serverIn(reads)).isEqualTo("primary");
+
+    Cookie cookie = response.getCookie(ReadYourWrites.COOKIE_NAME);
+    assertThat(cookie).isNotNull();
+    assertThat(cookie.getMaxAge()).isEqualTo(5);
+
+    MockHttpServletRequest followUp = new MockHttpServletRequest("GET", "/v1/contacts/1");
+    followUp.setCookies(cookie);
+    bindRequest(followUp, new MockHttpServletResponse());
+    assertThat(serverIn(reads)).isEqualTo("primary");
+
+    bindRequest(new MockHttpServletRequest("GET", "/v1/contacts/1"), new MockHttpServletResponse());
+    assertThat(serverIn(reads)).isEqualTo("replica");
+  }
+
+  @Test
+  void shouldRouteReadsToPrimaryWhileReplicaIsUnhealthy() {
+    replicaDown.set(true);
+    routing.checkReplicas();
+    assertThat(serverIn(reads)).isEqualTo("primary");
+
+    replicaDown.set(false);
+    routing.checkReplicas();
+    assertThat(serverIn(reads)).isEqualTo("replica");
+  }
+
+  private String serverIn(TransactionTemplate transaction) {
+    return transaction.execute(status -> jdbc.queryForObject("select name from server", String.class));
+  }
+
+  private static void bindRequest(MockHttpServletRequest request, MockHttpServletResponse response) {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+  }
+
+  private static DataSource database(String name) {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+    JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+    jdbc.execute("create table if not exists server (name varchar(16))");
+    jdbc.update("delete from server");
+    jdbc.update("insert into server (name) values (?)", name);
+    return dataSource;
+  }
+}
@@ -0,0 +1,138 @@
+package com.kvcrm.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.kvcrm.IntegrationTest;
+import com.kvcrm.entity.Account;
+import com.kvcrm.entity.Contact;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs the application against a primary and a replica that lags one version behind it, so every
+ * read shows which of the two it came from.
+ */
+@IntegrationTest(properties = {
+    "kvcrm.datasource.replicas[0].url=" + ReplicaRoutingTest.REPLICA_URL,
+    "kvcrm.datasource.replicas[0].username=postgres",
+    "kvcrm.datasource.replicas[0].password=postgres"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReplicaRoutingTest {
+
+  static final String REPLICA_URL = "jdbc:h2:mem:routing_replica_db;DB_CLOSE_DELAY=-1";
+
+  private final MockMvc mockMvc;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final PlatformTransactionManager transactionManager;
+
+  private final AccountRepository accountRepository;
+
+  private final ContactRepository contactRepository;
+
+  private long accountId;
+
+  private long contactId;
+
+  private long replicatedVersion;
+
+  @Autowired
+  ReplicaRoutingTest(MockMvc mockMvc, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                     AccountRepository accountRepository, ContactRepository contactRepository) {
+    this.mockMvc = mockMvc;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionManager = transactionManager;
+    this.accountRepository = accountRepository;
+    this.contactRepository = contactRepository;
+  }
+
+  @BeforeAll
+  void replicateOneVersionBehind() throws IOException {
+    Account account = accountRepository.save(Account.builder().name("replica-routing").build());
+    Contact contact = contactRepository.save(Contact.builder().account(account).email("contact@replica-routing.test").build());
+    accountId = account.getId();
+    contactId = contact.getId();
+    replicatedVersion = contact.getVersion();
+
+    Path script = Files.createTempFile("replica-routing", ".sql");
+    try {
+      jdbcTemplate.execute("SCRIPT TO '" + script + "'");
+      JdbcDataSource replica = new JdbcDataSource();
+      replica.setURL(REPLICA_URL);
+      replica.setUser("postgres");
+      replica.setPassword("postgres");
+      JdbcTemplate replicaJdbc = new JdbcTemplate(replica);
+      replicaJdbc.execute("DROP ALL OBJECTS");
+      replicaJdbc.execute("RUNSCRIPT FROM '" + script + "'");
+    } finally {
+      Files.delete(script);
+    }
+
+    new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+        jdbcTemplate.update("UPDATE contacts SET version = version + 1 WHERE id = ?", contactId));
+  }
+
+  @Test
+  void shouldRouteReadOnlyJpaTransactionsToReplica() {
+    assertThat(transactionManager).isInstanceOf(JpaTransactionManager.class);
+    TransactionTemplate reads = new TransactionTemplate(transactionManager);
+    reads.setReadOnly(true);
+    TransactionTemplate writes = new TransactionTemplate(transactionManager);
+
+    assertThat(versionIn(reads)).isEqualTo(replicatedVersion);
+    assertThat(contactRepository.findVersionById(contactId).orElseThrow().getVersion()).isEqualTo(replicatedVersion);
+    // the write pins the rest of the test's request to the primary
+    assertThat(versionIn(writes)).isGreaterThan(replicatedVersion);
+    assertThat(contactRepository.findVersionById(contactId).orElseThrow().getVersion()).isGreaterThan(replicatedVersion);
+  }
+
+  @Test
+  void shouldUpdateTheVersionOnThePrimary() throws Exception {
+    long primaryVersion = contactRepository.findForWriteById(contactId).orElseThrow().getVersion();
+    assertThat(primaryVersion).isGreaterThan(replicatedVersion);
+
+    mockMvc.perform(put("/v1/contacts/{id}", contactId).contentType(MediaType.APPLICATION_JSON)
+            .content("{\"email\":\"updated@replica-routing.test\"}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.version").value(primaryVersion + 1));
+  }
+
+  @Test
+  void shouldFillTenantPageCacheFromThePrimary() throws Exception {
+    long primaryVersion = contactRepository.findForWriteById(contactId).orElseThrow().getVersion();
+    assertThat(primaryVersion).isGreaterThan(replicatedVersion);
+
+    for (int request = 0; request < 2; request++) {
+      mockMvc.perform(get("/v1/accounts/{accountId}/contacts", accountId))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.items[0].version").value(primaryVersion));
+    }
+  }
+
+  private long versionIn(TransactionTemplate transaction) {
+    return transaction.execute(status -> contactRepository.findById(contactId).orElseThrow().getVersion());
+  }
+}
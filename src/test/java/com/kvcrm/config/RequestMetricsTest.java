@@ -0,0 +1,101 @@
+package com.kvcrm.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.kvcrm.IntegrationTest;
+import com.kvcrm.entity.Account;
+import com.kvcrm.entity.Contact;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+
+@IntegrationTest(properties = {
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RequestMetricsTest {
+
+  private static final String TENANT_CONTACTS = "/v1/accounts/{accountId}/contacts";
+
+  private final MockMvc mockMvc;
+
+  private final MeterRegistry meterRegistry;
+
+  private final AccountRepository accountRepository;
+
+  private final ContactRepository contactRepository;
+
+  private Account account;
+
+  @Autowired
+  RequestMetricsTest(MockMvc mockMvc, MeterRegistry meterRegistry, AccountRepository accountRepository,
+                     ContactRepository contactRepository) {
+    this.mockMvc = mockMvc;
+    this.meterRegistry = meterRegistry;
+    this.accountRepository = accountRepository;
+    this.contactRepository = contactRepository;
+  }
+
+  @BeforeAll
+  void seed() {
+    account = accountRepository.save(Account.builder().name("request-metrics").build());
+    for (int i = 0; i < 3; i++) {
+      contactRepository.save(Contact.builder().account(account).email("contact-" + i + "@request-metrics.test").build());
+    }
+  }
+
+  @Test
+  void shouldRecordStatementsAndRowsPerRequest() throws Exception {
+    mockMvc.perform(get(TENANT_CONTACTS, account.getId())).andExpect(status().isOk());
+
+    assertThat(summary(RequestMetricsFilter.STATEMENTS).max()).isPositive();
+    assertThat(summary(RequestMetricsFilter.ROWS_FETCHED).max()).isGreaterThanOrEqualTo(3);
+    assertThat(summary(RequestMetricsFilter.ROWS_SERIALIZED).max()).isEqualTo(3);
+  }
+
+  @Test
+  void shouldNotCountErrorsAsSerializedRows() throws Exception {
+    mockMvc.perform(get("/v1/contacts/{id}", Long.MAX_VALUE)).andExpect(status().isNotFound());
+
+    DistributionSummary serialized = meterRegistry.get(RequestMetricsFilter.ROWS_SERIALIZED)
+        .tags("uri", "/v1/contacts/{id}", "status", "404")
+        .summary();
+    assertThat(serialized.totalAmount()).isZero();
+  }
+
+  @Test
+  void shouldTagRepositoryInvocationsWithEntity() {
+    contactRepository.findById(Long.MAX_VALUE);
+
+    Timer timer = meterRegistry.get("spring.data.repository.invocations")
+        .tags("entity", "Contact", "method", "findById")
+        .timer();
+    assertThat(timer.count()).isPositive();
+  }
+
+  @Test
+  void shouldExposeHibernateStatistics() {
+    assertThat(meterRegistry.find("hibernate.query.executions.max").timeGauge()).isNotNull();
+    assertThat(meterRegistry.find("hibernate.second.level.cache.requests")
+        .tags("region", Contact.class.getName(), "result", "hit")
+        .functionCounter()).isNotNull();
+  }
+
+  private DistributionSummary summary(String name) {
+    return meterRegistry.get(name)
+        .tags("method", "GET", "uri", TENANT_CONTACTS, "status", "200")
+        .summary();
+  }
+}
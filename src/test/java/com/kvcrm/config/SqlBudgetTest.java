@@ -0,0 +1,86 @@
+package com.kvcrm.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.tuple;
+
+import org.junit.jupiter.api.Test;
+
+class SqlBudgetTest {
+
+  private static final String SELECT_CONTACT = "select c1_0.id,c1_0.email from contact c1_0 where c1_0.account_id=?";
+
+  private final SqlBudgetProperties properties = new SqlBudgetProperties();
+
+  @Test
+  void shouldNormalizeLiteralsAndInLists() {
+    assertThat(SqlBudget.normalize("select *\n  from contact where id in (?, ?, ?,?) and email = 'o''hara' limit 20"))
+        .isEqualTo("select * from contact where id in (?) and email = ? limit ?");
+  }
+
+  @Test
+  void shouldReportRepeatedStatements() {
+    SqlBudget sqlBudget = new SqlBudget(properties);
+
+    sqlBudget.check("GET", "/v1/accounts/{accountId}/contacts", request(11, SELECT_CONTACT));
+
+    assertThat(sqlBudget.offenders()).singleElement().satisfies(offender -> {
+      assertThat(offender.uri()).isEqualTo("/v1/accounts/{accountId}/contacts");
+      assertThat(offender.maxStatements()).isEqualTo(11);
+      assertThat(offender.topStatements()).containsExactly(new SqlBudget.StatementCount(SELECT_CONTACT, 11));
+    });
+  }
+
+  @Test
+  void shouldKeepWorstRequestPerEndpoint() {
+    properties.setMaxStatements(5);
+    SqlBudget sqlBudget = new SqlBudget(properties);
+
+    sqlBudget.check("GET", "/v1/contacts", request(8, "select 1"));
+    sqlBudget.check("GET", "/v1/contacts", request(6, "select 2"));
+    sqlBudget.check("GET", "/v1/contacts", request(5, "select 3"));
+    sqlBudget.check("GET", "/v1/organizations", request(7, "select 4"));
+
+    assertThat(sqlBudget.offenders())
+        .extracting(SqlBudget.Offender::uri, SqlBudget.Offender::violations, SqlBudget.Offender::maxStatements)
+        .containsExactly(
+            tuple("/v1/contacts", 2L, 8L),
+            tuple("/v1/organizations", 1L, 7L));
+
+    sqlBudget.reset();
+    assertThat(sqlBudget.offenders()).isEmpty();
+  }
+
+  @Test
+  void shouldFailRequestsOverBudgetWhenStrict() {
+    properties.setStrict(true);
+    SqlBudget sqlBudget = new SqlBudget(properties);
+
+    sqlBudget.check("GET", "/v1/contacts", request(10, SELECT_CONTACT));
+    assertThatIllegalStateException()
+        .isThrownBy(() -> sqlBudget.check("GET", "/v1/contacts", request(11, SELECT_CONTACT)))
+        .withMessageContaining("11 executions of [" + SELECT_CONTACT + "]");
+  }
+
+  @Test
+  void shouldIgnoreRequestsWhenDisabled() {
+    properties.setEnabled(false);
+    SqlBudget sqlBudget = new SqlBudget(properties);
+
+    sqlBudget.check("GET", "/v1/contacts", request(100, SELECT_CONTACT));
+
+    assertThat(sqlBudget.offenders()).isEmpty();
+  }
+
+  private static RequestMetrics request(int executions, String sql) {
+    RequestMetrics metrics = RequestMetrics.start();
+    try {
+      for (int i = 0; i < executions; i++) {
+        RequestMetrics.addStatement(sql, 1);
+      }
+    } finally {
+      RequestMetrics.end();
+    }
+    return metrics;
+  }
+}
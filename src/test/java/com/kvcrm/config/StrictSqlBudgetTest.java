@@ -0,0 +1,119 @@
+package com.kvcrm.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import com.kvcrm.IntegrationTest;
+import com.kvcrm.entity.Account;
+import com.kvcrm.entity.Contact;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import com.kvcrm.repository.ContactView;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Sends a request fanning out into one query per contact through a real server, checking that
+ * the strict SQL budget of the test configuration fails it before its body is sent, with and
+ * without the compression buffer in front of it.
+ */
+@IntegrationTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "kvcrm.sql-budget.max-repeated-statements=10"
+})
+@Import(StrictSqlBudgetTest.FanOutResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StrictSqlBudgetTest {
+
+  private static final String FAN_OUT = "/v1/fan-out/{accountId}";
+
+  private final TestRestTemplate restTemplate;
+
+  private final AccountRepository accountRepository;
+
+  private final ContactRepository contactRepository;
+
+  private Account smallAccount;
+
+  private Account largeAccount;
+
+  @Autowired
+  StrictSqlBudgetTest(TestRestTemplate restTemplate, AccountRepository accountRepository,
+                      ContactRepository contactRepository) {
+    this.restTemplate = restTemplate;
+    this.accountRepository = accountRepository;
+    this.contactRepository = contactRepository;
+  }
+
+  @BeforeAll
+  void seed() {
+    smallAccount = seed("strict-sql-budget-small", 3);
+    largeAccount = seed("strict-sql-budget-large", 30);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"identity", "gzip"})
+  void shouldServeRequestsWithinBudget(String encoding) {
+    ResponseEntity<String> response = fanOut(smallAccount, encoding);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"identity", "gzip"})
+  void shouldFailFanOutOverBudget(String encoding) {
+    ResponseEntity<String> response = fanOut(largeAccount, encoding);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    assertThat(response.getBody()).doesNotContain("@strict-sql-budget.test");
+  }
+
+  private Account seed(String name, int contacts) {
+    Account account = accountRepository.save(Account.builder().name(name).build());
+    for (int i = 0; i < contacts; i++) {
+      contactRepository.save(Contact.builder().account(account).email(name + "-" + i + "@strict-sql-budget.test").build());
+    }
+    return account;
+  }
+
+  private ResponseEntity<String> fanOut(Account account, String encoding) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.ACCEPT_ENCODING, encoding);
+    return restTemplate.exchange(FAN_OUT, HttpMethod.GET, new HttpEntity<>(headers), String.class, account.getId());
+  }
+
+  /**
+   * Reads the contacts of an account one by one, the N+1 fan-out the budget is there to catch.
+   */
+  @RestController
+  static class FanOutResource {
+
+    private final ContactRepository contactRepository;
+
+    FanOutResource(ContactRepository contactRepository) {
+      this.contactRepository = contactRepository;
+    }
+
+    @GetMapping(FAN_OUT)
+    List<ContactView> contacts(@PathVariable long accountId) {
+      return contactRepository.findViewsByAccountIdAndIdGreaterThan(accountId, 0L, Pageable.ofSize(100)).stream()
+          .map(contact -> contactRepository.findViewById(contact.getId()).orElseThrow())
+          .toList();
+    }
+  }
+}
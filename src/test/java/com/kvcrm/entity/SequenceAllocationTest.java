@@ -0,0 +1,69 @@
+package com.kvcrm.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.kvcrm.IntegrationTest;
+import com.kvcrm.repository.AccountRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Checks that the identifier sequences advance by the block size Hibernate allocates from, and that
+ * inserts are batched once identifiers no longer need a round trip each.
+ */
+@IntegrationTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.jdbc.batch_size=25"
+})
+class SequenceAllocationTest {
+
+  private static final int ACCOUNTS = 60;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final Statistics statistics;
+
+  private final AccountRepository accountRepository;
+
+  @Autowired
+  SequenceAllocationTest(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                         EntityManagerFactory entityManagerFactory, AccountRepository accountRepository) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    this.accountRepository = accountRepository;
+  }
+
+  @Test
+  void shouldAdvanceSequencesByAllocationSize() {
+    List<Integer> increments = jdbcTemplate.queryForList(
+        "SELECT increment FROM information_schema.sequences WHERE sequence_name IN "
+            + "('ACCOUNT_ID_SEQ', 'CONTACT_ID_SEQ', 'ORGANIZATION_ID_SEQ', 'USER_ID_SEQ')", Integer.class);
+
+    assertThat(increments).hasSize(4).containsOnly(SequenceAllocation.SIZE);
+  }
+
+  @Test
+  void shouldBatchInsertsWithPooledIdentifiers() {
+    List<Account> accounts = IntStream.range(0, ACCOUNTS)
+        .mapToObj(i -> Account.builder().name("sequence-allocation-" + i).build())
+        .toList();
+    statistics.clear();
+
+    transactionTemplate.executeWithoutResult(status -> accountRepository.saveAll(accounts));
+
+    assertThat(statistics.getEntityInsertCount()).isEqualTo(ACCOUNTS);
+    // three insert batches, and a nextval for each block of ids the pooled optimizer still had to fetch
+    assertThat(statistics.getPrepareStatementCount()).isBetween(3L, 3L + (ACCOUNTS / SequenceAllocation.SIZE) + 1);
+  }
+}
@@ -0,0 +1,124 @@
+package com.kvcrm.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.kvcrm.IntegrationTest;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import com.kvcrm.repository.OrganizationRepository;
+import com.kvcrm.repository.UserRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Named;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs the {@code @SQLDelete} statements of the soft-deleted entities against real rows: a delete
+ * marks the row, stamps it and bumps its version, and a delete of a stale copy is refused.
+ */
+@IntegrationTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SoftDeleteTest {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final TransactionTemplate concurrentTransactionTemplate;
+
+  private final AccountRepository accountRepository;
+
+  private final ContactRepository contactRepository;
+
+  private final OrganizationRepository organizationRepository;
+
+  private final UserRepository userRepository;
+
+  private Account account;
+
+  @Autowired
+  SoftDeleteTest(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, AccountRepository accountRepository,
+                 ContactRepository contactRepository, OrganizationRepository organizationRepository,
+                 UserRepository userRepository) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.concurrentTransactionTemplate = new TransactionTemplate(transactionManager);
+    this.concurrentTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.accountRepository = accountRepository;
+    this.contactRepository = contactRepository;
+    this.organizationRepository = organizationRepository;
+    this.userRepository = userRepository;
+  }
+
+  @BeforeAll
+  void seed() {
+    account = accountRepository.save(Account.builder().name("soft-delete").build());
+  }
+
+  Stream<Arguments> entities() {
+    return Stream.of(
+        entity(Contact.TABLE_NAME, contactRepository,
+            suffix -> Contact.builder().account(account).email("contact-" + suffix + "@soft-delete.test").build()),
+        entity(Organization.TABLE_NAME, organizationRepository,
+            suffix -> Organization.builder().account(account).name("soft-delete-" + suffix).build()),
+        entity(User.TABLE_NAME, userRepository,
+            suffix -> User.builder().account(account).email("user-" + suffix + "@soft-delete.test")
+                .password("password-" + suffix).build()));
+  }
+
+  @ParameterizedTest
+  @MethodSource("entities")
+  <T extends Versioned> void shouldMarkRowDeletedAndBumpItsVersion(String table, JpaRepository<T, Long> repository,
+                                                                    Function<String, T> factory) {
+    T entity = repository.save(factory.apply("deleted"));
+
+    repository.deleteById(entity.getId());
+
+    Map<String, Object> row = jdbcTemplate.queryForMap("SELECT is_deleted, version FROM " + table + " WHERE id = ?",
+        entity.getId());
+    assertThat(row.get("is_deleted")).isEqualTo(true);
+    assertThat(((Number) row.get("version")).longValue()).isEqualTo(entity.getVersion() + 1);
+    // stored as UTC wall-clock time like the timestamps Hibernate writes, which the archiver relies on
+    assertThat(jdbcTemplate.queryForObject("SELECT updated_at FROM " + table + " WHERE id = ?", LocalDateTime.class, entity.getId()))
+        .isCloseTo(LocalDateTime.now(ZoneOffset.UTC), within(1, ChronoUnit.MINUTES));
+    assertThat(repository.findById(entity.getId())).isEmpty();
+  }
+
+  @ParameterizedTest
+  @MethodSource("entities")
+  <T extends Versioned> void shouldRefuseDeleteOfStaleCopy(String table, JpaRepository<T, Long> repository,
+                                                           Function<String, T> factory) {
+    long id = repository.save(factory.apply("stale")).getId();
+
+    assertThatExceptionOfType(ObjectOptimisticLockingFailureException.class).isThrownBy(() ->
+        transactionTemplate.executeWithoutResult(status -> {
+          T loaded = repository.findById(id).orElseThrow();
+          concurrentTransactionTemplate.executeWithoutResult(concurrent ->
+              jdbcTemplate.update("UPDATE " + table + " SET version = version + 1 WHERE id = ?", id));
+          repository.delete(loaded);
+        }));
+    assertThat(repository.findById(id)).isPresent();
+  }
+
+  private static <T> Arguments entity(String table, JpaRepository<T, Long> repository, Function<String, T> factory) {
+    return Arguments.of(Named.of(table, table), repository, factory);
+  }
+}
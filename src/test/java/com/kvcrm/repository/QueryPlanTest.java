@@ -0,0 +1,194 @@
+package com.kvcrm.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.kvcrm.IntegrationTest;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Named;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs {@code EXPLAIN} on the SQL of every point, range and account-scoped repository query
+ * against large seeded tables, and fails when the plan scans a whole table.
+ *
+ * <p>Exports, index rebuilds and substring searches read whole tables by design and are not
+ * checked. On PostgreSQL the generic plan is explained, so this needs version 16 or later.
+ */
+@IntegrationTest(properties = {
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.kvcrm.repository.QueryPlanTest$RecordingStatementInspector"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+  private static final int ACCOUNTS = 100;
+
+  private static final int ROWS = 20_000;
+
+  private static final long FIRST_ID = 1_000_000;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final ContactRepository contactRepository;
+
+  private final OrganizationRepository organizationRepository;
+
+  private final UserRepository userRepository;
+
+  private boolean postgres;
+
+  @Autowired
+  QueryPlanTest(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                ContactRepository contactRepository, OrganizationRepository organizationRepository,
+                UserRepository userRepository) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.contactRepository = contactRepository;
+    this.organizationRepository = organizationRepository;
+    this.userRepository = userRepository;
+  }
+
+  @BeforeAll
+  void seed() {
+    transactionTemplate.executeWithoutResult(status -> insertRows());
+    jdbcTemplate.execute(postgres ? "ANALYZE accounts, contacts, organizations, users" : "ANALYZE");
+  }
+
+  private void insertRows() {
+    postgres = jdbcTemplate.execute((Connection connection) -> connection.getMetaData().getDatabaseProductName())
+        .toLowerCase(Locale.ROOT).contains("postgres");
+
+    LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+    List<Object[]> accounts = new ArrayList<>();
+    for (int account = 0; account < ACCOUNTS; account++) {
+      accounts.add(new Object[] {FIRST_ID + account, "Plan account " + account, now});
+    }
+    jdbcTemplate.batchUpdate("INSERT INTO accounts (id, name, created_at, version) VALUES (?, ?, ?, 0)", accounts);
+
+    List<Object[]> rows = new ArrayList<>();
+    for (int row = 0; row < ROWS; row++) {
+      rows.add(new Object[] {FIRST_ID + row, FIRST_ID + row % ACCOUNTS, row % 3 == 0, "plan" + row + "@example.com", now});
+    }
+    jdbcTemplate.batchUpdate("INSERT INTO contacts (id, account_id, is_deleted, email, created_at, version) "
+        + "VALUES (?, ?, ?, ?, ?, 0)", rows);
+    jdbcTemplate.batchUpdate("INSERT INTO organizations (id, account_id, is_deleted, name, created_at, version) "
+        + "VALUES (?, ?, ?, ?, ?, 0)", rows);
+    jdbcTemplate.batchUpdate("INSERT INTO users (id, account_id, is_deleted, owner, email, password, created_at, version) "
+        + "VALUES (?, ?, ?, false, ?, ?, ?, 0)", rows.stream()
+        .map(row -> new Object[] {row[0], row[1], row[2], row[3], "plan-password-" + row[0], row[4]})
+        .toList());
+  }
+
+  Stream<Arguments> queries() {
+    long id = FIRST_ID + 1;
+    long accountId = FIRST_ID + 1;
+    PageRequest page = PageRequest.of(0, 50);
+    Instant now = Instant.now();
+    return Stream.of(
+        query("contact by id", () -> contactRepository.findById(id)),
+        query("contact view by id", () -> contactRepository.findViewById(id)),
+        query("contact version by id", () -> contactRepository.findVersionById(id)),
+        query("contact with account by id", () -> contactRepository.findWithAccountById(id)),
+        query("contact views after id", () -> contactRepository.findViewsByIdGreaterThan(id, page)),
+        query("contacts with accounts after id", () -> contactRepository.findWithAccountByIdGreaterThan(id, page)),
+        query("contact views of account after id", () -> contactRepository.findViewsByAccountIdAndIdGreaterThan(accountId, id, page)),
+        query("deleted contact ids by account", () -> contactRepository.findDeletedIdsByAccountId(accountId)),
+        query("soft delete contacts by id", () -> contactRepository.softDeleteByIdIn(List.of(id), now)),
+        query("soft delete contacts by account", () -> contactRepository.softDeleteByAccountId(accountId, now)),
+        query("organization by id", () -> organizationRepository.findById(id)),
+        query("organization view by id", () -> organizationRepository.findViewById(id)),
+        query("organization version by id", () -> organizationRepository.findVersionById(id)),
+        query("organization with account by id", () -> organizationRepository.findWithAccountById(id)),
+        query("organization views after id", () -> organizationRepository.findViewsByIdGreaterThan(id, page)),
+        query("organizations with accounts after id", () -> organizationRepository.findWithAccountByIdGreaterThan(id, page)),
+        query("organization views of account after id", () -> organizationRepository.findViewsByAccountIdAndIdGreaterThan(accountId, id, page)),
+        query("deleted organization ids by account", () -> organizationRepository.findDeletedIdsByAccountId(accountId)),
+        query("soft delete organizations by id", () -> organizationRepository.softDeleteByIdIn(List.of(id), now)),
+        query("soft delete organizations by account", () -> organizationRepository.softDeleteByAccountId(accountId, now)),
+        query("user by id", () -> userRepository.findById(id)),
+        query("user view by id", () -> userRepository.findViewById(id)),
+        query("user version by id", () -> userRepository.findVersionById(id)),
+        query("user with account by id", () -> userRepository.findWithAccountById(id)),
+        query("user views after id", () -> userRepository.findViewsByIdGreaterThan(id, page)),
+        query("users with accounts after id", () -> userRepository.findWithAccountByIdGreaterThan(id, page)),
+        query("user views of account after id", () -> userRepository.findViewsByAccountIdAndIdGreaterThan(accountId, id, page)),
+        query("soft delete users by id", () -> userRepository.softDeleteByIdIn(List.of(id), now)),
+        query("soft delete users by account", () -> userRepository.softDeleteByAccountId(accountId, now)));
+  }
+
+  @ParameterizedTest
+  @MethodSource("queries")
+  void shouldNotScanWholeTable(Runnable query) {
+    RecordingStatementInspector.STATEMENTS.clear();
+    transactionTemplate.executeWithoutResult(status -> {
+      query.run();
+      status.setRollbackOnly();
+    });
+
+    List<String> statements = List.copyOf(RecordingStatementInspector.STATEMENTS);
+    assertThat(statements).isNotEmpty();
+    for (String sql : statements) {
+      assertThat(explain(sql))
+          .as("plan of %s", sql)
+          .doesNotContainPattern(postgres ? "Seq Scan on (contacts|organizations|users)\\b" : "(?i)\\.(contacts|organizations|users)\\.tableScan");
+    }
+  }
+
+  private String explain(String sql) {
+    String explain = (postgres ? "EXPLAIN (GENERIC_PLAN) " : "EXPLAIN ") + sql;
+    return jdbcTemplate.execute((Connection connection) -> {
+      try (PreparedStatement statement = connection.prepareStatement(explain);
+           ResultSet plan = statement.executeQuery()) {
+        StringBuilder text = new StringBuilder();
+        while (plan.next()) {
+          text.append(plan.getString(1)).append('\n');
+        }
+        return text.toString();
+      }
+    });
+  }
+
+  private static Arguments query(String name, Runnable query) {
+    return Arguments.of(Named.of(name, query));
+  }
+
+  /**
+   * Collects the SQL Hibernate prepares, in order.
+   */
+  public static class RecordingStatementInspector implements StatementInspector {
+
+    static final Queue<String> STATEMENTS = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public String inspect(String sql) {
+      STATEMENTS.add(sql);
+      return sql;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.kvcrm.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.kvcrm.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@IntegrationTest
+class UserRepositoryTest {
+
+  private static final long ACCOUNT_ID = 2_000_000;
+
+  private static final long USER_ID = 2_000_000;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final UserRepository userRepository;
+
+  @Autowired
+  UserRepositoryTest(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, UserRepository userRepository) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.userRepository = userRepository;
+  }
+
+  @Test
+  void shouldReadUnsetOwnerAsNotOwner() {
+    LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+    transactionTemplate.executeWithoutResult(status -> {
+      jdbcTemplate.update("INSERT INTO accounts (id, name, created_at, version) VALUES (?, 'Owner account', ?, 0)", ACCOUNT_ID, now);
+      jdbcTemplate.update("INSERT INTO users (id, account_id, is_deleted, owner, email, password, created_at, version) "
+          + "VALUES (?, ?, false, NULL, 'no-owner@example.com', 'password', ?, 0)", USER_ID, ACCOUNT_ID, now);
+    });
+
+    assertThat(userRepository.findViewById(USER_ID)).hasValueSatisfying(user -> assertThat(user.isOwner()).isFalse());
+    assertThat(userRepository.findViewsByAccountIdAndIdGreaterThan(ACCOUNT_ID, 0L, PageRequest.of(0, 10)))
+        .singleElement()
+        .satisfies(user -> assertThat(user.isOwner()).isFalse());
+  }
+}
@@ -0,0 +1,104 @@
+package com.kvcrm.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class PrefixIndexTest {
+
+  private final PrefixIndex index = new PrefixIndex(100);
+
+  @Test
+  void shouldFindByTokenPrefix() {
+    index.put(1L, "John Doe john.doe@example.com");
+    index.put(2L, "Johanna Smith jsmith@example.com");
+    index.put(3L, "Mary Jones mary@example.com");
+
+    assertThat(index.lookup("jo", 10)).containsExactlyInAnyOrder(1L, 2L, 3L);
+    assertThat(index.lookup("joh", 10)).containsExactlyInAnyOrder(1L, 2L);
+    assertThat(index.lookup("john.d", 10)).containsExactly(1L);
+    assertThat(index.lookup("EXAMPLE", 2)).hasSize(2);
+    assertThat(index.lookup(" ", 10)).isEmpty();
+  }
+
+  @Test
+  void shouldRankExactTokenFirst() {
+    index.put(1L, "Johnson");
+    index.put(2L, "John");
+
+    assertThat(index.lookup("john", 10)).containsExactly(2L, 1L);
+  }
+
+  @Test
+  void shouldIgnoreCaseAndDiacritics() {
+    index.put(1L, "Zoë Ångström");
+
+    assertThat(index.lookup("zoe", 10)).containsExactly(1L);
+    assertThat(index.lookup("ANGS", 10)).containsExactly(1L);
+  }
+
+  @Test
+  void shouldReplaceAndRemoveEntries() {
+    index.put(1L, "John  Doe");
+    index.put(1L, "Jane Doe");
+
+    assertThat(index.lookup("john", 10)).isEmpty();
+    assertThat(index.lookup("jane", 10)).containsExactly(1L);
+    assertThat(index.text(1L)).isEqualTo("Jane Doe");
+
+    index.remove(1L);
+
+    assertThat(index.lookup("doe", 10)).isEmpty();
+    assertThat(index.size()).isZero();
+  }
+
+  @Test
+  void shouldStopIndexingFrequentTokens() {
+    PrefixIndex capped = new PrefixIndex(2);
+    capped.put(1L, "John john@gmail.com");
+    capped.put(2L, "Jane jane@gmail.com");
+    capped.put(3L, "Mary mary@gmail.com");
+    capped.put(4L, "Gmail Support");
+
+    assertThat(capped.lookup("gmail", 10)).isEmpty();
+    assertThat(capped.lookup("jane", 10)).containsExactly(2L);
+    assertThat(capped.lookup("mary@", 10)).containsExactly(3L);
+  }
+
+  @Test
+  void shouldBuildTheSameIndexInOnePass() {
+    PrefixIndex built = new PrefixIndex.Builder(2)
+        .add(3L, "Mary mary@gmail.com")
+        .add(1L, "John john@gmail.com")
+        .add(2L, "Johanna jo@gmail.com")
+        .build();
+
+    assertThat(built.lookup("jo", 10)).containsExactly(2L, 1L);
+    assertThat(built.lookup("gmail", 10)).isEmpty();
+    assertThat(built.text(3L)).isEqualTo("Mary mary@gmail.com");
+    assertThat(built.size()).isEqualTo(3);
+
+    built.put(4L, "Gmail Support");
+    built.put(1L, "Jon");
+
+    assertThat(built.lookup("gmail", 10)).isEmpty();
+    assertThat(built.lookup("support", 10)).containsExactly(4L);
+    assertThat(built.lookup("john", 10)).isEmpty();
+    assertThat(built.lookup("jon", 10)).containsExactly(1L);
+  }
+
+  @Test
+  void shouldKeepTextsAcrossGrowthAndRemoval() {
+    for (long id = 1; id <= 1000; id++) {
+      index.put(id, "Contact " + id);
+    }
+    for (long id = 1; id <= 1000; id += 2) {
+      index.remove(id);
+    }
+
+    assertThat(index.size()).isEqualTo(500);
+    for (long id = 1; id <= 1000; id++) {
+      assertThat(index.text(id)).isEqualTo(id % 2 == 0 ? "Contact " + id : null);
+    }
+  }
+}
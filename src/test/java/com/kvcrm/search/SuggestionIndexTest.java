@@ -0,0 +1,100 @@
+package com.kvcrm.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import com.kvcrm.IntegrationTest;
+import com.kvcrm.entity.Account;
+import com.kvcrm.entity.Contact;
+import com.kvcrm.entity.Organization;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import com.kvcrm.repository.OrganizationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Checks that bulk soft deletes, which bypass the Hibernate events the index follows, still take
+ * the deleted entities out of the suggestions, and that the periodic rebuild picks up rows written
+ * behind the index's back, as by another instance.
+ */
+@IntegrationTest(properties = {
+    "kvcrm.search.suggest.enabled=true",
+    "kvcrm.search.suggest.rebuild-interval=200ms"
+})
+@AutoConfigureMockMvc
+class SuggestionIndexTest {
+
+  private static final long UNINDEXED_ID = 3_000_000;
+
+  private final MockMvc mockMvc;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final SuggestionIndex suggestionIndex;
+
+  private final AccountRepository accountRepository;
+
+  private final ContactRepository contactRepository;
+
+  private final OrganizationRepository organizationRepository;
+
+  @Autowired
+  SuggestionIndexTest(MockMvc mockMvc, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                      SuggestionIndex suggestionIndex, AccountRepository accountRepository,
+                      ContactRepository contactRepository, OrganizationRepository organizationRepository) {
+    this.mockMvc = mockMvc;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.suggestionIndex = suggestionIndex;
+    this.accountRepository = accountRepository;
+    this.contactRepository = contactRepository;
+    this.organizationRepository = organizationRepository;
+  }
+
+  @Test
+  void shouldDropEntitiesOfDeletedAccount() throws Exception {
+    Account account = accountRepository.save(Account.builder().name("suggestion-index").build());
+    for (int i = 0; i < 2; i++) {
+      contactRepository.save(Contact.builder().account(account).firstName("Quillon").email("quillon-" + i + "@suggestion.test").build());
+      organizationRepository.save(Organization.builder().account(account).name("Quillon " + i).build());
+    }
+    assertThat(suggestionIndex.suggest("quillon", null, 10)).hasSize(4);
+
+    mockMvc.perform(delete("/v1/contacts").param("accountId", account.getId().toString()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.deleted").value(2));
+    mockMvc.perform(delete("/v1/organizations").param("accountId", account.getId().toString()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.deleted").value(2));
+
+    assertThat(suggestionIndex.suggest("quillon", null, 10)).isEmpty();
+  }
+
+  @Test
+  void shouldPickUpRowsWrittenByOtherInstancesOnRebuild() throws Exception {
+    Account account = accountRepository.save(Account.builder().name("suggestion-rebuild").build());
+    transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+        "INSERT INTO contacts (id, account_id, is_deleted, first_name, email, created_at, version) "
+            + "VALUES (?, ?, false, 'Zephyrine', 'zephyrine@suggestion.test', ?, 0)",
+        UNINDEXED_ID, account.getId(), LocalDateTime.now(ZoneOffset.UTC)));
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (suggestionIndex.suggest("zephyrine", null, 10).isEmpty() && System.nanoTime() < deadline) {
+      Thread.sleep(50);
+    }
+    assertThat(suggestionIndex.suggest("zephyrine", null, 10)).hasSize(1);
+  }
+}
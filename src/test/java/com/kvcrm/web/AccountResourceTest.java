@@ -1,18 +1,26 @@
 package com.kvcrm.web;
 
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,16 +32,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
+@Import(BatchProcessor.class)
 @WebMvcTest(value = AccountResource.class, excludeAutoConfiguration = {SecurityAutoConfiguration.class})
 class AccountResourceTest {
   @MockBean
   private AccountRepository accountRepository;
 
+  @MockBean
+  private PlatformTransactionManager transactionManager;
+
   private final MockMvc mockMvc;
 
   private final ObjectMapper objectMapper;
@@ -83,10 +101,64 @@ class AccountResourceTest {
              Account.builder().id(2L).name("spring@example.com 2").build(),
             Account.builder().id(3L).name("spring@example.com 3").build()));
 
-    when(accountRepository.findAll()).thenReturn(accounts);
+    when(accountRepository.findByIdGreaterThan(eq(0L), any(Pageable.class))).thenReturn(new SliceImpl<>(accounts));
     mockMvc.perform(get("/v1/accounts"))
         .andExpect(status().isOk())
-        .andExpect(jsonPath("$.size()").value(accounts.size()))
+        .andExpect(jsonPath("$.items.size()").value(accounts.size()))
+        .andExpect(jsonPath("$.next").doesNotExist())
+        .andDo(print());
+  }
+
+  @Test
+  void shouldReturnNotModifiedListOfAccounts() throws Exception {
+    List<Account> accounts = List.of(
+        Account.builder().id(1L).version(0L).name("spring").updatedAt(Instant.parse("2023-12-01T10:15:30Z")).build(),
+        Account.builder().id(2L).version(0L).name("boot").updatedAt(Instant.parse("2023-12-02T10:15:30Z")).build());
+
+    when(accountRepository.findByIdGreaterThan(eq(0L), any(Pageable.class))).thenReturn(new SliceImpl<>(accounts));
+    String etag = mockMvc.perform(get("/v1/accounts"))
+        .andExpect(status().isOk())
+        .andExpect(header().exists(HttpHeaders.ETAG))
+        .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    mockMvc.perform(get("/v1/accounts").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""))
+        .andDo(print());
+
+    accounts.get(0).setVersion(1L);
+    mockMvc.perform(get("/v1/accounts").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldReturnNextCursorForListOfAccounts() throws Exception {
+    List<Account> accounts = List.of(Account.builder().id(1L).name("spring@example.com 1").build(),
+        Account.builder().id(2L).name("spring@example.com 2").build());
+
+    when(accountRepository.findByIdGreaterThan(eq(0L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(accounts, PageRequest.of(0, 2), true));
+    String next = KeysetCursor.encode(2L);
+    mockMvc.perform(get("/v1/accounts").param("limit", "2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(accounts.size()))
+        .andExpect(jsonPath("$.next").value(next))
+        .andDo(print());
+
+    when(accountRepository.findByIdGreaterThan(eq(2L), any(Pageable.class))).thenReturn(new SliceImpl<>(List.of()));
+    mockMvc.perform(get("/v1/accounts").param("after", next))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(0))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldRejectMalformedCursor() throws Exception {
+    mockMvc.perform(get("/v1/accounts").param("after", "not-a-cursor"))
+        .andExpect(status().isBadRequest())
         .andDo(print());
   }
 
@@ -100,13 +172,43 @@ class AccountResourceTest {
     MultiValueMap<String, String> paramsMap = new LinkedMultiValueMap<>();
     paramsMap.add("name", name);
 
-    when(accountRepository.findByNameContaining(name)).thenReturn(accounts);
+    when(accountRepository.findByNameContainingAndIdGreaterThan(eq(name), eq(0L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(accounts));
     mockMvc.perform(get("/v1/accounts").params(paramsMap))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(accounts.size()))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldSearchAccounts() throws Exception {
+    List<Account> accounts = List.of(Account.builder().id(1L).name("spring@example.com").build());
+
+    when(accountRepository.searchByName("spring", "%spring%", 20)).thenReturn(accounts);
+    mockMvc.perform(get("/v1/accounts/search").param("q", " spring "))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.size()").value(accounts.size()))
         .andDo(print());
   }
 
+  @Test
+  void shouldNotSearchAccountsByShortTerm() throws Exception {
+    mockMvc.perform(get("/v1/accounts/search").param("q", "sp"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()").value(0))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldEscapeWildcardsInSearchTerm() throws Exception {
+    when(accountRepository.searchByName("100%_off", "%100\\%\\_off%", 5)).thenReturn(List.of());
+    mockMvc.perform(get("/v1/accounts/search").param("q", "100%_off").param("limit", "5"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()").value(0))
+        .andDo(print());
+    verify(accountRepository).searchByName("100%_off", "%100\\%\\_off%", 5);
+  }
+
   @Test
   void shouldUpdateAccount() throws Exception {
     long id = 1L;
@@ -114,7 +216,7 @@ class AccountResourceTest {
     Account account = Account.builder().id(id).name("spring@example.com").build();
     Account updatedAccount = Account.builder().id(id).name("updated@example.com").build();
 
-    when(accountRepository.findById(id)).thenReturn(Optional.of(account));
+    when(accountRepository.findForWriteById(id)).thenReturn(Optional.of(account));
     when(accountRepository.save(any(Account.class))).thenReturn(updatedAccount);
 
     mockMvc.perform(put("/v1/accounts/{id}", id).contentType(MediaType.APPLICATION_JSON)
@@ -130,7 +232,7 @@ class AccountResourceTest {
 
     Account updatedAccount = Account.builder().id(id).name("updated@example.com").build();
 
-    when(accountRepository.findById(id)).thenReturn(Optional.empty());
+    when(accountRepository.findForWriteById(id)).thenReturn(Optional.empty());
     when(accountRepository.save(any(Account.class))).thenReturn(updatedAccount);
 
     mockMvc.perform(put("/v1/accounts/{id}", id).contentType(MediaType.APPLICATION_JSON)
@@ -139,6 +241,41 @@ class AccountResourceTest {
         .andDo(print());
   }
 
+  @Test
+  void shouldProcessBatchOfAccounts() throws Exception {
+    Account existing = Account.builder().id(2L).name("spring@example.com 2").build();
+    Account created = Account.builder().id(10L).name("created@example.com").build();
+
+    when(accountRepository.findAllById(anyList())).thenReturn(List.of(existing));
+    when(accountRepository.saveAll(anyList())).thenReturn(List.of(created));
+
+    String body = """
+        [
+          {"action": "create", "data": {"name": "created@example.com"}},
+          {"action": "update", "id": 2, "data": {"name": "updated@example.com"}},
+          {"action": "delete", "id": 3},
+          {"action": "update", "data": {"name": "missing-id@example.com"}}
+        ]
+        """;
+    mockMvc.perform(post("/v1/accounts/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()").value(4))
+        .andExpect(jsonPath("$[0].status").value(201))
+        .andExpect(jsonPath("$[0].id").value(10))
+        .andExpect(jsonPath("$[1].status").value(200))
+        .andExpect(jsonPath("$[2].status").value(404))
+        .andExpect(jsonPath("$[3].status").value(400))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldRejectOversizedBatch() throws Exception {
+    String body = "[" + String.join(",", Collections.nCopies(1001, "{\"action\": \"delete\", \"id\": 1}")) + "]";
+    mockMvc.perform(post("/v1/accounts/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(status().isBadRequest())
+        .andDo(print());
+  }
+
   @Test
   void shouldDeleteAccount() throws Exception {
     long id = 1L;
@@ -1,37 +1,79 @@
 package com.kvcrm.web;
 
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import jakarta.persistence.EntityManager;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kvcrm.entity.Account;
 import com.kvcrm.entity.Contact;
 import com.kvcrm.repository.ContactRepository;
+import com.kvcrm.repository.ContactView;
+import com.kvcrm.repository.VersionView;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
 
+@Import({NdjsonExporter.class, BatchProcessor.class, MergePatcher.class, BulkDeleter.class})
 @WebMvcTest(value = ContactResource.class, excludeAutoConfiguration = {SecurityAutoConfiguration.class})
 class ContactResourceTest {
+  private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
   @MockBean
   private ContactRepository contactRepository;
 
+  @MockBean
+  private EntityManager entityManager;
+
+  @MockBean
+  private PlatformTransactionManager transactionManager;
+
+  @MockBean
+  private WriteBehindQueue<ContactResource.ContactRequest> contactWriteBehindQueue;
+
   private final MockMvc mockMvc;
 
   private final ObjectMapper objectMapper;
@@ -55,20 +97,59 @@ class ContactResourceTest {
   @Test
   void shouldReturnContact() throws Exception {
     long id = 1L;
-    Contact contact =  Contact.builder().id(id).email("i@example.com").build();
+    ContactView contact = contactView(id, "i@example.com");
 
-    when(contactRepository.findById(id)).thenReturn(Optional.of(contact));
+    when(contactRepository.findViewById(id)).thenReturn(Optional.of(contact));
     mockMvc.perform(get("/v1/contacts/{id}", id)).andExpect(status().isOk())
         .andExpect(jsonPath("$.id").value(id))
         .andExpect(jsonPath("$.email").value(contact.getEmail()))
         .andDo(print());
   }
 
+  @Test
+  void shouldReturnNotModifiedContactWithoutLoadingIt() throws Exception {
+    long id = 1L;
+    Instant updatedAt = Instant.parse("2023-12-01T10:15:30Z");
+    ContactView contact = PROJECTIONS.createProjection(ContactView.class,
+        Map.of("id", id, "version", 3L, "email", "i@example.com", "updatedAt", updatedAt));
+    VersionView version = PROJECTIONS.createProjection(VersionView.class, Map.of("id", id, "version", 3L, "updatedAt", updatedAt));
+
+    when(contactRepository.findViewById(id)).thenReturn(Optional.of(contact));
+    when(contactRepository.findVersionById(id)).thenReturn(Optional.of(version));
+    String etag = mockMvc.perform(get("/v1/contacts/{id}", id))
+        .andExpect(status().isOk())
+        .andExpect(header().exists(HttpHeaders.ETAG))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    mockMvc.perform(get("/v1/contacts/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, etag))
+        .andDo(print());
+    mockMvc.perform(get("/v1/contacts/{id}", id).header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 01 Dec 2023 10:15:30 GMT"))
+        .andExpect(status().isNotModified())
+        .andDo(print());
+    verify(contactRepository, times(1)).findViewById(id);
+  }
+
+  @Test
+  void shouldReturnContactWithExpandedAccount() throws Exception {
+    long id = 1L;
+    Account account = Account.builder().id(7L).name("acme").build();
+    Contact contact = Contact.builder().id(id).account(account).email("i@example.com").build();
+
+    when(contactRepository.findWithAccountById(id)).thenReturn(Optional.of(contact));
+    mockMvc.perform(get("/v1/contacts/{id}", id).param("expand", "account")).andExpect(status().isOk())
+        .andExpect(jsonPath("$.id").value(id))
+        .andExpect(jsonPath("$.accountId").value(account.getId()))
+        .andExpect(jsonPath("$.account.name").value(account.getName()))
+        .andDo(print());
+  }
+
   @Test
   void shouldReturnNotFoundContact() throws Exception {
     long id = 1L;
 
-    when(contactRepository.findById(id)).thenReturn(Optional.empty());
+    when(contactRepository.findViewById(id)).thenReturn(Optional.empty());
     mockMvc.perform(get("/v1/contacts/{id}", id))
         .andExpect(status().isNotFound())
         .andDo(print());
@@ -76,13 +157,82 @@ class ContactResourceTest {
 
   @Test
   void shouldReturnListOfContacts() throws Exception {
-    List<Contact> contacts = new ArrayList<>(
-        Arrays.asList(Contact.builder().id(1L).email("spring@example.com 1").build(),
-             Contact.builder().id(2L).email("spring@example.com 2").build(),
-            Contact.builder().id(3L).email("spring@example.com 3").build()));
+    List<ContactView> contacts = new ArrayList<>(
+        Arrays.asList(contactView(1L, "spring@example.com 1"),
+             contactView(2L, "spring@example.com 2"),
+            contactView(3L, "spring@example.com 3")));
 
-    when(contactRepository.findAll()).thenReturn(contacts);
+    when(contactRepository.findViewsByIdGreaterThan(eq(0L), any(Pageable.class))).thenReturn(new SliceImpl<>(contacts));
     mockMvc.perform(get("/v1/contacts"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(contacts.size()))
+        .andExpect(jsonPath("$.next").doesNotExist())
+        .andDo(print());
+  }
+
+  @Test
+  void shouldReturnNextCursorForListOfContacts() throws Exception {
+    List<ContactView> contacts = List.of(contactView(1L, "spring@example.com 1"),
+        contactView(2L, "spring@example.com 2"));
+
+    when(contactRepository.findViewsByIdGreaterThan(eq(0L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(contacts, PageRequest.of(0, 2), true));
+    String next = KeysetCursor.encode(2L);
+    mockMvc.perform(get("/v1/contacts").param("limit", "2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(contacts.size()))
+        .andExpect(jsonPath("$.next").value(next))
+        .andDo(print());
+
+    when(contactRepository.findViewsByIdGreaterThan(eq(2L), any(Pageable.class))).thenReturn(new SliceImpl<>(List.of()));
+    mockMvc.perform(get("/v1/contacts").param("after", next))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(0))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldTagPageByItsNextCursor() throws Exception {
+    List<ContactView> contacts = List.of(contactView(1L, "spring@example.com 1"),
+        contactView(2L, "spring@example.com 2"));
+
+    when(contactRepository.findViewsByIdGreaterThan(eq(0L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(contacts, PageRequest.of(0, 2), false));
+    String lastPage = mockMvc.perform(get("/v1/contacts").param("limit", "2"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    when(contactRepository.findViewsByIdGreaterThan(eq(0L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(contacts, PageRequest.of(0, 2), true));
+    mockMvc.perform(get("/v1/contacts").param("limit", "2").header(HttpHeaders.IF_NONE_MATCH, lastPage))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, not(lastPage)))
+        .andExpect(jsonPath("$.next").value(KeysetCursor.encode(2L)))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldExportContactsAsNdjson() throws Exception {
+    when(contactRepository.streamAll()).thenReturn(Stream.of(contactView(1L, "spring@example.com 1"),
+        contactView(2L, "spring@example.com 2")));
+
+    MvcResult result = mockMvc.perform(get("/v1/contacts/export"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+        .andExpect(content().string(matchesPattern("(?s)\\{\"id\":1,.*}\n\\{\"id\":2,.*}\n")))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldSearchContacts() throws Exception {
+    List<ContactView> contacts = List.of(contactView(1L, "spring@example.com"));
+
+    when(contactRepository.searchByNameOrEmail("spring", "%spring%", 20)).thenReturn(contacts);
+    mockMvc.perform(get("/v1/contacts/search").param("q", " spring "))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.size()").value(contacts.size()))
         .andDo(print());
@@ -95,7 +245,7 @@ class ContactResourceTest {
     Contact contact = Contact.builder().id(id).email("spring@example.com").build();
     Contact updatedContact = Contact.builder().id(id).email("updated@example.com").build();
 
-    when(contactRepository.findById(id)).thenReturn(Optional.of(contact));
+    when(contactRepository.findForWriteById(id)).thenReturn(Optional.of(contact));
     when(contactRepository.save(any(Contact.class))).thenReturn(updatedContact);
 
     mockMvc.perform(put("/v1/contacts/{id}", id).contentType(MediaType.APPLICATION_JSON)
@@ -105,13 +255,145 @@ class ContactResourceTest {
         .andDo(print());
   }
 
+  @Test
+  void shouldQueueContactUpdatePreferringAsyncResponse() throws Exception {
+    long id = 1L;
+    Contact contact = Contact.builder().id(id).version(3L).email("spring@example.com").build();
+    WriteStatus queued = WriteStatus.pending(UUID.randomUUID(), id);
+
+    when(contactRepository.findForWriteById(id)).thenReturn(Optional.of(contact));
+    when(contactWriteBehindQueue.isEnabled()).thenReturn(true);
+    when(contactWriteBehindQueue.submit(id, 3L, new ContactResource.ContactRequest("updated@example.com"))).thenReturn(queued);
+    when(contactWriteBehindQueue.status(queued.handle())).thenReturn(Optional.of(queued.complete(WriteStatus.State.APPLIED, null)));
+
+    mockMvc.perform(put("/v1/contacts/{id}", id).contentType(MediaType.APPLICATION_JSON)
+            .header(WriteBehindQueue.PREFER, WriteBehindQueue.RESPOND_ASYNC)
+            .content("{\"email\":\"updated@example.com\"}"))
+        .andExpect(status().isAccepted())
+        .andExpect(header().string(HttpHeaders.LOCATION, "/v1/contacts/writes/" + queued.handle()))
+        .andExpect(header().string(WriteBehindQueue.PREFERENCE_APPLIED, WriteBehindQueue.RESPOND_ASYNC))
+        .andExpect(jsonPath("$.state").value("PENDING"))
+        .andDo(print());
+    mockMvc.perform(get("/v1/contacts/writes/{handle}", queued.handle()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.state").value("APPLIED"))
+        .andDo(print());
+    verify(contactRepository, never()).save(any(Contact.class));
+  }
+
+  @Test
+  void shouldUpdateContactMatchingIfMatch() throws Exception {
+    long id = 1L;
+
+    Contact contact = Contact.builder().id(id).version(3L).email("spring@example.com").build();
+    Contact updatedContact = Contact.builder().id(id).version(4L).email("updated@example.com").build();
+
+    when(contactRepository.findForWriteById(id)).thenReturn(Optional.of(contact));
+    when(contactRepository.save(any(Contact.class))).thenReturn(updatedContact);
+
+    mockMvc.perform(put("/v1/contacts/{id}", id).contentType(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_MATCH, EntityTag.of(List.of(contact)))
+            .content(objectMapper.writeValueAsString(updatedContact)))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, EntityTag.of(List.of(updatedContact))))
+        .andExpect(jsonPath("$.version").value(4))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldRejectUpdateOfStaleContact() throws Exception {
+    long id = 1L;
+
+    Contact contact = Contact.builder().id(id).version(4L).email("spring@example.com").build();
+    Contact staleContact = Contact.builder().id(id).version(3L).email("spring@example.com").build();
+
+    when(contactRepository.findForWriteById(id)).thenReturn(Optional.of(contact));
+
+    mockMvc.perform(put("/v1/contacts/{id}", id).contentType(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_MATCH, EntityTag.of(List.of(staleContact)))
+            .content(objectMapper.writeValueAsString(staleContact)))
+        .andExpect(status().isPreconditionFailed())
+        .andExpect(header().string(HttpHeaders.ETAG, EntityTag.of(List.of(contact))))
+        .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+        .andExpect(jsonPath("$.detail").value(EntityTag.preconditionFailed().getDetail()))
+        .andDo(print());
+    verify(contactRepository, never()).save(any(Contact.class));
+  }
+
+  @Test
+  void shouldRejectConcurrentUpdateOfContact() throws Exception {
+    long id = 1L;
+
+    Contact contact = Contact.builder().id(id).version(3L).email("spring@example.com").build();
+
+    when(contactRepository.findForWriteById(id)).thenReturn(Optional.of(contact));
+    when(contactRepository.save(any(Contact.class))).thenThrow(new ObjectOptimisticLockingFailureException(Contact.class, id));
+
+    mockMvc.perform(put("/v1/contacts/{id}", id).contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(contact)))
+        .andExpect(status().isPreconditionFailed())
+        .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+        .andExpect(jsonPath("$.detail").value(EntityTag.preconditionFailed().getDetail()))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldPatchOnlyGivenPropertiesOfContact() throws Exception {
+    long id = 1L;
+
+    Contact contact = Contact.builder().id(id).version(3L).firstName("Jane").lastName("Doe").email("spring@example.com").build();
+
+    when(contactRepository.findForWriteById(id)).thenReturn(Optional.of(contact));
+    when(contactRepository.save(any(Contact.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    mockMvc.perform(patch("/v1/contacts/{id}", id).contentType(MergePatcher.MEDIA_TYPE)
+            .header(HttpHeaders.IF_MATCH, EntityTag.of(List.of(contact)))
+            .content("{\"phone\": \"+1 555 0100\", \"lastName\": null}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.phone").value("+1 555 0100"))
+        .andExpect(jsonPath("$.lastName").doesNotExist())
+        .andExpect(jsonPath("$.firstName").value("Jane"))
+        .andExpect(jsonPath("$.email").value("spring@example.com"))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldRejectPatchOfReadOnlyContactProperty() throws Exception {
+    long id = 1L;
+
+    Contact contact = Contact.builder().id(id).version(3L).email("spring@example.com").build();
+
+    when(contactRepository.findForWriteById(id)).thenReturn(Optional.of(contact));
+
+    mockMvc.perform(patch("/v1/contacts/{id}", id).contentType(MergePatcher.MEDIA_TYPE)
+            .content("{\"version\": 1}"))
+        .andExpect(status().isBadRequest())
+        .andDo(print());
+    verify(contactRepository, never()).save(any(Contact.class));
+  }
+
+  @Test
+  void shouldRejectInvalidPatchOfContact() throws Exception {
+    long id = 1L;
+
+    Contact contact = Contact.builder().id(id).version(3L).email("spring@example.com").build();
+
+    when(contactRepository.findForWriteById(id)).thenReturn(Optional.of(contact));
+
+    mockMvc.perform(patch("/v1/contacts/{id}", id).contentType(MergePatcher.MEDIA_TYPE)
+            .content("{\"email\": \"not an email\", \"country\": \"Netherlands\"}"))
+        .andExpect(status().isBadRequest())
+        .andDo(print());
+    verify(contactRepository, never()).save(any(Contact.class));
+  }
+
   @Test
   void shouldReturnNotFoundUpdateContact() throws Exception {
     long id = 1L;
 
     Contact updatedContact = Contact.builder().id(id).email("updated@example.com").build();
 
-    when(contactRepository.findById(id)).thenReturn(Optional.empty());
+    when(contactRepository.findForWriteById(id)).thenReturn(Optional.empty());
     when(contactRepository.save(any(Contact.class))).thenReturn(updatedContact);
 
     mockMvc.perform(put("/v1/contacts/{id}", id).contentType(MediaType.APPLICATION_JSON)
@@ -120,6 +402,64 @@ class ContactResourceTest {
         .andDo(print());
   }
 
+  @Test
+  void shouldProcessBatchOfContacts() throws Exception {
+    Contact existing = Contact.builder().id(2L).email("spring@example.com 2").build();
+    Contact created = Contact.builder().id(10L).email("created@example.com").build();
+
+    when(contactRepository.findAllById(anyList())).thenReturn(List.of(existing));
+    when(contactRepository.saveAll(anyList())).thenReturn(List.of(created));
+
+    String body = """
+        [
+          {"action": "create", "data": {"email": "created@example.com"}},
+          {"action": "update", "id": 2, "data": {"email": "updated@example.com"}},
+          {"action": "delete", "id": 3},
+          {"action": "update", "data": {"email": "missing-id@example.com"}}
+        ]
+        """;
+    mockMvc.perform(post("/v1/contacts/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()").value(4))
+        .andExpect(jsonPath("$[0].status").value(201))
+        .andExpect(jsonPath("$[0].id").value(10))
+        .andExpect(jsonPath("$[1].status").value(200))
+        .andExpect(jsonPath("$[2].status").value(404))
+        .andExpect(jsonPath("$[3].status").value(400))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldDeleteContactsByIds() throws Exception {
+    when(contactRepository.softDeleteByIdIn(eq(List.of(1L, 2L, 3L)), any(Instant.class))).thenReturn(2);
+
+    mockMvc.perform(delete("/v1/contacts").param("ids", "1,2,3"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.deleted").value(2))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldDeleteContactsOfAccount() throws Exception {
+    when(contactRepository.softDeleteByAccountId(eq(7L), any(Instant.class))).thenReturn(2);
+
+    mockMvc.perform(delete("/v1/contacts").param("accountId", "7"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.deleted").value(2))
+        .andDo(print());
+    verify(contactRepository, never()).findDeletedIdsByAccountId(any());
+  }
+
+  @Test
+  void shouldRejectBulkDeleteWithoutSingleCriterion() throws Exception {
+    mockMvc.perform(delete("/v1/contacts"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(delete("/v1/contacts").param("ids", "1").param("accountId", "7"))
+        .andExpect(status().isBadRequest());
+    verify(contactRepository, never()).softDeleteByIdIn(any(), any());
+    verify(contactRepository, never()).softDeleteByAccountId(any(), any());
+  }
+
   @Test
   void shouldDeleteContact() throws Exception {
     long id = 1L;
@@ -130,4 +470,8 @@ class ContactResourceTest {
         .andDo(print());
   }
 
+  private static ContactView contactView(long id, String email) {
+    return PROJECTIONS.createProjection(ContactView.class, Map.of("id", id, "email", email));
+  }
+
 }
@@ -0,0 +1,47 @@
+package com.kvcrm.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class NdjsonExporterTest {
+
+  private static final int ROWS = 2 * NdjsonExporter.CHUNK_SIZE;
+
+  private final EntityManager entityManager = mock(EntityManager.class);
+
+  private final NdjsonExporter exporter =
+      new NdjsonExporter(entityManager, new ObjectMapper(), mock(PlatformTransactionManager.class));
+
+  @Test
+  void shouldFlushOncePerChunk() throws Exception {
+    FlushCountingOutputStream outputStream = new FlushCountingOutputStream();
+
+    exporter.export(() -> IntStream.range(0, ROWS).mapToObj(id -> Map.of("id", id))).getBody().writeTo(outputStream);
+
+    assertThat(outputStream.toString().lines()).hasSize(ROWS).startsWith("{\"id\":0}");
+    // one flush per chunk, and one when the generator is closed
+    assertThat(outputStream.flushes).isEqualTo(ROWS / NdjsonExporter.CHUNK_SIZE + 1);
+    verify(entityManager, times(ROWS / NdjsonExporter.CHUNK_SIZE)).clear();
+  }
+
+  private static class FlushCountingOutputStream extends ByteArrayOutputStream {
+
+    private int flushes;
+
+    @Override
+    public void flush() {
+      flushes++;
+    }
+  }
+}
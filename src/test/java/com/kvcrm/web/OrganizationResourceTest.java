@@ -1,37 +1,65 @@
 package com.kvcrm.web;
 
+import static org.hamcrest.Matchers.matchesPattern;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import jakarta.persistence.EntityManager;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kvcrm.entity.Organization;
 import com.kvcrm.repository.OrganizationRepository;
+import com.kvcrm.repository.OrganizationView;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
 
+@Import({NdjsonExporter.class, BatchProcessor.class, MergePatcher.class, BulkDeleter.class})
 @WebMvcTest(value = OrganizationResource.class, excludeAutoConfiguration = {SecurityAutoConfiguration.class})
 class OrganizationResourceTest {
+  private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
   @MockBean
   private OrganizationRepository organizationRepository;
 
+  @MockBean
+  private EntityManager entityManager;
+
+  @MockBean
+  private PlatformTransactionManager transactionManager;
+
   private final MockMvc mockMvc;
 
   private final ObjectMapper objectMapper;
@@ -55,9 +83,9 @@ class OrganizationResourceTest {
   @Test
   void shouldReturnOrganization() throws Exception {
     long id = 1L;
-    Organization organization =  Organization.builder().id(id).email("i@example.com").build();
+    OrganizationView organization = organizationView(id, "i@example.com");
 
-    when(organizationRepository.findById(id)).thenReturn(Optional.of(organization));
+    when(organizationRepository.findViewById(id)).thenReturn(Optional.of(organization));
     mockMvc.perform(get("/v1/organizations/{id}", id)).andExpect(status().isOk())
         .andExpect(jsonPath("$.id").value(id))
         .andExpect(jsonPath("$.email").value(organization.getEmail()))
@@ -68,7 +96,7 @@ class OrganizationResourceTest {
   void shouldReturnNotFoundOrganization() throws Exception {
     long id = 1L;
 
-    when(organizationRepository.findById(id)).thenReturn(Optional.empty());
+    when(organizationRepository.findViewById(id)).thenReturn(Optional.empty());
     mockMvc.perform(get("/v1/organizations/{id}", id))
         .andExpect(status().isNotFound())
         .andDo(print());
@@ -76,13 +104,61 @@ class OrganizationResourceTest {
 
   @Test
   void shouldReturnListOfOrganizations() throws Exception {
-    List<Organization> organizations = new ArrayList<>(
-        Arrays.asList(Organization.builder().id(1L).email("spring@example.com 1").build(),
-             Organization.builder().id(2L).email("spring@example.com 2").build(),
-            Organization.builder().id(3L).email("spring@example.com 3").build()));
+    List<OrganizationView> organizations = new ArrayList<>(
+        Arrays.asList(organizationView(1L, "spring@example.com 1"),
+             organizationView(2L, "spring@example.com 2"),
+            organizationView(3L, "spring@example.com 3")));
 
-    when(organizationRepository.findAll()).thenReturn(organizations);
+    when(organizationRepository.findViewsByIdGreaterThan(eq(0L), any(Pageable.class))).thenReturn(new SliceImpl<>(organizations));
     mockMvc.perform(get("/v1/organizations"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(organizations.size()))
+        .andExpect(jsonPath("$.next").doesNotExist())
+        .andDo(print());
+  }
+
+  @Test
+  void shouldReturnNextCursorForListOfOrganizations() throws Exception {
+    List<OrganizationView> organizations = List.of(organizationView(1L, "spring@example.com 1"),
+        organizationView(2L, "spring@example.com 2"));
+
+    when(organizationRepository.findViewsByIdGreaterThan(eq(0L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(organizations, PageRequest.of(0, 2), true));
+    String next = KeysetCursor.encode(2L);
+    mockMvc.perform(get("/v1/organizations").param("limit", "2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(organizations.size()))
+        .andExpect(jsonPath("$.next").value(next))
+        .andDo(print());
+
+    when(organizationRepository.findViewsByIdGreaterThan(eq(2L), any(Pageable.class))).thenReturn(new SliceImpl<>(List.of()));
+    mockMvc.perform(get("/v1/organizations").param("after", next))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(0))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldExportOrganizationsAsNdjson() throws Exception {
+    when(organizationRepository.streamAll()).thenReturn(Stream.of(organizationView(1L, "spring@example.com 1"),
+        organizationView(2L, "spring@example.com 2")));
+
+    MvcResult result = mockMvc.perform(get("/v1/organizations/export"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+        .andExpect(content().string(matchesPattern("(?s)\\{\"id\":1,.*}\n\\{\"id\":2,.*}\n")))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldSearchOrganizations() throws Exception {
+    List<OrganizationView> organizations = List.of(organizationView(1L, "spring@example.com"));
+
+    when(organizationRepository.searchByName("spring", "%spring%", 20)).thenReturn(organizations);
+    mockMvc.perform(get("/v1/organizations/search").param("q", " spring "))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.size()").value(organizations.size()))
         .andDo(print());
@@ -95,7 +171,7 @@ class OrganizationResourceTest {
     Organization organization = Organization.builder().id(id).email("spring@example.com").build();
     Organization updatedOrganization = Organization.builder().id(id).email("updated@example.com").build();
 
-    when(organizationRepository.findById(id)).thenReturn(Optional.of(organization));
+    when(organizationRepository.findForWriteById(id)).thenReturn(Optional.of(organization));
     when(organizationRepository.save(any(Organization.class))).thenReturn(updatedOrganization);
 
     mockMvc.perform(put("/v1/organizations/{id}", id).contentType(MediaType.APPLICATION_JSON)
@@ -105,13 +181,30 @@ class OrganizationResourceTest {
         .andDo(print());
   }
 
+  @Test
+  void shouldPatchOrganization() throws Exception {
+    long id = 1L;
+
+    Organization organization = Organization.builder().id(id).email("spring@example.com").build();
+
+    when(organizationRepository.findForWriteById(id)).thenReturn(Optional.of(organization));
+    when(organizationRepository.save(any(Organization.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    mockMvc.perform(patch("/v1/organizations/{id}", id).contentType(MergePatcher.MEDIA_TYPE)
+            .content("{\"name\": \"Acme\"}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.name").value("Acme"))
+        .andExpect(jsonPath("$.email").value("spring@example.com"))
+        .andDo(print());
+  }
+
   @Test
   void shouldReturnNotFoundUpdateOrganization() throws Exception {
     long id = 1L;
 
     Organization updatedOrganization = Organization.builder().id(id).email("updated@example.com").build();
 
-    when(organizationRepository.findById(id)).thenReturn(Optional.empty());
+    when(organizationRepository.findForWriteById(id)).thenReturn(Optional.empty());
     when(organizationRepository.save(any(Organization.class))).thenReturn(updatedOrganization);
 
     mockMvc.perform(put("/v1/organizations/{id}", id).contentType(MediaType.APPLICATION_JSON)
@@ -120,6 +213,33 @@ class OrganizationResourceTest {
         .andDo(print());
   }
 
+  @Test
+  void shouldProcessBatchOfOrganizations() throws Exception {
+    Organization existing = Organization.builder().id(2L).email("spring@example.com 2").build();
+    Organization created = Organization.builder().id(10L).email("created@example.com").build();
+
+    when(organizationRepository.findAllById(anyList())).thenReturn(List.of(existing));
+    when(organizationRepository.saveAll(anyList())).thenReturn(List.of(created));
+
+    String body = """
+        [
+          {"action": "create", "data": {"email": "created@example.com"}},
+          {"action": "update", "id": 2, "data": {"email": "updated@example.com"}},
+          {"action": "delete", "id": 3},
+          {"action": "update", "data": {"email": "missing-id@example.com"}}
+        ]
+        """;
+    mockMvc.perform(post("/v1/organizations/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()").value(4))
+        .andExpect(jsonPath("$[0].status").value(201))
+        .andExpect(jsonPath("$[0].id").value(10))
+        .andExpect(jsonPath("$[1].status").value(200))
+        .andExpect(jsonPath("$[2].status").value(404))
+        .andExpect(jsonPath("$[3].status").value(400))
+        .andDo(print());
+  }
+
   @Test
   void shouldDeleteOrganization() throws Exception {
     long id = 1L;
@@ -130,4 +250,8 @@ class OrganizationResourceTest {
         .andDo(print());
   }
 
+  private static OrganizationView organizationView(long id, String email) {
+    return PROJECTIONS.createProjection(OrganizationView.class, Map.of("id", id, "email", email));
+  }
+
 }
@@ -0,0 +1,107 @@
+package com.kvcrm.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import com.kvcrm.IntegrationTest;
+import com.kvcrm.entity.Account;
+import com.kvcrm.entity.Contact;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Checks that list endpoints are served from the query cache and the account-scoped page cache
+ * until an entity they show is written, and that account-scoped pages of other accounts survive
+ * the write.
+ */
+@IntegrationTest(properties = {
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "kvcrm.cache.tenant-pages.enabled=true"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryCacheTest {
+
+  private final MockMvc mockMvc;
+
+  private final Statistics statistics;
+
+  private final AccountRepository accountRepository;
+
+  private final ContactRepository contactRepository;
+
+  private Account first;
+
+  private Account second;
+
+  @Autowired
+  QueryCacheTest(MockMvc mockMvc, EntityManagerFactory entityManagerFactory, AccountRepository accountRepository,
+                 ContactRepository contactRepository) {
+    this.mockMvc = mockMvc;
+    this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    this.accountRepository = accountRepository;
+    this.contactRepository = contactRepository;
+  }
+
+  @BeforeAll
+  void seed() {
+    first = accountRepository.save(Account.builder().name("query-cache-first").build());
+    second = accountRepository.save(Account.builder().name("query-cache-second").build());
+    contactRepository.save(Contact.builder().account(first).email("first@query-cache.test").build());
+    contactRepository.save(Contact.builder().account(second).email("second@query-cache.test").build());
+  }
+
+  @Test
+  void shouldServeListFromQueryCacheUntilTableIsWritten() throws Exception {
+    assertStatements("/v1/accounts?name=query-cache", 1);
+    assertStatements("/v1/accounts?name=query-cache", 0);
+
+    Account renamed = accountRepository.findById(first.getId()).orElseThrow();
+    renamed.setName("query-cache-renamed");
+    first = accountRepository.save(renamed);
+
+    assertStatements("/v1/accounts?name=query-cache", 1);
+  }
+
+  @Test
+  void shouldInvalidateAccountScopedPagesOfWrittenAccountOnly() throws Exception {
+    String firstContacts = "/v1/accounts/" + first.getId() + "/contacts";
+    String secondContacts = "/v1/accounts/" + second.getId() + "/contacts";
+    assertStatements(firstContacts, 1);
+    assertStatements(secondContacts, 1);
+    assertStatements(firstContacts, 0);
+
+    Contact contact = contactRepository.findViewsByAccountIdAndIdGreaterThan(first.getId(), 0L, KeysetCursor.pageable(1))
+        .map(view -> contactRepository.findById(view.getId()).orElseThrow())
+        .getContent().getFirst();
+    contact.setEmail("changed@query-cache.test");
+    contactRepository.save(contact);
+
+    statistics.clear();
+    mockMvc.perform(get(firstContacts))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items[0].email").value("changed@query-cache.test"));
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    assertStatements(secondContacts, 0);
+  }
+
+  private void assertStatements(String uri, int statements) throws Exception {
+    statistics.clear();
+    mockMvc.perform(get(uri)).andExpect(status().isOk());
+    assertThat(statistics.getPrepareStatementCount()).as("statements of %s", uri).isEqualTo(statements);
+  }
+}
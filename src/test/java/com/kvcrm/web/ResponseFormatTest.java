@@ -0,0 +1,265 @@
+package com.kvcrm.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.kvcrm.IntegrationTest;
+import com.kvcrm.entity.Account;
+import com.kvcrm.entity.Contact;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+@IntegrationTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "kvcrm.compression.min-response-size=1KB"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ResponseFormatTest {
+
+  private static final String TENANT_CONTACTS = "/v1/accounts/{accountId}/contacts";
+
+  private static final int CONTACTS = 30;
+
+  private final MockMvc mockMvc;
+
+  private final ObjectMapper objectMapper;
+
+  private final AccountRepository accountRepository;
+
+  private final ContactRepository contactRepository;
+
+  @LocalServerPort
+  private int port;
+
+  private Account account;
+
+  @Autowired
+  ResponseFormatTest(MockMvc mockMvc, ObjectMapper objectMapper, AccountRepository accountRepository,
+                     ContactRepository contactRepository) {
+    this.mockMvc = mockMvc;
+    this.objectMapper = objectMapper;
+    this.accountRepository = accountRepository;
+    this.contactRepository = contactRepository;
+  }
+
+  @BeforeAll
+  void seed() {
+    account = accountRepository.save(Account.builder().name("response-format").build());
+    for (int i = 0; i < CONTACTS; i++) {
+      contactRepository.save(Contact.builder()
+          .account(account)
+          .firstName("First" + i)
+          .lastName("Last" + i)
+          .city("Amsterdam")
+          .country("NL")
+          .email("contact-" + i + "@response-format.test")
+          .build());
+    }
+  }
+
+  @Test
+  void shouldKeepJsonForWildcardAccept() throws Exception {
+    mockMvc.perform(get(TENANT_CONTACTS, account.getId()).accept(MediaType.ALL))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+        .andExpect(jsonPath("$.items.length()").value(CONTACTS));
+  }
+
+  @Test
+  void shouldWriteSmile() throws Exception {
+    byte[] body = mockMvc.perform(get(TENANT_CONTACTS, account.getId()).accept("application/x-jackson-smile"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-jackson-smile"))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    assertThat(new ObjectMapper(new SmileFactory()).readTree(body)).isEqualTo(json());
+  }
+
+  @Test
+  void shouldWriteCbor() throws Exception {
+    byte[] body = mockMvc.perform(get(TENANT_CONTACTS, account.getId()).accept(MediaType.APPLICATION_CBOR))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    assertThat(new ObjectMapper(new CBORFactory()).readTree(body)).isEqualTo(json());
+  }
+
+  @Test
+  void shouldWritePagesAsTable() throws Exception {
+    byte[] body = mockMvc.perform(get(TENANT_CONTACTS, account.getId())
+            .param("limit", "10")
+            .accept(TableHttpMessageConverter.MEDIA_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(TableHttpMessageConverter.MEDIA_TYPE))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    JsonNode table = objectMapper.readTree(body);
+    assertThat(table.get("rows")).hasSize(10);
+    assertThat(table.get("next").asText()).isNotBlank();
+    JsonNode columns = table.get("columns");
+    int email = -1;
+    for (int i = 0; i < columns.size(); i++) {
+      if (columns.get(i).asText().equals("email")) {
+        email = i;
+      }
+    }
+    assertThat(email).isNotNegative();
+    for (JsonNode row : table.get("rows")) {
+      assertThat(row).hasSize(columns.size());
+      assertThat(row.get(email).asText()).endsWith("@response-format.test");
+    }
+  }
+
+  @Test
+  void shouldWriteSameValuesInTableAsInJson() throws Exception {
+    JsonNode table = objectMapper.readTree(mockMvc.perform(get(TENANT_CONTACTS, account.getId())
+            .accept(TableHttpMessageConverter.MEDIA_TYPE))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsByteArray());
+    JsonNode items = json().get("items");
+
+    assertThat(table.get("rows")).hasSize(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      JsonNode item = items.get(i);
+      JsonNode row = table.get("rows").get(i);
+      for (int column = 0; column < table.get("columns").size(); column++) {
+        String name = table.get("columns").get(column).asText();
+        assertThat(row.get(column)).as(name).isEqualTo(item.has(name) ? item.get(name) : NullNode.getInstance());
+      }
+      item.fieldNames().forEachRemaining(name -> assertThat(table.get("columns")).contains(TextNode.valueOf(name)));
+    }
+  }
+
+  @Test
+  void shouldNotWriteSingleResourcesAsTable() throws Exception {
+    long id = contactRepository.findAll().getFirst().getId();
+
+    mockMvc.perform(get("/v1/contacts/{id}", id).accept(MediaType.APPLICATION_JSON, TableHttpMessageConverter.MEDIA_TYPE))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+  }
+
+  @Test
+  void shouldCompressLargeResponses() throws Exception {
+    HttpResponse<byte[]> response = fetch(TENANT_CONTACTS.replace("{accountId}", account.getId().toString()));
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+    assertThat(response.headers().firstValue(HttpHeaders.ETAG)).hasValueSatisfying(tag -> assertThat(tag).endsWith("--gzip\""));
+    try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+      assertThat(objectMapper.readTree(body)).isEqualTo(json());
+    }
+  }
+
+  @Test
+  void shouldNotCompressSmallResponses() throws Exception {
+    HttpResponse<byte[]> response = fetch(TENANT_CONTACTS.replace("{accountId}", account.getId().toString()) + "?limit=1");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+  }
+
+  @Test
+  void shouldCompressStreamedExports() throws Exception {
+    HttpResponse<byte[]> response = fetch("/v1/contacts/export", HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE);
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+    try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+      assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8).lines()
+          .filter(line -> line.contains("@response-format.test")))
+          .hasSize(CONTACTS);
+    }
+  }
+
+  @Test
+  void shouldMatchTagsOfCompressedResponses() throws Exception {
+    String path = TENANT_CONTACTS.replace("{accountId}", account.getId().toString());
+    String tag = fetch(path).headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+
+    HttpResponse<byte[]> response = fetch(path, HttpHeaders.IF_NONE_MATCH, tag);
+
+    assertThat(response.statusCode()).isEqualTo(304);
+    assertThat(response.headers().firstValue(HttpHeaders.ETAG)).hasValue(tag);
+  }
+
+  @Test
+  void shouldTagEachFormatApart() throws Exception {
+    MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+    String json = tag(MediaType.APPLICATION_JSON);
+    String smileTag = tag(smile);
+
+    assertThat(List.of(json, smileTag, tag(MediaType.APPLICATION_CBOR), tag(TableHttpMessageConverter.MEDIA_TYPE)))
+        .doesNotHaveDuplicates();
+    mockMvc.perform(get(TENANT_CONTACTS, account.getId()).accept(smile).header(HttpHeaders.IF_NONE_MATCH, smileTag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, smileTag));
+    mockMvc.perform(get(TENANT_CONTACTS, account.getId()).accept(smile).header(HttpHeaders.IF_NONE_MATCH, json))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, smileTag));
+    mockMvc.perform(get(TENANT_CONTACTS, account.getId()).accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, smileTag + ", " + json))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, json));
+  }
+
+  private String tag(MediaType format) throws Exception {
+    return mockMvc.perform(get(TENANT_CONTACTS, account.getId()).accept(format))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(format))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+  }
+
+  private JsonNode json() throws Exception {
+    byte[] body = mockMvc.perform(get(TENANT_CONTACTS, account.getId()).accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsByteArray();
+    return objectMapper.readTree(body);
+  }
+
+  private HttpResponse<byte[]> fetch(String path, String... headers) throws Exception {
+    try (HttpClient client = HttpClient.newHttpClient()) {
+      HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+          .header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+      if (headers.length == 0 || !headers[0].equals(HttpHeaders.ACCEPT)) {
+        request.header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+      }
+      if (headers.length > 0) {
+        request.headers(headers);
+      }
+      return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+  }
+}
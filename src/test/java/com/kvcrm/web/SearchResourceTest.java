@@ -0,0 +1,65 @@
+package com.kvcrm.web;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import com.kvcrm.search.Suggestion;
+import com.kvcrm.search.SuggestionIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+@WebMvcTest(value = SearchResource.class, excludeAutoConfiguration = {SecurityAutoConfiguration.class},
+            properties = "kvcrm.search.suggest.enabled=true")
+class SearchResourceTest {
+  @MockBean
+  private SuggestionIndex suggestionIndex;
+
+  private final MockMvc mockMvc;
+
+  @Autowired
+  public SearchResourceTest(MockMvc mockMvc) {
+    this.mockMvc = mockMvc;
+  }
+
+  @Test
+  void shouldReturnSuggestions() throws Exception {
+    List<Suggestion> suggestions = List.of(new Suggestion(Suggestion.Type.CONTACT, 1L, "John Doe john@example.com"),
+        new Suggestion(Suggestion.Type.ORGANIZATION, 2L, "Johnson & Sons"));
+
+    when(suggestionIndex.suggest("joh", null, 10)).thenReturn(suggestions);
+    mockMvc.perform(get("/v1/search/suggest").param("q", "joh"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()").value(suggestions.size()))
+        .andExpect(jsonPath("$[0].type").value("contact"))
+        .andExpect(jsonPath("$[1].type").value("organization"))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldReturnSuggestionsOfType() throws Exception {
+    List<Suggestion> suggestions = List.of(new Suggestion(Suggestion.Type.ORGANIZATION, 2L, "Johnson & Sons"));
+
+    when(suggestionIndex.suggest("joh", Suggestion.Type.ORGANIZATION, SearchResource.MAX_LIMIT)).thenReturn(suggestions);
+    mockMvc.perform(get("/v1/search/suggest").param("q", "joh").param("type", "organization").param("limit", "1000"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()").value(suggestions.size()))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldRejectUnknownSuggestionType() throws Exception {
+    mockMvc.perform(get("/v1/search/suggest").param("q", "joh").param("type", "invoice"))
+        .andExpect(status().isBadRequest())
+        .andDo(print());
+  }
+
+}
@@ -0,0 +1,154 @@
+package com.kvcrm.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import com.kvcrm.IntegrationTest;
+import com.kvcrm.entity.Account;
+import com.kvcrm.entity.Contact;
+import com.kvcrm.entity.Organization;
+import com.kvcrm.entity.User;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import com.kvcrm.repository.OrganizationRepository;
+import com.kvcrm.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Guards the read endpoints against N+1 regressions by counting the JDBC statements Hibernate
+ * prepares per request, whether or not the owning accounts are expanded.
+ */
+@IntegrationTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StatementCountTest {
+
+  private static final int ACCOUNTS = 3;
+
+  private final MockMvc mockMvc;
+
+  private final Statistics statistics;
+
+  private final AccountRepository accountRepository;
+
+  private final ContactRepository contactRepository;
+
+  private final OrganizationRepository organizationRepository;
+
+  private final UserRepository userRepository;
+
+  @Autowired
+  StatementCountTest(MockMvc mockMvc, EntityManagerFactory entityManagerFactory, AccountRepository accountRepository,
+                     ContactRepository contactRepository, OrganizationRepository organizationRepository,
+                     UserRepository userRepository) {
+    this.mockMvc = mockMvc;
+    this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    this.accountRepository = accountRepository;
+    this.contactRepository = contactRepository;
+    this.organizationRepository = organizationRepository;
+    this.userRepository = userRepository;
+  }
+
+  @BeforeAll
+  void seed() {
+    for (int i = 0; i < ACCOUNTS; i++) {
+      Account account = accountRepository.save(Account.builder().name("statement-count-" + i).build());
+      for (int j = 0; j < 2; j++) {
+        String suffix = i + "-" + j;
+        contactRepository.save(Contact.builder().account(account).firstName("Contact").lastName(suffix)
+            .email("contact-" + suffix + "@statement-count.test").build());
+        organizationRepository.save(Organization.builder().account(account).name("statement-count-" + suffix)
+            .email("organization-" + suffix + "@statement-count.test").build());
+        userRepository.save(User.builder().account(account).firstName("User").lastName(suffix)
+            .email("user-" + suffix + "@statement-count.test").password("secret-" + suffix).build());
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"/v1/contacts", "/v1/organizations", "/v1/users"})
+  void shouldListInSingleStatement(String path) throws Exception {
+    assertSingleStatement(path);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"contacts", "organizations", "users"})
+  void shouldListAccountMembersInSingleStatement(String collection) throws Exception {
+    long accountId = accountRepository.findByNameContainingAndIdGreaterThan("statement-count-", 0L, Pageable.ofSize(1))
+        .getContent().getFirst().getId();
+    statistics.clear();
+    mockMvc.perform(get("/v1/accounts/{accountId}/{collection}", accountId, collection))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(2))
+        .andDo(print());
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"/v1/contacts", "/v1/organizations", "/v1/users"})
+  void shouldListWithExpandedAccountsInSingleStatement(String path) throws Exception {
+    statistics.clear();
+    mockMvc.perform(get(path).param("expand", Expand.ACCOUNT))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items[0].account.name").exists())
+        .andDo(print());
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"/v1/contacts", "/v1/organizations", "/v1/users"})
+  void shouldReadSingleInSingleStatement(String path) throws Exception {
+    long id = firstId(path);
+    assertSingleStatement(path + "/" + id);
+    assertSingleStatement(path + "/" + id + "?expand=" + Expand.ACCOUNT);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"/v1/contacts", "/v1/organizations", "/v1/users"})
+  void shouldAnswerUnchangedSingleFromVersionQuery(String path) throws Exception {
+    String uri = path + "/" + firstId(path);
+    String etag = mockMvc.perform(get(uri))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    statistics.clear();
+    mockMvc.perform(get(uri).header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andDo(print());
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    assertThat(statistics.getEntityLoadCount()).isZero();
+  }
+
+  private void assertSingleStatement(String uri) throws Exception {
+    statistics.clear();
+    mockMvc.perform(get(uri))
+        .andExpect(status().isOk())
+        .andDo(print());
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+  }
+
+  private long firstId(String path) {
+    return switch (path) {
+      case "/v1/contacts" -> contactRepository.findAll().getFirst().getId();
+      case "/v1/organizations" -> organizationRepository.findAll().getFirst().getId();
+      default -> userRepository.findAll().getFirst().getId();
+    };
+  }
+}
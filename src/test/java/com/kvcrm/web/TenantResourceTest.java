@@ -0,0 +1,124 @@
+package com.kvcrm.web;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.kvcrm.entity.Account;
+import com.kvcrm.repository.AccountRepository;
+import com.kvcrm.repository.ContactRepository;
+import com.kvcrm.repository.ContactView;
+import com.kvcrm.repository.OrganizationRepository;
+import com.kvcrm.repository.OrganizationView;
+import com.kvcrm.repository.UserRepository;
+import com.kvcrm.repository.UserView;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+@Import(TenantPageCache.class)
+@WebMvcTest(value = TenantResource.class, excludeAutoConfiguration = {SecurityAutoConfiguration.class})
+class TenantResourceTest {
+  private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+  @MockBean
+  private AccountRepository accountRepository;
+
+  @MockBean
+  private ContactRepository contactRepository;
+
+  @MockBean
+  private OrganizationRepository organizationRepository;
+
+  @MockBean
+  private UserRepository userRepository;
+
+  private final MockMvc mockMvc;
+
+  @Autowired
+  public TenantResourceTest(MockMvc mockMvc) {
+    this.mockMvc = mockMvc;
+  }
+
+  @Test
+  void shouldReturnContactsOfAccountPageByPage() throws Exception {
+    List<ContactView> contacts = List.of(view(ContactView.class, 3L), view(ContactView.class, 7L));
+
+    when(contactRepository.findViewsByAccountIdAndIdGreaterThan(eq(1L), eq(0L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(contacts, PageRequest.of(0, 2), true));
+    String next = KeysetCursor.encode(7L);
+    mockMvc.perform(get("/v1/accounts/{accountId}/contacts", 1L).param("limit", "2"))
+        .andExpect(status().isOk())
+        .andExpect(header().exists(HttpHeaders.ETAG))
+        .andExpect(jsonPath("$.items[1].id").value(7L))
+        .andExpect(jsonPath("$.next").value(next))
+        .andDo(print());
+
+    when(contactRepository.findViewsByAccountIdAndIdGreaterThan(eq(1L), eq(7L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(view(ContactView.class, 9L))));
+    mockMvc.perform(get("/v1/accounts/{accountId}/contacts", 1L).param("after", next))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(1))
+        .andExpect(jsonPath("$.next").doesNotExist())
+        .andDo(print());
+    verify(accountRepository, never()).findById(anyLong());
+  }
+
+  @Test
+  void shouldReturnOrganizationsOfAccount() throws Exception {
+    when(organizationRepository.findViewsByAccountIdAndIdGreaterThan(eq(1L), eq(0L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(view(OrganizationView.class, 2L))));
+    mockMvc.perform(get("/v1/accounts/{accountId}/organizations", 1L))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items[0].id").value(2L))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldReturnEmptyUsersOfAccountWithoutUsers() throws Exception {
+    when(userRepository.findViewsByAccountIdAndIdGreaterThan(eq(1L), eq(0L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of()));
+    when(accountRepository.findById(1L)).thenReturn(Optional.of(Account.builder().id(1L).name("Empty").build()));
+    mockMvc.perform(get("/v1/accounts/{accountId}/users", 1L))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(0))
+        .andDo(print());
+  }
+
+  @Test
+  void shouldReturnNotFoundForUnknownAccount() throws Exception {
+    when(userRepository.findViewsByAccountIdAndIdGreaterThan(eq(1L), eq(0L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of()));
+    when(accountRepository.findById(1L)).thenReturn(Optional.empty());
+    mockMvc.perform(get("/v1/accounts/{accountId}/users", 1L))
+        .andExpect(status().isNotFound())
+        .andDo(print());
+  }
+
+  private static <T> T view(Class<T> type, long id) {
+    return PROJECTIONS.createProjection(type, Map.of("id", id));
+  }
+
+}
@@ -1,10 +1,13 @@
 package com.kvcrm.web;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -14,24 +17,39 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kvcrm.entity.User;
 import com.kvcrm.repository.UserRepository;
+import com.kvcrm.repository.UserView;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
 
+@Import({BatchProcessor.class, MergePatcher.class, BulkDeleter.class})
 @WebMvcTest(value = UserResource.class, excludeAutoConfiguration = {SecurityAutoConfiguration.class})
 class UserResourceTest {
+  private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
   @MockBean
   private UserRepository userRepository;
 
+  @MockBean
+  private PlatformTransactionManager transactionManager;
+
   private final MockMvc mockMvc;
 
   private final ObjectMapper objectMapper;
@@ -55,9 +73,9 @@ class UserResourceTest {
   @Test
   void shouldReturnUser() throws Exception {
     long id = 1L;
-    User user =  User.builder().id(id).email("i@example.com").build();
+    UserView user = userView(id, "i@example.com");
 
-    when(userRepository.findById(id)).thenReturn(Optional.of(user));
+    when(userRepository.findViewById(id)).thenReturn(Optional.of(user));
     mockMvc.perform(get("/v1/users/{id}", id)).andExpect(status().isOk())
         .andExpect(jsonPath("$.id").value(id))
         .andExpect(jsonPath("$.email").value(user.getEmail()))
@@ -68,7 +86,7 @@ class UserResourceTest {
   void shouldReturnNotFoundUser() throws Exception {
     long id = 1L;
 
-    when(userRepository.findById(id)).thenReturn(Optional.empty());
+    when(userRepository.findViewById(id)).thenReturn(Optional.empty());
     mockMvc.perform(get("/v1/users/{id}", id))
         .andExpect(status().isNotFound())
         .andDo(print());
@@ -76,15 +94,37 @@ class UserResourceTest {
 
   @Test
   void shouldReturnListOfUsers() throws Exception {
-    List<User> users = new ArrayList<>(
-        Arrays.asList(User.builder().id(1L).email("spring@example.com 1").build(),
-             User.builder().id(2L).email("spring@example.com 2").build(),
-            User.builder().id(3L).email("spring@example.com 3").build()));
+    List<UserView> users = new ArrayList<>(
+        Arrays.asList(userView(1L, "spring@example.com 1"),
+             userView(2L, "spring@example.com 2"),
+            userView(3L, "spring@example.com 3")));
 
-    when(userRepository.findAll()).thenReturn(users);
+    when(userRepository.findViewsByIdGreaterThan(eq(0L), any(Pageable.class))).thenReturn(new SliceImpl<>(users));
     mockMvc.perform(get("/v1/users"))
         .andExpect(status().isOk())
-        .andExpect(jsonPath("$.size()").value(users.size()))
+        .andExpect(jsonPath("$.items.size()").value(users.size()))
+        .andExpect(jsonPath("$.next").doesNotExist())
+        .andDo(print());
+  }
+
+  @Test
+  void shouldReturnNextCursorForListOfUsers() throws Exception {
+    List<UserView> users = List.of(userView(1L, "spring@example.com 1"),
+        userView(2L, "spring@example.com 2"));
+
+    when(userRepository.findViewsByIdGreaterThan(eq(0L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(users, PageRequest.of(0, 2), true));
+    String next = KeysetCursor.encode(2L);
+    mockMvc.perform(get("/v1/users").param("limit", "2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(users.size()))
+        .andExpect(jsonPath("$.next").value(next))
+        .andDo(print());
+
+    when(userRepository.findViewsByIdGreaterThan(eq(2L), any(Pageable.class))).thenReturn(new SliceImpl<>(List.of()));
+    mockMvc.perform(get("/v1/users").param("after", next))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.items.size()").value(0))
         .andDo(print());
   }
 
@@ -95,7 +135,7 @@ class UserResourceTest {
     User user = User.builder().id(id).email("spring@example.com").build();
     User updatedUser = User.builder().id(id).email("updated@example.com").build();
 
-    when(userRepository.findById(id)).thenReturn(Optional.of(user));
+    when(userRepository.findForWriteById(id)).thenReturn(Optional.of(user));
     when(userRepository.save(any(User.class))).thenReturn(updatedUser);
 
     mockMvc.perform(put("/v1/users/{id}", id).contentType(MediaType.APPLICATION_JSON)
@@ -105,13 +145,30 @@ class UserResourceTest {
         .andDo(print());
   }
 
+  @Test
+  void shouldPatchUser() throws Exception {
+    long id = 1L;
+
+    User user = User.builder().id(id).email("spring@example.com").build();
+
+    when(userRepository.findForWriteById(id)).thenReturn(Optional.of(user));
+    when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    mockMvc.perform(patch("/v1/users/{id}", id).contentType(MergePatcher.MEDIA_TYPE)
+            .content("{\"firstName\": \"Jane\"}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.firstName").value("Jane"))
+        .andExpect(jsonPath("$.email").value("spring@example.com"))
+        .andDo(print());
+  }
+
   @Test
   void shouldReturnNotFoundUpdateUser() throws Exception {
     long id = 1L;
 
     User updatedUser = User.builder().id(id).email("updated@example.com").build();
 
-    when(userRepository.findById(id)).thenReturn(Optional.empty());
+    when(userRepository.findForWriteById(id)).thenReturn(Optional.empty());
     when(userRepository.save(any(User.class))).thenReturn(updatedUser);
 
     mockMvc.perform(put("/v1/users/{id}", id).contentType(MediaType.APPLICATION_JSON)
@@ -120,6 +177,33 @@ class UserResourceTest {
         .andDo(print());
   }
 
+  @Test
+  void shouldProcessBatchOfUsers() throws Exception {
+    User existing = User.builder().id(2L).email("spring@example.com 2").build();
+    User created = User.builder().id(10L).email("created@example.com").build();
+
+    when(userRepository.findAllById(anyList())).thenReturn(List.of(existing));
+    when(userRepository.saveAll(anyList())).thenReturn(List.of(created));
+
+    String body = """
+        [
+          {"action": "create", "data": {"email": "created@example.com"}},
+          {"action": "update", "id": 2, "data": {"email": "updated@example.com"}},
+          {"action": "delete", "id": 3},
+          {"action": "update", "data": {"email": "missing-id@example.com"}}
+        ]
+        """;
+    mockMvc.perform(post("/v1/users/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.size()").value(4))
+        .andExpect(jsonPath("$[0].status").value(201))
+        .andExpect(jsonPath("$[0].id").value(10))
+        .andExpect(jsonPath("$[1].status").value(200))
+        .andExpect(jsonPath("$[2].status").value(404))
+        .andExpect(jsonPath("$[3].status").value(400))
+        .andDo(print());
+  }
+
   @Test
   void shouldDeleteUser() throws Exception {
     long id = 1L;
@@ -130,4 +214,8 @@ class UserResourceTest {
         .andDo(print());
   }
 
+  private static UserView userView(long id, String email) {
+    return PROJECTIONS.createProjection(UserView.class, Map.of("id", id, "email", email, "owner", false));
+  }
+
 }
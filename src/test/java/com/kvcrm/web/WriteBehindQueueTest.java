@@ -0,0 +1,179 @@
+package com.kvcrm.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+class WriteBehindQueueTest {
+
+  private static final long MISSING = 404L;
+
+  private final List<Map<Long, Update>> writes = new ArrayList<>();
+
+  private final List<WriteBehindQueue<Update>> queues = new ArrayList<>();
+
+  private final Map<Long, Long> versions = new HashMap<>();
+
+  @TempDir
+  private Path journalDirectory;
+
+  @AfterEach
+  void stop() {
+    queues.forEach(WriteBehindQueue::stop);
+  }
+
+  @Test
+  void shouldWriteOnlyLatestUpdateOfEachEntity() {
+    WriteBehindQueue<Update> queue = start(10);
+
+    WriteStatus first = queue.submit(1L, 0L, new Update("first@example.com"));
+    WriteStatus second = queue.submit(1L, 0L, new Update("second@example.com"));
+    WriteStatus other = queue.submit(2L, 0L, new Update("other@example.com"));
+    queue.flush();
+
+    assertThat(writes).containsExactly(Map.of(1L, new Update("second@example.com"), 2L, new Update("other@example.com")));
+    assertThat(Stream.of(first, second, other).map(status -> queue.status(status.handle()).orElseThrow().state()))
+        .containsOnly(WriteStatus.State.APPLIED);
+  }
+
+  @Test
+  void shouldReplayJournalOfUnwrittenUpdates() throws Exception {
+    WriteBehindQueue<Update> crashed = start(10);
+    WriteStatus accepted = crashed.submit(1L, 0L, new Update("journaled@example.com"));
+
+    WriteBehindQueue<Update> restarted = start(10);
+    restarted.flush();
+
+    assertThat(writes).containsExactly(Map.of(1L, new Update("journaled@example.com")));
+    assertThat(restarted.status(accepted.handle()).orElseThrow().state()).isEqualTo(WriteStatus.State.APPLIED);
+    try (Stream<Path> segments = Files.list(journalDirectory)) {
+      assertThat(segments).hasSize(1);
+    }
+  }
+
+  @Test
+  void shouldSkipReplayedUpdateOfChangedEntity() {
+    WriteBehindQueue<Update> crashed = start(10);
+    WriteStatus changed = crashed.submit(1L, 3L, new Update("changed@example.com"));
+    WriteStatus unchanged = crashed.submit(2L, 5L, new Update("unchanged@example.com"));
+    versions.putAll(Map.of(1L, 4L, 2L, 5L));
+
+    WriteBehindQueue<Update> restarted = start(10);
+    restarted.flush();
+
+    assertThat(writes).containsExactly(Map.of(2L, new Update("unchanged@example.com")));
+    assertThat(restarted.status(changed.handle()).orElseThrow().state()).isEqualTo(WriteStatus.State.FAILED);
+    assertThat(restarted.status(unchanged.handle()).orElseThrow().state()).isEqualTo(WriteStatus.State.APPLIED);
+  }
+
+  @Test
+  void shouldFailFlushedUpdateOfEntityChangedSinceAccepted() {
+    WriteBehindQueue<Update> queue = start(10);
+    WriteStatus changed = queue.submit(1L, 3L, new Update("changed@example.com"));
+    WriteStatus unchanged = queue.submit(2L, 5L, new Update("unchanged@example.com"));
+    versions.putAll(Map.of(1L, 4L, 2L, 5L));
+
+    queue.flush();
+
+    assertThat(writes).containsExactly(Map.of(2L, new Update("unchanged@example.com")));
+    assertThat(queue.status(changed.handle()).orElseThrow())
+        .returns(WriteStatus.State.FAILED, WriteStatus::state)
+        .returns("Conflict, the entity changed after the update was accepted", WriteStatus::error);
+    assertThat(queue.status(unchanged.handle()).orElseThrow().state()).isEqualTo(WriteStatus.State.APPLIED);
+  }
+
+  @Test
+  void shouldJournalEveryConcurrentSubmit() throws Exception {
+    WriteBehindQueue<Update> crashed = start(100);
+    try (ExecutorService submitters = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (long id = 1; id <= 100; id++) {
+        long entity = id;
+        submitters.submit(() -> crashed.submit(entity, 0L, new Update(entity + "@example.com")));
+      }
+    }
+
+    WriteBehindQueue<Update> restarted = start(100);
+    restarted.flush();
+
+    assertThat(writes).singleElement().satisfies(written -> assertThat(written).hasSize(100));
+  }
+
+  @Test
+  void shouldRequireAbsoluteJournalDirectory() {
+    WriteBehindProperties properties = new WriteBehindProperties();
+    properties.setJournalDirectory(Path.of("write-behind"));
+
+    assertThatIllegalStateException()
+        .isThrownBy(properties::validate)
+        .withMessageContaining("kvcrm.write-behind.journal-directory must be an absolute path");
+  }
+
+  @Test
+  void shouldFailRefusedUpdateWithoutHoldingBackOthers() {
+    WriteBehindQueue<Update> queue = start(10);
+
+    WriteStatus applied = queue.submit(1L, 0L, new Update("applied@example.com"));
+    WriteStatus refused = queue.submit(MISSING, 0L, new Update("refused@example.com"));
+    queue.flush();
+
+    assertThat(queue.status(applied.handle()).orElseThrow().state()).isEqualTo(WriteStatus.State.APPLIED);
+    assertThat(queue.status(refused.handle()).orElseThrow())
+        .returns(WriteStatus.State.FAILED, WriteStatus::state)
+        .returns("Not found", WriteStatus::error);
+    assertThat(writes).containsExactly(Map.of(1L, new Update("applied@example.com")));
+  }
+
+  @Test
+  void shouldRefuseUpdatesOfNewEntitiesWhenFull() {
+    WriteBehindQueue<Update> queue = start(1);
+
+    queue.submit(1L, 0L, new Update("first@example.com"));
+    queue.submit(1L, 0L, new Update("second@example.com"));
+
+    assertThatThrownBy(() -> queue.submit(2L, 0L, new Update("other@example.com")))
+        .isInstanceOfSatisfying(ResponseStatusException.class,
+            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+  }
+
+  private WriteBehindQueue<Update> start(int capacity) {
+    WriteBehindProperties properties = new WriteBehindProperties();
+    properties.setEnabled(true);
+    properties.setCapacity(capacity);
+    properties.setFlushInterval(Duration.ofHours(1));
+    properties.setJournalDirectory(journalDirectory);
+    WriteBehindQueue<Update> queue = new WriteBehindQueue<>("updates", Update.class, properties, new ObjectMapper(),
+        new TransactionTemplate(mock(PlatformTransactionManager.class)), updates -> {
+          if (updates.containsKey(MISSING)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Not found");
+          }
+          writes.add(Map.copyOf(updates));
+        }, ids -> versions);
+    queue.start();
+    queues.add(queue);
+    return queue;
+  }
+
+  record Update(String email) {
+  }
+}